@@ -15,12 +15,32 @@
  */
 package com.github.liaochong.myexcel.core;
 
+import com.github.liaochong.myexcel.core.io.CharPipe;
 import com.github.liaochong.myexcel.core.io.TempFileOperator;
+import com.github.liaochong.myexcel.core.io.TempResource;
 import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import com.github.liaochong.myexcel.utils.WorkbookUtil;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Workbook;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * excel创建者接口
@@ -31,31 +51,68 @@ import java.util.Objects;
 @Slf4j
 public abstract class AbstractExcelBuilder implements ExcelBuilder {
 
-    protected HtmlToExcelFactory htmlToExcelFactory = new HtmlToExcelFactory();
+    /**
+     * 最近一次构建使用的工厂，每次构建使用新的工厂，关闭时关闭其工作簿
+     */
+    protected volatile HtmlToExcelFactory htmlToExcelFactory;
+
+    private WorkbookType workbookType;
+
+    private int rowAccessWindowSize;
+
+    private boolean useDefaultStyle;
+
+    private AutoWidthStrategy autoWidthStrategy;
+
+    private FreezePane[] freezePanes;
+
+    private ExecutorService parallelExecutor;
+
+    private boolean compressTempFiles;
+
+    protected DeflatePolicy deflatePolicy;
 
-    protected TempFileOperator tempFileOperator = new TempFileOperator();
+    protected Integer compressionLevel;
+
+    /**
+     * 管道缓冲的块数
+     */
+    private static final int PIPE_CAPACITY = 64;
+
+    /**
+     * 默认每次构建使用新的守护线程解析
+     */
+    private static final Executor PIPELINE_THREAD_EXECUTOR = runnable -> {
+        Thread thread = new Thread(runnable, "myexcel-pipeline");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private boolean pipeline;
+
+    private ExecutorService pipelineExecutor;
 
     @Override
     public AbstractExcelBuilder workbookType(@NonNull WorkbookType workbookType) {
-        htmlToExcelFactory.workbookType(workbookType);
+        this.workbookType = workbookType;
         return this;
     }
 
     @Override
     public AbstractExcelBuilder rowAccessWindowSize(int rowAccessWindowSize) {
-        htmlToExcelFactory.rowAccessWindowSize(rowAccessWindowSize);
+        this.rowAccessWindowSize = rowAccessWindowSize;
         return this;
     }
 
     @Override
     public AbstractExcelBuilder useDefaultStyle() {
-        htmlToExcelFactory.useDefaultStyle();
+        this.useDefaultStyle = true;
         return this;
     }
 
     @Override
     public AbstractExcelBuilder autoWidthStrategy(@NonNull AutoWidthStrategy autoWidthStrategy) {
-        htmlToExcelFactory.autoWidthStrategy(autoWidthStrategy);
+        this.autoWidthStrategy = autoWidthStrategy;
         return this;
     }
 
@@ -64,30 +121,186 @@ public abstract class AbstractExcelBuilder implements ExcelBuilder {
         if (Objects.isNull(freezePanes) || freezePanes.length == 0) {
             return this;
         }
-        htmlToExcelFactory.freezePanes(freezePanes);
+        this.freezePanes = freezePanes;
+        return this;
+    }
+
+    @Override
+    public AbstractExcelBuilder pipeline() {
+        this.pipeline = true;
+        return this;
+    }
+
+    @Override
+    public AbstractExcelBuilder pipeline(@NonNull ExecutorService executorService) {
+        this.pipeline = true;
+        this.pipelineExecutor = executorService;
+        return this;
+    }
+
+    @Override
+    public AbstractExcelBuilder parallel() {
+        this.parallelExecutor = ForkJoinPool.commonPool();
+        return this;
+    }
+
+    @Override
+    public AbstractExcelBuilder parallel(@NonNull ExecutorService executorService) {
+        this.parallelExecutor = executorService;
+        return this;
+    }
+
+    @Override
+    public AbstractExcelBuilder deflatePolicy(DeflatePolicy deflatePolicy) {
+        this.deflatePolicy = deflatePolicy;
+        return this;
+    }
+
+    @Override
+    public AbstractExcelBuilder compressionLevel(int level) {
+        this.compressionLevel = DeflatePolicy.checkLevel(level);
+        return this;
+    }
+
+    @Override
+    public AbstractExcelBuilder compressTempFiles() {
+        this.compressTempFiles = true;
         return this;
     }
 
+    @Override
+    public <T> void write(Map<String, T> renderData, @NonNull OutputStream outputStream) throws IOException {
+        WorkbookUtil.write(this.build(renderData), outputStream, DeflatePolicy.of(deflatePolicy, compressionLevel));
+    }
+
+    @Override
+    public <T> void write(Map<String, T> renderData, @NonNull Path path) throws IOException {
+        WorkbookUtil.write(this.build(renderData), path, DeflatePolicy.of(deflatePolicy, compressionLevel));
+    }
+
+    /**
+     * 渲染模板并构建工作簿，非管道模式时模板先渲染至临时html
+     *
+     * @param tempPrefix 临时html前缀
+     * @param renderer   模板渲染
+     * @return Workbook
+     */
+    protected Workbook build(String tempPrefix, TemplateRenderer renderer) {
+        HtmlToExcelFactory factory = this.newHtmlToExcelFactory();
+        if (pipeline) {
+            return this.pipelineBuild(renderer, factory);
+        }
+        try (TempResource htmlResource = TempFileOperator.getTempStorage().create(tempPrefix, TempFileOperator.HTML_SUFFIX)) {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(htmlResource.openOutputStream(), StandardCharsets.UTF_8))) {
+                renderer.render(out);
+            }
+            try (InputStream in = htmlResource.openInputStream()) {
+                return HtmlToExcelFactory.readHtml(in, factory).build();
+            }
+        } catch (Exception e) {
+            throw ExcelBuildException.of("Failed to build excel", e);
+        }
+    }
+
+    /**
+     * 模板在当前线程渲染至管道，另一线程边读取边解析并写入工作簿
+     *
+     * @param renderer 模板渲染
+     * @param factory  本次构建的工厂
+     * @return Workbook
+     */
+    private Workbook pipelineBuild(TemplateRenderer renderer, HtmlToExcelFactory factory) {
+        CharPipe pipe = new CharPipe(PIPE_CAPACITY);
+        Executor executor = Objects.isNull(pipelineExecutor) ? PIPELINE_THREAD_EXECUTOR : pipelineExecutor;
+        CompletableFuture<Workbook> future = CompletableFuture.supplyAsync(() -> {
+            try (Reader reader = pipe.reader()) {
+                return factory.build(reader);
+            } catch (IOException e) {
+                pipe.abort(e);
+                throw ExcelBuildException.of("Failed to build excel", e);
+            } catch (RuntimeException e) {
+                pipe.abort(e);
+                throw e;
+            }
+        }, executor);
+        Writer out = pipe.writer();
+        try {
+            renderer.render(out);
+            out.close();
+        } catch (Exception e) {
+            // 先中止管道，避免解析方将未完成的html视为结束
+            pipe.abort(e);
+            try {
+                future.join();
+            } catch (CompletionException ignored) {
+                // 以渲染异常为准
+            }
+            throw ExcelBuildException.of("Failed to build excel", e);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ExcelBuildException) {
+                throw (ExcelBuildException) e.getCause();
+            }
+            throw ExcelBuildException.of("Failed to build excel", e.getCause());
+        }
+    }
+
     /**
-     * 分离文件路径
+     * 以构建器的配置创建本次构建的工厂，构建器可被多线程复用，工厂不可
      *
-     * @param path 文件路径
-     * @return String[]
+     * @return HtmlToExcelFactory
      */
-    String[] splitFilePath(String path) {
-        if (Objects.isNull(path) || path.isEmpty()) {
-            throw new NullPointerException();
+    private HtmlToExcelFactory newHtmlToExcelFactory() {
+        HtmlToExcelFactory factory = new HtmlToExcelFactory();
+        // 工作簿于设置类型时创建，窗口大小及临时文件压缩需先于类型设置
+        factory.rowAccessWindowSize(rowAccessWindowSize).compressTempFiles(compressTempFiles);
+        if (Objects.nonNull(workbookType)) {
+            factory.workbookType(workbookType);
+        }
+        if (useDefaultStyle) {
+            factory.useDefaultStyle();
+        }
+        if (Objects.nonNull(autoWidthStrategy)) {
+            factory.autoWidthStrategy(autoWidthStrategy);
         }
-        int lastPackageIndex = path.lastIndexOf("/");
-        if (lastPackageIndex == -1) {
-            return new String[]{"/", path};
+        if (Objects.nonNull(freezePanes)) {
+            factory.freezePanes(freezePanes);
         }
-        if (lastPackageIndex == path.length() - 1) {
-            throw new IllegalArgumentException();
+        if (Objects.nonNull(parallelExecutor)) {
+            factory.parallel(parallelExecutor);
+        }
+        htmlToExcelFactory = factory;
+        return factory;
+    }
+
+    /**
+     * 模板渲染
+     */
+    @FunctionalInterface
+    protected interface TemplateRenderer {
+
+        /**
+         * 将模板渲染至out
+         *
+         * @param out 输出
+         * @throws Exception 渲染异常
+         */
+        void render(Writer out) throws Exception;
+    }
+
+    /**
+     * 关闭最近一次构建的工作簿并清除临时文件，可配合try-with-resources使用
+     *
+     * @throws IOException IOException
+     */
+    @Override
+    public void close() throws IOException {
+        HtmlToExcelFactory factory = htmlToExcelFactory;
+        if (Objects.nonNull(factory)) {
+            factory.close();
         }
-        String basePackagePath = path.substring(0, lastPackageIndex);
-        String templateName = path.substring(lastPackageIndex + 1);
-        return new String[]{basePackagePath, templateName};
     }
 
 }
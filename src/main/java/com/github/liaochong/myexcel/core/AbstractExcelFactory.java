@@ -19,20 +19,21 @@ import com.github.liaochong.myexcel.core.parser.HtmlTableParser;
 import com.github.liaochong.myexcel.core.parser.Td;
 import com.github.liaochong.myexcel.core.parser.Tr;
 import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
-import com.github.liaochong.myexcel.core.style.BackgroundStyle;
-import com.github.liaochong.myexcel.core.style.BorderStyle;
+import com.github.liaochong.myexcel.core.style.CellStylePool;
+import com.github.liaochong.myexcel.core.style.CellStyleSpec;
 import com.github.liaochong.myexcel.core.style.CustomColor;
 import com.github.liaochong.myexcel.core.style.FontStyle;
+import com.github.liaochong.myexcel.core.style.RowBanding;
 import com.github.liaochong.myexcel.core.style.TdDefaultCellStyle;
-import com.github.liaochong.myexcel.core.style.TextAlignStyle;
 import com.github.liaochong.myexcel.core.style.ThDefaultCellStyle;
 import com.github.liaochong.myexcel.utils.TdUtil;
+import com.github.liaochong.myexcel.utils.WorkbookUtil;
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.hssf.usermodel.HSSFPalette;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
@@ -41,44 +42,69 @@ import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author liaochong
  * @version 1.0
  */
+@Slf4j
 public abstract class AbstractExcelFactory implements ExcelFactory {
 
     protected Workbook workbook;
     /**
-     * 每行的单元格最大高度map
+     * 每个工作表中每行的单元格最大高度map，各工作表可并行构建
      */
-    private Map<Integer, Short> maxTdHeightMap = new HashMap<>();
+    private Map<Sheet, Map<Integer, Short>> maxTdHeightMap = new ConcurrentHashMap<>();
     /**
      * 是否使用默认样式
      */
-    private boolean useDefaultStyle;
-    /**
-     * 自定义颜色
-     */
-    private CustomColor customColor;
+    protected boolean useDefaultStyle;
     /**
      * 单元格样式映射
      */
-    private Map<Map<String, String>, CellStyle> cellStyleMap = new HashMap<>();
+    private Map<CellStyleSpec, CellStyle> cellStyleMap = new ConcurrentHashMap<>();
     /**
      * 样式容器
      */
     private Map<HtmlTableParser.TableTag, CellStyle> defaultCellStyleMap;
     /**
-     * 字体map
+     * 单元格样式池
+     */
+    private CellStylePool cellStylePool;
+    /**
+     * 工作簿颜色登记
+     */
+    private CustomColor customColor;
+    /**
+     * 斑马纹背景色，为null时不设置斑马纹
+     */
+    protected String rowBandingColor;
+    /**
+     * 每个工作表的斑马纹数据区域，各工作表可并行构建
+     */
+    private Map<Sheet, RowBanding> rowBandingMap = new ConcurrentHashMap<>();
+    /**
+     * 是否使用列默认样式
+     */
+    protected boolean columnStyle;
+    /**
+     * 每个工作表的列默认样式，列->样式，各工作表可并行构建
      */
-    private Map<String, Font> fontMap = new HashMap<>();
+    private Map<Sheet, Map<Integer, CellStyle>> columnStyleMap = new ConcurrentHashMap<>();
+    /**
+     * 每个工作表待写入的合并单元格，各工作表可并行构建
+     */
+    private Map<Sheet, MergedRegionRegistry> mergedRegionMap = new ConcurrentHashMap<>();
     /**
      * 冻结区域
      */
@@ -91,6 +117,18 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
      * 自动宽度策略
      */
     protected AutoWidthStrategy autoWidthStrategy = AutoWidthStrategy.COMPUTE_AUTO_WIDTH;
+    /**
+     * 写出时的压缩策略
+     */
+    protected DeflatePolicy deflatePolicy;
+    /**
+     * 写出时的压缩级别
+     */
+    protected Integer compressionLevel;
+    /**
+     * 是否压缩SXSSF临时文件
+     */
+    private boolean compressTempFiles;
 
     @Override
     public ExcelFactory useDefaultStyle() {
@@ -123,7 +161,7 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
                 workbook = new XSSFWorkbook();
                 break;
             case SXLSX:
-                workbook = new SXSSFWorkbook(rowAccessWindowSize);
+                workbook = new SXSSFWorkbook(null, rowAccessWindowSize, compressTempFiles);
                 break;
             default:
                 workbook = new XSSFWorkbook();
@@ -131,12 +169,66 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
         return this;
     }
 
+    @Override
+    public ExcelFactory rowBanding(@NonNull String color) {
+        this.rowBandingColor = color;
+        return this;
+    }
+
+    @Override
+    public ExcelFactory columnStyle() {
+        this.columnStyle = true;
+        return this;
+    }
+
     @Override
     public ExcelFactory autoWidthStrategy(@NonNull AutoWidthStrategy autoWidthStrategy) {
         this.autoWidthStrategy = autoWidthStrategy;
         return this;
     }
 
+    @Override
+    public ExcelFactory deflatePolicy(DeflatePolicy deflatePolicy) {
+        this.deflatePolicy = deflatePolicy;
+        return this;
+    }
+
+    @Override
+    public ExcelFactory compressionLevel(int level) {
+        this.compressionLevel = DeflatePolicy.checkLevel(level);
+        return this;
+    }
+
+    @Override
+    public ExcelFactory compressTempFiles(boolean compressTempFiles) {
+        this.compressTempFiles = compressTempFiles;
+        return this;
+    }
+
+    @Override
+    public void write(@NonNull OutputStream outputStream) throws IOException {
+        WorkbookUtil.write(this.build(), outputStream, DeflatePolicy.of(deflatePolicy, compressionLevel));
+        workbook = null;
+    }
+
+    @Override
+    public void write(@NonNull Path path) throws IOException {
+        WorkbookUtil.write(this.build(), path, DeflatePolicy.of(deflatePolicy, compressionLevel));
+        workbook = null;
+    }
+
+    /**
+     * 关闭工作簿并清除临时文件，可配合try-with-resources使用
+     *
+     * @throws IOException IOException
+     */
+    @Override
+    public void close() throws IOException {
+        Workbook current = workbook;
+        workbook = null;
+        WorkbookUtil.close(current);
+    }
+
     /**
      * 创建行-row
      *
@@ -151,12 +243,15 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
         for (Td td : tr.getTdList()) {
             this.createCell(td, sheet, row);
         }
+        if (Objects.nonNull(rowBandingColor)) {
+            rowBandingMap.computeIfAbsent(sheet, key -> new RowBanding(rowBandingColor)).accept(tr);
+        }
         // 设置行高，最小12
-        if (Objects.isNull(maxTdHeightMap.get(row.getRowNum()))) {
+        Short maxTdHeight = this.getMaxTdHeightMap(sheet).remove(row.getRowNum());
+        if (Objects.isNull(maxTdHeight)) {
             row.setHeightInPoints(row.getHeightInPoints() + 5);
         } else {
-            row.setHeightInPoints((short) (maxTdHeightMap.get(row.getRowNum()) + 5));
-            maxTdHeightMap.remove(row.getRowNum());
+            row.setHeightInPoints((short) (maxTdHeight + 5));
         }
     }
 
@@ -168,74 +263,165 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
      * @param currentRow 当前行
      */
     protected void createCell(Td td, Sheet sheet, Row currentRow) {
+        if (columnStyle && !td.isTh() && td.getColSpan() == 0 && td.getRowSpan() == 0) {
+            this.createColumnStyledCell(td, sheet, currentRow);
+            return;
+        }
         Cell cell = currentRow.getCell(td.getCol());
         if (Objects.isNull(cell)) {
             cell = currentRow.createCell(td.getCol());
         }
         cell.setCellValue(td.getContent());
 
-        // 设置单元格样式
+        // 设置单元格样式，被合并覆盖的单元格仅在有样式时创建，以显示边框、背景等
+        CellStyle cellStyle = this.getCellStyle(td);
+        if (Objects.isNull(cellStyle)) {
+            if (td.getColSpan() > 0 || td.getRowSpan() > 0) {
+                this.getMergedRegionRegistry(sheet).add(new CellRangeAddress(td.getRow(), td.getRowBound(), td.getCol(), td.getColBound()));
+            }
+            return;
+        }
         for (int i = td.getRow(), rowBound = td.getRowBound(); i <= rowBound; i++) {
             Row row = sheet.getRow(i);
             if (Objects.isNull(row)) {
                 row = sheet.createRow(i);
             }
+            this.recordFontSize(row, td);
             for (int j = td.getCol(), colBound = td.getColBound(); j <= colBound; j++) {
                 cell = row.getCell(j);
                 if (Objects.isNull(cell)) {
                     cell = row.createCell(j);
                 }
-                this.setCellStyle(row, cell, td);
+                cell.setCellStyle(cellStyle);
             }
         }
         if (td.getColSpan() > 0 || td.getRowSpan() > 0) {
-            sheet.addMergedRegion(new CellRangeAddress(td.getRow(), td.getRowBound(), td.getCol(), td.getColBound()));
+            this.getMergedRegionRegistry(sheet).add(new CellRangeAddress(td.getRow(), td.getRowBound(), td.getCol(), td.getColBound()));
+        }
+    }
+
+    /**
+     * 创建未跨行跨列的td单元格，列中首个td的样式作为列默认样式，与列默认样式相同的空单元格不再创建
+     *
+     * @param td         td
+     * @param sheet      sheet
+     * @param currentRow 当前行
+     */
+    private void createColumnStyledCell(Td td, Sheet sheet, Row currentRow) {
+        CellStyle cellStyle = this.getCellStyle(td);
+        this.recordFontSize(currentRow, td);
+        Map<Integer, CellStyle> sheetColumnStyleMap = columnStyleMap.computeIfAbsent(sheet, key -> new HashMap<>());
+        CellStyle columnCellStyle = sheetColumnStyleMap.get(td.getCol());
+        if (Objects.isNull(columnCellStyle) && Objects.nonNull(cellStyle)) {
+            columnCellStyle = cellStyle;
+            sheetColumnStyleMap.put(td.getCol(), cellStyle);
+            sheet.setDefaultColumnStyle(td.getCol(), cellStyle);
+        }
+        boolean isEmpty = Objects.isNull(td.getContent()) || td.getContent().isEmpty();
+        if (isEmpty && cellStyle == columnCellStyle && Objects.isNull(currentRow.getCell(td.getCol()))) {
+            return;
+        }
+        Cell cell = currentRow.getCell(td.getCol());
+        if (Objects.isNull(cell)) {
+            cell = currentRow.createCell(td.getCol());
+        }
+        cell.setCellValue(td.getContent());
+        if (Objects.nonNull(cellStyle)) {
+            cell.setCellStyle(cellStyle);
+        }
+    }
+
+    /**
+     * 记录行中最大字号，用于设置行高
+     *
+     * @param row 行
+     * @param td  td单元格
+     */
+    private void recordFontSize(Row row, Td td) {
+        if (useDefaultStyle) {
+            return;
+        }
+        short fontSize = td.getStyle().getFontSize();
+        if (fontSize > FontStyle.DEFAULT_FONT_SIZE) {
+            Map<Integer, Short> sheetMaxTdHeightMap = this.getMaxTdHeightMap(row.getSheet());
+            if (fontSize > sheetMaxTdHeightMap.getOrDefault(row.getRowNum(), FontStyle.DEFAULT_FONT_SIZE)) {
+                sheetMaxTdHeightMap.put(row.getRowNum(), fontSize);
+            }
         }
     }
 
     /**
-     * 设置单元格样式
+     * 获取单元格样式
      *
-     * @param cell 单元格
-     * @param td   td单元格
+     * @param td td单元格
+     * @return 单元格样式，无样式时为null
      */
-    private void setCellStyle(Row row, Cell cell, Td td) {
+    private CellStyle getCellStyle(Td td) {
         if (useDefaultStyle) {
             if (td.isTh()) {
-                cell.setCellStyle(defaultCellStyleMap.get(HtmlTableParser.TableTag.th));
+                return defaultCellStyleMap.get(HtmlTableParser.TableTag.th);
             } else {
-                cell.setCellStyle(defaultCellStyleMap.get(HtmlTableParser.TableTag.td));
+                return defaultCellStyleMap.get(HtmlTableParser.TableTag.td);
             }
         } else {
-            if (td.getStyle().isEmpty()) {
-                return;
-            }
-            String fs = td.getStyle().get("font-size");
-            if (Objects.nonNull(fs)) {
-                fs = fs.replaceAll("\\D*", "");
-                short fontSize = Short.parseShort(fs);
-                if (fontSize > maxTdHeightMap.getOrDefault(row.getRowNum(), FontStyle.DEFAULT_FONT_SIZE)) {
-                    maxTdHeightMap.put(row.getRowNum(), fontSize);
-                }
+            CellStyleSpec style = td.getStyle();
+            if (style.isEmpty()) {
+                return null;
             }
-            if (cellStyleMap.containsKey(td.getStyle())) {
-                cell.setCellStyle(cellStyleMap.get(td.getStyle()));
-                return;
-            }
-            CellStyle cellStyle = workbook.createCellStyle();
-            // background-color
-            BackgroundStyle.setBackgroundColor(cellStyle, td.getStyle(), customColor);
-            // text-align
-            TextAlignStyle.setTextAlign(cellStyle, td.getStyle());
-            // border
-            BorderStyle.setBorder(cellStyle, td.getStyle());
-            // font
-            FontStyle.setFont(() -> workbook.createFont(), cellStyle, td.getStyle(), fontMap, customColor);
-            cell.setCellStyle(cellStyle);
-            cellStyleMap.put(td.getStyle(), cellStyle);
+            CellStyle cellStyle = cellStyleMap.get(style);
+            return Objects.isNull(cellStyle) ? this.createCellStyle(style) : cellStyle;
+        }
+    }
+
+    /**
+     * 创建单元格样式，工作簿样式表为各工作表共享，创建时需同步
+     *
+     * @param style 样式
+     * @return CellStyle
+     */
+    private synchronized CellStyle createCellStyle(CellStyleSpec style) {
+        CellStyle cellStyle = cellStyleMap.get(style);
+        if (Objects.nonNull(cellStyle)) {
+            return cellStyle;
+        }
+        cellStyle = cellStylePool.getCellStyle(style);
+        cellStyleMap.put(style, cellStyle);
+        return cellStyle;
+    }
+
+    /**
+     * 结束工作表的写入，批量写入合并单元格并设置斑马纹
+     *
+     * @param sheet sheet
+     */
+    protected void finishSheet(Sheet sheet) {
+        MergedRegionRegistry mergedRegionRegistry = mergedRegionMap.remove(sheet);
+        if (Objects.nonNull(mergedRegionRegistry)) {
+            mergedRegionRegistry.addTo(sheet);
+        }
+        this.setRowBanding(sheet);
+    }
+
+    private MergedRegionRegistry getMergedRegionRegistry(Sheet sheet) {
+        return mergedRegionMap.computeIfAbsent(sheet, key -> new MergedRegionRegistry());
+    }
+
+    /**
+     * 为工作表已写入的数据区域设置斑马纹条件格式，条件格式同样为工作簿共享，设置时需同步
+     *
+     * @param sheet sheet
+     */
+    private synchronized void setRowBanding(Sheet sheet) {
+        RowBanding rowBanding = rowBandingMap.remove(sheet);
+        if (Objects.nonNull(rowBanding)) {
+            rowBanding.apply(sheet, customColor);
         }
     }
 
+    private Map<Integer, Short> getMaxTdHeightMap(Sheet sheet) {
+        return maxTdHeightMap.computeIfAbsent(sheet, key -> new HashMap<>());
+    }
+
     /**
      * 空工作簿
      *
@@ -249,23 +435,65 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
         return workbook;
     }
 
+    /**
+     * 以当前工作簿的类型新建工作簿，并清除与原工作簿关联的样式缓存
+     *
+     * @return 新工作簿
+     */
+    protected Workbook renewWorkbook() {
+        if (workbook instanceof HSSFWorkbook) {
+            workbookType(WorkbookType.XLS);
+        } else if (workbook instanceof SXSSFWorkbook) {
+            workbookType(WorkbookType.SXLSX);
+        } else {
+            workbookType(WorkbookType.XLSX);
+        }
+        maxTdHeightMap.clear();
+        cellStyleMap.clear();
+        rowBandingMap.clear();
+        columnStyleMap.clear();
+        mergedRegionMap.clear();
+        this.initCellStyle(workbook);
+        return workbook;
+    }
+
     /**
      * 初始化默认单元格样式
      *
      * @param workbook workbook
      */
     protected void initCellStyle(Workbook workbook) {
+        if (workbook instanceof HSSFWorkbook) {
+            HSSFPalette palette = ((HSSFWorkbook) workbook).getCustomPalette();
+            customColor = new CustomColor(true, palette);
+        } else {
+            customColor = new CustomColor();
+        }
         if (useDefaultStyle) {
             defaultCellStyleMap = new EnumMap<>(HtmlTableParser.TableTag.class);
             defaultCellStyleMap.put(HtmlTableParser.TableTag.th, new ThDefaultCellStyle().supply(workbook));
             defaultCellStyleMap.put(HtmlTableParser.TableTag.td, new TdDefaultCellStyle().supply(workbook));
         } else {
-            if (workbook instanceof HSSFWorkbook) {
-                HSSFPalette palette = ((HSSFWorkbook) workbook).getCustomPalette();
-                customColor = new CustomColor(true, palette);
-            } else {
-                customColor = new CustomColor();
-            }
+            cellStylePool = new CellStylePool(workbook, customColor);
+        }
+    }
+
+    /**
+     * 获取单元格样式池统计
+     *
+     * @return 统计，使用默认样式时为null
+     */
+    public CellStylePool.Stats getCellStyleStats() {
+        return Objects.isNull(cellStylePool) || useDefaultStyle ? null : cellStylePool.getStats();
+    }
+
+    /**
+     * 输出单元格样式池统计
+     */
+    protected void logCellStyleStats() {
+        CellStylePool.Stats stats = this.getCellStyleStats();
+        if (Objects.nonNull(stats)) {
+            log.info("Cell style pool:{}", stats);
         }
     }
 
@@ -276,13 +504,27 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
      * @param sheet      sheet
      */
     protected void freezePane(int tableIndex, Sheet sheet) {
+        FreezePane freezePane = this.getFreezePane(tableIndex);
+        if (Objects.nonNull(freezePane)) {
+            sheet.createFreezePane(freezePane.getColSplit(), freezePane.getRowSplit());
+        }
+    }
+
+    /**
+     * 获取冻结区域
+     *
+     * @param tableIndex table index
+     * @return 冻结区域，未设置时为null
+     */
+    protected FreezePane getFreezePane(int tableIndex) {
         if (Objects.nonNull(freezePanes) && freezePanes.length > tableIndex) {
             FreezePane freezePane = freezePanes[tableIndex];
             if (Objects.isNull(freezePane)) {
                 throw new IllegalStateException("FreezePane is null");
             }
-            sheet.createFreezePane(freezePane.getColSplit(), freezePane.getRowSplit());
+            return freezePane;
         }
+        return null;
     }
 
     /**
@@ -297,27 +539,47 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
         }
         if (useDefaultStyle) {
             // 使用默认样式，需要重新修正加粗的标题自适应宽度
-            trList.parallelStream().forEach(tr -> {
-                tr.getTdList().stream().filter(Td::isTh).forEach(th -> {
-                    int tdWidth = TdUtil.getStringWidth(th.getContent(), 0.25);
-                    tr.getColWidthMap().put(th.getCol(), tdWidth);
-                });
-            });
+            trList.parallelStream().forEach(this::fixThWidth);
         }
         int mapMaxSize = trList.stream().mapToInt(tr -> tr.getColWidthMap().size()).max().orElse(16);
         Map<Integer, Integer> colMaxWidthMap = new HashMap<>(mapMaxSize);
-        trList.forEach(tr -> {
-            tr.getColWidthMap().forEach((k, v) -> {
-                Integer width = colMaxWidthMap.get(k);
-                if (Objects.isNull(width) || v > width) {
-                    colMaxWidthMap.put(k, v);
-                }
-            });
-            tr.setColWidthMap(null);
-        });
+        trList.forEach(tr -> this.mergeColWidth(tr, colMaxWidthMap));
         return colMaxWidthMap;
     }
 
+    /**
+     * 将单行的列宽合并至每列最大宽度，用于逐行构建
+     *
+     * @param tr             tr
+     * @param colMaxWidthMap 列最大宽度Map
+     */
+    protected void mergeColMaxWidth(Tr tr, Map<Integer, Integer> colMaxWidthMap) {
+        if (AutoWidthStrategy.isNoAuto(autoWidthStrategy) || AutoWidthStrategy.isAutoWidth(autoWidthStrategy)) {
+            return;
+        }
+        if (useDefaultStyle) {
+            this.fixThWidth(tr);
+        }
+        this.mergeColWidth(tr, colMaxWidthMap);
+    }
+
+    private void fixThWidth(Tr tr) {
+        tr.getTdList().stream().filter(Td::isTh).forEach(th -> {
+            int tdWidth = TdUtil.getStringWidth(th.getContent(), 0.25);
+            tr.getColWidthMap().put(th.getCol(), tdWidth);
+        });
+    }
+
+    private void mergeColWidth(Tr tr, Map<Integer, Integer> colMaxWidthMap) {
+        tr.getColWidthMap().forEach((k, v) -> {
+            Integer width = colMaxWidthMap.get(k);
+            if (Objects.isNull(width) || v > width) {
+                colMaxWidthMap.put(k, v);
+            }
+        });
+        tr.setColWidthMap(null);
+    }
+
     /**
      * 设置每列宽度
      *
@@ -337,12 +599,17 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
             }
             return;
         }
-        colMaxWidthMap.forEach((key, value) -> {
-            int contentLength = value << 1;
-            if (contentLength > 255) {
-                contentLength = 255;
-            }
-            sheet.setColumnWidth(key, contentLength << 8);
-        });
+        colMaxWidthMap.forEach((key, value) -> sheet.setColumnWidth(key, this.getColumnWidth(value) << 8));
+    }
+
+    /**
+     * 根据列最大内容宽度计算列宽，单位为字符数
+     *
+     * @param contentWidth 列最大内容宽度
+     * @return 列宽
+     */
+    protected int getColumnWidth(int contentWidth) {
+        int contentLength = contentWidth << 1;
+        return contentLength > 255 ? 255 : contentLength;
     }
 }
@@ -27,13 +27,18 @@ import com.github.liaochong.myexcel.core.reflect.ClassFieldContainer;
 import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
 import com.github.liaochong.myexcel.core.style.BackgroundStyle;
 import com.github.liaochong.myexcel.core.style.BorderStyle;
+import com.github.liaochong.myexcel.core.style.CellStyleSpec;
 import com.github.liaochong.myexcel.core.style.FontStyle;
 import com.github.liaochong.myexcel.core.style.TextAlignStyle;
 import com.github.liaochong.myexcel.utils.StringUtil;
 import com.github.liaochong.myexcel.utils.TdUtil;
+import com.github.liaochong.myexcel.utils.WorkbookUtil;
 import lombok.NonNull;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -51,14 +56,19 @@ import java.util.stream.IntStream;
  */
 public abstract class AbstractSimpleExcelBuilder implements SimpleExcelBuilder {
 
+    /**
+     * 偶数行背景色
+     */
+    private static final String EVEN_TD_BACKGROUND_COLOR = "#f6f8fa";
+
     /**
      * 一般单元格样式
      */
-    private Map<String, String> commonTdStyle;
+    private CellStyleSpec commonTdStyle;
     /**
      * 偶数行单元格样式
      */
-    private Map<String, String> evenTdStyle;
+    private CellStyleSpec evenTdStyle;
     /**
      * 标题
      */
@@ -91,10 +101,30 @@ public abstract class AbstractSimpleExcelBuilder implements SimpleExcelBuilder {
      * 无样式
      */
     protected boolean noStyle;
+    /**
+     * 斑马纹
+     */
+    protected boolean rowBanding;
+    /**
+     * 列默认样式
+     */
+    protected boolean columnStyle;
     /**
      * 自动宽度策略
      */
     protected AutoWidthStrategy autoWidthStrategy = AutoWidthStrategy.COMPUTE_AUTO_WIDTH;
+    /**
+     * 写出时的压缩策略
+     */
+    protected DeflatePolicy deflatePolicy;
+    /**
+     * 写出时的压缩级别
+     */
+    protected Integer compressionLevel;
+    /**
+     * 是否压缩SXSSF临时文件
+     */
+    protected boolean compressTempFiles;
     /**
      * 全局默认值
      */
@@ -143,12 +173,70 @@ public abstract class AbstractSimpleExcelBuilder implements SimpleExcelBuilder {
         return this;
     }
 
+    @Override
+    public AbstractSimpleExcelBuilder rowBanding() {
+        this.rowBanding = true;
+        return this;
+    }
+
+    @Override
+    public AbstractSimpleExcelBuilder columnStyle() {
+        this.columnStyle = true;
+        return this;
+    }
+
     @Override
     public AbstractSimpleExcelBuilder autoWidthStrategy(@NonNull AutoWidthStrategy autoWidthStrategy) {
         this.autoWidthStrategy = autoWidthStrategy;
         return this;
     }
 
+    @Override
+    public AbstractSimpleExcelBuilder deflatePolicy(DeflatePolicy deflatePolicy) {
+        this.deflatePolicy = deflatePolicy;
+        return this;
+    }
+
+    @Override
+    public AbstractSimpleExcelBuilder compressionLevel(int level) {
+        this.compressionLevel = DeflatePolicy.checkLevel(level);
+        return this;
+    }
+
+    @Override
+    public AbstractSimpleExcelBuilder compressTempFiles() {
+        this.compressTempFiles = true;
+        return this;
+    }
+
+    @Override
+    public void write(List<?> data, @NonNull OutputStream outputStream, Class<?>... groups) throws IOException {
+        WorkbookUtil.write(this.build(data, groups), outputStream, this.getDeflatePolicy());
+    }
+
+    @Override
+    public void write(List<?> data, @NonNull Path path, Class<?>... groups) throws IOException {
+        WorkbookUtil.write(this.build(data, groups), path, this.getDeflatePolicy());
+    }
+
+    /**
+     * 获取斑马纹背景色
+     *
+     * @return 背景色，未设置斑马纹或无样式时为null
+     */
+    protected String getRowBandingColor() {
+        return rowBanding && !noStyle ? EVEN_TD_BACKGROUND_COLOR : null;
+    }
+
+    /**
+     * 获取合并压缩级别后的压缩策略
+     *
+     * @return 压缩策略
+     */
+    protected DeflatePolicy getDeflatePolicy() {
+        return DeflatePolicy.of(deflatePolicy, compressionLevel);
+    }
+
     /**
      * 获取只有head的table
      *
@@ -187,21 +275,23 @@ public abstract class AbstractSimpleExcelBuilder implements SimpleExcelBuilder {
         if (!hasTitles) {
             return null;
         }
-        Map<String, String> thStyle;
+        CellStyleSpec thStyle;
         if (noStyle) {
-            thStyle = Collections.emptyMap();
+            thStyle = CellStyleSpec.EMPTY;
         } else {
-            thStyle = new HashMap<>(7);
-            thStyle.put(FontStyle.FONT_WEIGHT, FontStyle.BOLD);
-            thStyle.put(FontStyle.FONT_SIZE, "14");
-            thStyle.put(TextAlignStyle.TEXT_ALIGN, TextAlignStyle.CENTER);
-            thStyle.put(TextAlignStyle.VERTICAL_ALIGN, TextAlignStyle.MIDDLE);
-            thStyle.put(BorderStyle.BORDER_BOTTOM_STYLE, BorderStyle.THIN);
-            thStyle.put(BorderStyle.BORDER_LEFT_STYLE, BorderStyle.THIN);
-            thStyle.put(BorderStyle.BORDER_RIGHT_STYLE, BorderStyle.THIN);
+            Map<String, String> style = new HashMap<>(7);
+            style.put(FontStyle.FONT_WEIGHT, FontStyle.BOLD);
+            style.put(FontStyle.FONT_SIZE, "14");
+            style.put(TextAlignStyle.TEXT_ALIGN, TextAlignStyle.CENTER);
+            style.put(TextAlignStyle.VERTICAL_ALIGN, TextAlignStyle.MIDDLE);
+            style.put(BorderStyle.BORDER_BOTTOM_STYLE, BorderStyle.THIN);
+            style.put(BorderStyle.BORDER_LEFT_STYLE, BorderStyle.THIN);
+            style.put(BorderStyle.BORDER_RIGHT_STYLE, BorderStyle.THIN);
+            thStyle = CellStyleSpec.of(style);
         }
 
         Tr tr = new Tr(0);
+        tr.setHeader(true);
         boolean isComputeAutoWidth = AutoWidthStrategy.isComputeAutoWidth(autoWidthStrategy);
         tr.setColWidthMap(isComputeAutoWidth ? new HashMap<>(titles.size()) : Collections.emptyMap());
 
@@ -237,7 +327,7 @@ public abstract class AbstractSimpleExcelBuilder implements SimpleExcelBuilder {
             Tr tr = new Tr(trIndex);
             List<Object> dataList = contents.get(index);
             tr.setColWidthMap(isComputeAutoWidth ? new HashMap<>(dataList.size()) : Collections.emptyMap());
-            Map<String, String> tdStyle = (index & 1) == 0 ? commonTdStyle : evenTdStyle;
+            CellStyleSpec tdStyle = (index & 1) == 0 ? commonTdStyle : evenTdStyle;
             List<Td> tdList = IntStream.range(0, dataList.size()).mapToObj(i -> {
                 Td td = new Td();
                 td.setRow(trIndex);
@@ -262,17 +352,16 @@ public abstract class AbstractSimpleExcelBuilder implements SimpleExcelBuilder {
      */
     protected void initStyleMap() {
         if (noStyle) {
-            commonTdStyle = evenTdStyle = Collections.emptyMap();
+            commonTdStyle = evenTdStyle = CellStyleSpec.EMPTY;
         } else {
-            commonTdStyle = new HashMap<>(3);
-            commonTdStyle.put(BorderStyle.BORDER_BOTTOM_STYLE, BorderStyle.THIN);
-            commonTdStyle.put(BorderStyle.BORDER_LEFT_STYLE, BorderStyle.THIN);
-            commonTdStyle.put(BorderStyle.BORDER_RIGHT_STYLE, BorderStyle.THIN);
-            commonTdStyle.put(TextAlignStyle.VERTICAL_ALIGN, TextAlignStyle.MIDDLE);
-
-            evenTdStyle = new HashMap<>(4);
-            evenTdStyle.put(BackgroundStyle.BACKGROUND_COLOR, "#f6f8fa");
-            evenTdStyle.putAll(commonTdStyle);
+            Map<String, String> style = new HashMap<>(4);
+            style.put(BorderStyle.BORDER_BOTTOM_STYLE, BorderStyle.THIN);
+            style.put(BorderStyle.BORDER_LEFT_STYLE, BorderStyle.THIN);
+            style.put(BorderStyle.BORDER_RIGHT_STYLE, BorderStyle.THIN);
+            style.put(TextAlignStyle.VERTICAL_ALIGN, TextAlignStyle.MIDDLE);
+            commonTdStyle = CellStyleSpec.of(style);
+
+            evenTdStyle = rowBanding ? commonTdStyle : commonTdStyle.mix(CellStyleSpec.of(Collections.singletonMap(BackgroundStyle.BACKGROUND_COLOR, EVEN_TD_BACKGROUND_COLOR)));
         }
     }
 
@@ -410,6 +499,12 @@ public abstract class AbstractSimpleExcelBuilder implements SimpleExcelBuilder {
                 this.rowAccessWindowSize = rowAccessWindowSize;
             }
         }
+        if (Objects.isNull(this.compressionLevel) && excelTable.compressionLevel() >= 0) {
+            this.compressionLevel = DeflatePolicy.checkLevel(excelTable.compressionLevel());
+        }
+        if (!this.compressTempFiles) {
+            this.compressTempFiles = excelTable.compressTempFiles();
+        }
         if (StringUtil.isBlank(this.sheetName)) {
             String sheetName = excelTable.sheetName();
             if (StringUtil.isNotBlank(sheetName)) {
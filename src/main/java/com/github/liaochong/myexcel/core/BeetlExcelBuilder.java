@@ -15,21 +15,23 @@
  */
 package com.github.liaochong.myexcel.core;
 
-import com.github.liaochong.myexcel.core.io.TempFileOperator;
+import com.github.liaochong.myexcel.core.cache.Cache;
+import com.github.liaochong.myexcel.core.cache.LruCache;
+import com.github.liaochong.myexcel.core.cache.WeakCache;
 import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
 import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import com.github.liaochong.myexcel.utils.ReflectUtil;
 import org.apache.commons.codec.CharEncoding;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.beetl.core.Configuration;
 import org.beetl.core.GroupTemplate;
+import org.beetl.core.Resource;
 import org.beetl.core.Template;
+import org.beetl.core.resource.ClasspathResource;
 import org.beetl.core.resource.ClasspathResourceLoader;
 
 import java.io.IOException;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.Objects;
 
@@ -41,7 +43,15 @@ import java.util.Objects;
  */
 public class BeetlExcelBuilder extends AbstractExcelBuilder {
 
-    private Template template;
+    /**
+     * 模板路径，beetl模板实例持有绑定数据，每次构建由共享的GroupTemplate获取新的实例，编译结果由GroupTemplate缓存
+     */
+    private String templatePath;
+
+    /**
+     * 设置模板时所在类加载器的beetl引擎
+     */
+    private BeetlEngine engine;
 
     public BeetlExcelBuilder() {
         autoWidthStrategy(AutoWidthStrategy.AUTO_WIDTH);
@@ -49,31 +59,113 @@ public class BeetlExcelBuilder extends AbstractExcelBuilder {
 
     @Override
     public ExcelBuilder template(String path) {
-        try {
-            String[] filePath = this.splitFilePath(path);
-            ClasspathResourceLoader resourceLoader = new ClasspathResourceLoader(filePath[0]);
-            Configuration cfg = Configuration.defaultConfiguration();
-            cfg.setCharset(CharEncoding.UTF_8);
-            GroupTemplate gt = new GroupTemplate(resourceLoader, cfg);
-            template = gt.getTemplate(filePath[1]);
-            return this;
-        } catch (IOException e) {
-            throw ExcelBuildException.of("Failed to get beetl template", e);
-        }
+        Objects.requireNonNull(path);
+        String key = path.startsWith("/") ? path : "/" + path;
+        BeetlEngine beetlEngine = getEngine();
+        // 预先编译，并记录最近使用
+        beetlEngine.getTemplate(key);
+        templatePath = key;
+        engine = beetlEngine;
+        return this;
     }
 
     @Override
     public <T> Workbook build(Map<String, T> renderData) {
-        Objects.requireNonNull(template, "The template cannot be empty. Please set the template first.");
-        Path htmlFile = tempFileOperator.createTempFile("beetl_temp_", TempFileOperator.HTML_SUFFIX);
-        try (Writer out = Files.newBufferedWriter(htmlFile, StandardCharsets.UTF_8)) {
+        Objects.requireNonNull(templatePath, "The template cannot be empty. Please set the template first.");
+        return this.build("beetl_temp_", out -> {
+            Template template = engine.getTemplate(templatePath);
             template.binding(renderData);
             template.renderTo(out);
-            return HtmlToExcelFactory.readHtml(htmlFile.toFile(), htmlToExcelFactory).build();
-        } catch (Exception e) {
-            throw ExcelBuildException.of("Failed to build excel", e);
-        } finally {
-            tempFileOperator.deleteTempFile();
+        });
+    }
+
+    /**
+     * 获取当前类加载器共享的beetl引擎，首次使用时创建
+     *
+     * @return BeetlEngine
+     */
+    private static BeetlEngine getEngine() {
+        ClassLoader classLoader = ReflectUtil.getClassLoader();
+        BeetlEngine beetlEngine = BeetlEngine.ENGINES.get(classLoader);
+        if (Objects.nonNull(beetlEngine)) {
+            return beetlEngine;
+        }
+        synchronized (BeetlEngine.class) {
+            beetlEngine = BeetlEngine.ENGINES.get(classLoader);
+            if (Objects.isNull(beetlEngine)) {
+                try {
+                    beetlEngine = new BeetlEngine(classLoader);
+                } catch (IOException e) {
+                    throw ExcelBuildException.of("Failed to create beetl group template", e);
+                }
+                BeetlEngine.ENGINES.cache(classLoader, beetlEngine);
+            }
+            return beetlEngine;
+        }
+    }
+
+    /**
+     * 各类加载器的GroupTemplate及其最近使用的模板路径，引擎仅弱引用类加载器，不阻止其卸载
+     */
+    private static final class BeetlEngine {
+
+        private static final Cache<ClassLoader, BeetlEngine> ENGINES = new WeakCache<>();
+
+        private final GroupTemplate groupTemplate;
+
+        /**
+         * GroupTemplate的编译缓存无上限，以最近使用的模板路径限制其大小
+         */
+        private final LruCache<String, Boolean> templateKeys;
+
+        private BeetlEngine(ClassLoader classLoader) throws IOException {
+            ClasspathResourceLoader resourceLoader = new WeakClasspathResourceLoader(classLoader);
+            resourceLoader.setAutoCheck(TemplateCacheConfig.isCheckModified());
+            Configuration cfg = Configuration.defaultConfiguration();
+            cfg.setCharset(CharEncoding.UTF_8);
+            // 模板中引用的类由本库的类加载器解析，避免GroupTemplate强引用所在类加载器
+            groupTemplate = new GroupTemplate(resourceLoader, cfg, BeetlExcelBuilder.class.getClassLoader());
+            templateKeys = new LruCache<>(TemplateCacheConfig::getMaxSize,
+                    (key, value) -> groupTemplate.getProgramCache().remove(key));
+        }
+
+        private Template getTemplate(String key) {
+            templateKeys.cache(key, Boolean.TRUE);
+            return groupTemplate.getTemplate(key);
+        }
+    }
+
+    /**
+     * 由类加载器的classpath根路径加载模板，仅弱引用类加载器，资源路径不以"/"开头，否则类加载器无法找到
+     */
+    private static final class WeakClasspathResourceLoader extends ClasspathResourceLoader {
+
+        private final WeakReference<ClassLoader> classLoader;
+
+        private WeakClasspathResourceLoader(ClassLoader classLoader) {
+            super((ClassLoader) null, "/");
+            this.classLoader = new WeakReference<>(classLoader);
+        }
+
+        @Override
+        public ClassLoader getClassLoader() {
+            return classLoader.get();
+        }
+
+        @Override
+        public Resource getResource(String key) {
+            return new ClasspathResource(key, getPath(key), this);
+        }
+
+        @Override
+        public boolean exist(String key) {
+            ClassLoader loader = classLoader.get();
+            return Objects.nonNull(loader) && Objects.nonNull(loader.getResource(getPath(key)));
+        }
+
+        private String getPath(String key) {
+            String path = getChildPath(getRoot(), key);
+            return path.startsWith("/") ? path.substring(1) : path;
         }
     }
 }
@@ -19,11 +19,16 @@ import com.github.liaochong.myexcel.core.parser.Table;
 import com.github.liaochong.myexcel.core.parser.Tr;
 import com.github.liaochong.myexcel.core.reflect.ClassFieldContainer;
 import com.github.liaochong.myexcel.utils.ReflectUtil;
+import com.github.liaochong.myexcel.utils.WorkbookUtil;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Field;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -39,8 +44,47 @@ import java.util.Optional;
 @Slf4j
 public class DefaultExcelBuilder extends AbstractSimpleExcelBuilder {
 
+    /**
+     * XSSF中每个单元格的堆内存开销字节数，不含内容
+     */
+    static final int XSSF_CELL_BYTES = 1300;
+    /**
+     * XSSF中每个字符的堆内存开销字节数，单元格及共享字符串表各持有一份
+     */
+    private static final int XSSF_CHAR_BYTES = 4;
+    /**
+     * 构建时每个单元格在td等中间结构中的堆内存开销字节数，不含内容，与工作簿类型无关
+     */
+    private static final int TD_BYTES = 160;
+    /**
+     * 估算内容长度时的抽样行数
+     */
+    private static final int SAMPLE_SIZE = 100;
+
     private Workbook workbook;
 
+    private HtmlToExcelFactory htmlToExcelFactory;
+
+    /**
+     * 自动选择工作簿类型时的堆内存预算，默认为最大堆内存的四分之一
+     */
+    private long heapBudget = Runtime.getRuntime().maxMemory() / 4;
+
+    /**
+     * 本次构建实际使用的工作簿类型
+     */
+    private WorkbookType effectiveWorkbookType;
+
+    /**
+     * 导出准入控制
+     */
+    private ExportGovernor governor;
+
+    /**
+     * 本次构建的准入凭证
+     */
+    private ExportGovernor.Admission admission;
+
     private DefaultExcelBuilder() {
     }
 
@@ -73,9 +117,44 @@ public class DefaultExcelBuilder extends AbstractSimpleExcelBuilder {
         return defaultExcelBuilder;
     }
 
+    /**
+     * 设置WorkbookType.AUTO时的堆内存预算，估算的XSSF堆内存不超过预算时使用XLSX，否则使用SXLSX
+     *
+     * @param heapBudget 堆内存预算字节数
+     * @return DefaultExcelBuilder
+     */
+    public DefaultExcelBuilder heapBudget(long heapBudget) {
+        if (heapBudget <= 0) {
+            throw new IllegalArgumentException("Heap budget must be greater than 0");
+        }
+        this.heapBudget = heapBudget;
+        return this;
+    }
+
+    /**
+     * 渲染数据前按估算的堆内存向准入控制申请准入，build构建完成时归还，write写出完成时归还，
+     * 准入控制开启降级时，估算的XSSF堆内存无法准入则使用SXLSX
+     *
+     * @param governor 导出准入控制，可由多个构建者共用
+     * @return DefaultExcelBuilder
+     */
+    public DefaultExcelBuilder governor(@NonNull ExportGovernor governor) {
+        this.governor = governor;
+        return this;
+    }
+
     @Override
     public Workbook build(List<?> data, Class<?>... groups) {
-        HtmlToExcelFactory htmlToExcelFactory = new HtmlToExcelFactory();
+        try {
+            return this.doBuild(data, groups);
+        } finally {
+            this.releaseAdmission();
+        }
+    }
+
+    private Workbook doBuild(List<?> data, Class<?>... groups) {
+        htmlToExcelFactory = new HtmlToExcelFactory();
+        effectiveWorkbookType = workbookType == WorkbookType.AUTO ? WorkbookType.XLSX : workbookType;
         List<Table> tableList = new ArrayList<>();
         if (Objects.isNull(dataType)) {
             if (Objects.isNull(data) || data.isEmpty()) {
@@ -94,6 +173,7 @@ public class DefaultExcelBuilder extends AbstractSimpleExcelBuilder {
                 log.info("The specified field mapping does not exist");
                 return htmlToExcelFactory.build(this.getTableWithHeader());
             }
+            this.resolveWorkbookType(data, sortedFields);
             List<List<Object>> contents = getRenderContent(data, sortedFields);
 
             this.initStyleMap();
@@ -129,11 +209,127 @@ public class DefaultExcelBuilder extends AbstractSimpleExcelBuilder {
 
             this.initStyleMap();
 
+            this.resolveWorkbookType(data, sortedFields);
             List<List<Object>> contents = getRenderContent(data, sortedFields);
             List<Tr> tbody = this.createTbody(contents, Objects.isNull(thead) ? 0 : 1);
             table.getTrList().addAll(tbody);
         }
-        htmlToExcelFactory.rowAccessWindowSize(rowAccessWindowSize).workbookType(workbookType).autoWidthStrategy(autoWidthStrategy);
+        htmlToExcelFactory.rowAccessWindowSize(rowAccessWindowSize).compressTempFiles(compressTempFiles).workbookType(effectiveWorkbookType).autoWidthStrategy(autoWidthStrategy);
+        String rowBandingColor = this.getRowBandingColor();
+        if (Objects.nonNull(rowBandingColor)) {
+            htmlToExcelFactory.rowBanding(rowBandingColor);
+        }
+        if (columnStyle) {
+            htmlToExcelFactory.columnStyle();
+        }
         return htmlToExcelFactory.build(tableList, workbook);
     }
+
+    /**
+     * 获取最近一次构建实际使用的工作簿类型
+     *
+     * @return 工作簿类型，尚未构建时为null
+     */
+    public WorkbookType getEffectiveWorkbookType() {
+        return effectiveWorkbookType;
+    }
+
+    @Override
+    public void write(List<?> data, @NonNull OutputStream outputStream, Class<?>... groups) throws IOException {
+        try {
+            WorkbookUtil.write(this.doBuild(data, groups), outputStream, this.getDeflatePolicy());
+        } finally {
+            this.releaseAdmission();
+        }
+    }
+
+    @Override
+    public void write(List<?> data, @NonNull Path path, Class<?>... groups) throws IOException {
+        try {
+            WorkbookUtil.write(this.doBuild(data, groups), path, this.getDeflatePolicy());
+        } finally {
+            this.releaseAdmission();
+        }
+    }
+
+    /**
+     * 按行数、列数及抽样的内容长度估算XSSF的堆内存，WorkbookType.AUTO时超出预算则使用SXLSX，
+     * 设置了准入控制时按估算值申请准入，仅渲染抽样的数据，全部数据在准入后渲染
+     *
+     * @param data         数据
+     * @param sortedFields 字段
+     */
+    private void resolveWorkbookType(List<?> data, List<Field> sortedFields) {
+        if ((workbookType != WorkbookType.AUTO && Objects.isNull(governor)) || data.isEmpty()) {
+            return;
+        }
+        long rowCount = data.size();
+        int colCount = sortedFields.size();
+        int step = Math.max(1, data.size() / SAMPLE_SIZE);
+        List<Object> samples = new ArrayList<>();
+        for (int i = 0; i < data.size(); i += step) {
+            Object sample = data.get(i);
+            if (Objects.nonNull(sample)) {
+                samples.add(sample);
+            }
+        }
+        long sampleChars = 0;
+        for (List<Object> values : getRenderContent(samples, sortedFields)) {
+            for (Object value : values) {
+                if (Objects.nonNull(value)) {
+                    sampleChars += String.valueOf(value).length();
+                }
+            }
+        }
+        long rowChars = samples.isEmpty() ? 0 : sampleChars / samples.size();
+        long xssfBytes = rowCount * (colCount * XSSF_CELL_BYTES + rowChars * XSSF_CHAR_BYTES);
+        // 数据在构建前已全部渲染为单元格，SXLSX亦无法避免
+        long tdBytes = rowCount * (colCount * TD_BYTES + (rowChars << 1));
+        long windowRows = Math.min(rowCount, rowAccessWindowSize > 0 ? rowAccessWindowSize : SXSSFWorkbook.DEFAULT_WINDOW_SIZE);
+        long streamingBytes = tdBytes + windowRows * (colCount * XSSF_CELL_BYTES + rowChars * XSSF_CHAR_BYTES);
+        if (workbookType == WorkbookType.AUTO) {
+            effectiveWorkbookType = xssfBytes <= heapBudget ? WorkbookType.XLSX : WorkbookType.SXLSX;
+            log.info("Auto workbook type:{},rows:{},columns:{},estimated XSSF heap:{} bytes,heap budget:{} bytes",
+                    effectiveWorkbookType, rowCount, colCount, xssfBytes, heapBudget);
+            if (tdBytes > heapBudget) {
+                log.warn("Estimated heap of {} rows exceeds the heap budget even with SXLSX,DefaultStreamExcelBuilder is recommended", rowCount);
+            }
+        }
+        if (Objects.isNull(governor)) {
+            return;
+        }
+        if (effectiveWorkbookType == WorkbookType.SXLSX) {
+            admission = governor.admit(streamingBytes, 0);
+            return;
+        }
+        // 传入的工作簿无法改为流式构建
+        boolean streamable = effectiveWorkbookType == WorkbookType.XLSX && Objects.isNull(workbook);
+        admission = governor.admit(tdBytes + xssfBytes, streamable ? streamingBytes : 0);
+        if (admission.isStreaming()) {
+            effectiveWorkbookType = WorkbookType.SXLSX;
+        }
+    }
+
+    private void releaseAdmission() {
+        if (Objects.nonNull(admission)) {
+            admission.close();
+            admission = null;
+        }
+    }
+
+    /**
+     * 关闭构建的工作簿并清除临时文件，可配合try-with-resources使用
+     *
+     * @throws IOException IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (Objects.nonNull(htmlToExcelFactory)) {
+                htmlToExcelFactory.close();
+            }
+        } finally {
+            this.releaseAdmission();
+        }
+    }
 }
@@ -15,28 +15,46 @@
  */
 package com.github.liaochong.myexcel.core;
 
+import com.github.liaochong.myexcel.core.parallel.ExportScheduler;
+import com.github.liaochong.myexcel.core.parser.HtmlTableParser;
 import com.github.liaochong.myexcel.core.parser.Table;
 import com.github.liaochong.myexcel.core.parser.Tr;
 import com.github.liaochong.myexcel.core.reflect.ClassFieldContainer;
 import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
 import com.github.liaochong.myexcel.utils.ReflectUtil;
+import com.github.liaochong.myexcel.utils.WorkbookUtil;
 import lombok.NonNull;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
 
 /**
  * @author liaochong
  * @version 1.0
  */
 public class DefaultStreamExcelBuilder extends AbstractSimpleExcelBuilder implements SimpleStreamExcelBuilder {
+    /**
+     * 追加html时每批的行数
+     */
+    private static final int HTML_BATCH_SIZE = 1000;
     /**
      * 线程池
      */
     private ExecutorService executorService;
+    /**
+     * 调度器中执行并行阶段任务的线程池
+     */
+    private ExecutorService stageExecutorService;
     /**
      * 流工厂
      */
@@ -45,6 +63,34 @@ public class DefaultStreamExcelBuilder extends AbstractSimpleExcelBuilder implem
      * workbook
      */
     private Workbook workbook;
+    /**
+     * SXSSF内存数据的字节预算
+     */
+    private Long rowAccessBudget;
+    /**
+     * 工作簿拆分策略
+     */
+    private SplitPolicy splitPolicy;
+    /**
+     * 拆分后工作簿的zip输出流
+     */
+    private OutputStream zipOutputStream;
+    /**
+     * 拆分后工作簿的文件名称
+     */
+    private String splitFileName;
+    /**
+     * 流式写出的输出流
+     */
+    private OutputStream streamOutputStream;
+    /**
+     * 导出准入控制
+     */
+    private ExportGovernor governor;
+    /**
+     * 本次导出的准入凭证
+     */
+    private ExportGovernor.Admission admission;
 
     private DefaultStreamExcelBuilder() {
         noStyle = true;
@@ -84,18 +130,73 @@ public class DefaultStreamExcelBuilder extends AbstractSimpleExcelBuilder implem
         return this;
     }
 
+    /**
+     * 按每个工作表内存数据的字节预算自适应SXSSF的内存数据保有量，宽行少保有、窄行多保有，代替固定的rowAccessWindowSize，需在start之前调用
+     *
+     * @param budgetBytes 字节预算
+     * @return DefaultStreamExcelBuilder
+     */
+    public DefaultStreamExcelBuilder rowAccessBudget(long budgetBytes) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Row access budget must be greater than 0");
+        }
+        this.rowAccessBudget = budgetBytes;
+        return this;
+    }
+
+    /**
+     * 获取内存数据保有量统计，包含当前及最小、最大有效保有行数
+     *
+     * @return 统计，未设置字节预算或未启动时为null
+     */
+    public RowAccessBudget.Stats getRowAccessStats() {
+        return Objects.isNull(htmlToExcelStreamFactory) ? null : htmlToExcelStreamFactory.getRowAccessStats();
+    }
+
     @Override
     public DefaultStreamExcelBuilder workbookType(@NonNull WorkbookType workbookType) {
         super.workbookType(workbookType);
         return this;
     }
 
+    @Override
+    public DefaultStreamExcelBuilder deflatePolicy(DeflatePolicy deflatePolicy) {
+        super.deflatePolicy(deflatePolicy);
+        return this;
+    }
+
+    @Override
+    public DefaultStreamExcelBuilder compressionLevel(int level) {
+        super.compressionLevel(level);
+        return this;
+    }
+
+    @Override
+    public DefaultStreamExcelBuilder compressTempFiles() {
+        super.compressTempFiles();
+        return this;
+    }
+
     @Override
     public DefaultStreamExcelBuilder threadPool(@NonNull ExecutorService executorService) {
         this.executorService = executorService;
         return this;
     }
 
+    /**
+     * 由共用的调度器按优先级及租户调度消费任务，并行压缩同样由调度器执行，代替threadPool，需在start之前调用
+     *
+     * @param scheduler 调度器
+     * @param tenant    租户
+     * @param priority  优先级
+     * @return DefaultStreamExcelBuilder
+     */
+    public DefaultStreamExcelBuilder scheduler(@NonNull ExportScheduler scheduler, @NonNull String tenant, @NonNull ExportScheduler.Priority priority) {
+        this.executorService = scheduler.exportExecutor(tenant, priority);
+        this.stageExecutorService = scheduler.executor(tenant, priority);
+        return this;
+    }
+
     @Override
     public DefaultStreamExcelBuilder sheetName(@NonNull String sheetName) {
         super.sheetName(sheetName);
@@ -108,12 +209,62 @@ public class DefaultStreamExcelBuilder extends AbstractSimpleExcelBuilder implem
         return this;
     }
 
+    @Override
+    public DefaultStreamExcelBuilder rowBanding() {
+        super.rowBanding();
+        return this;
+    }
+
+    @Override
+    public DefaultStreamExcelBuilder columnStyle() {
+        super.columnStyle();
+        return this;
+    }
+
     @Override
     public DefaultStreamExcelBuilder autoWidthStrategy(@NonNull AutoWidthStrategy autoWidthStrategy) {
         super.autoWidthStrategy(autoWidthStrategy);
         return this;
     }
 
+    /**
+     * 按照拆分策略将数据拆分为多个工作簿，并依次写入zip输出流，每次仅保有一个工作簿，需在start之前调用
+     *
+     * @param splitPolicy  拆分策略
+     * @param outputStream zip输出流，如文件输出流、HttpServletResponse输出流
+     * @param fileName     工作簿文件名称，不包含后缀，拆分后的工作簿依次以"_序号"结尾
+     * @return DefaultStreamExcelBuilder
+     */
+    public DefaultStreamExcelBuilder splitToZip(@NonNull SplitPolicy splitPolicy, @NonNull OutputStream outputStream, @NonNull String fileName) {
+        this.splitPolicy = splitPolicy;
+        this.zipOutputStream = outputStream;
+        this.splitFileName = fileName;
+        return this;
+    }
+
+    /**
+     * 将.xlsx边生成边写入输出流，首批字节在start时即写出，数据随追加随写出，需在start之前调用，
+     * 全部数据追加完成后调用finish结束写出
+     *
+     * @param outputStream 输出流，如AttachmentExportUtil.streamingOutputStream获取的HttpServletResponse输出流
+     * @return DefaultStreamExcelBuilder
+     */
+    public DefaultStreamExcelBuilder streamTo(@NonNull OutputStream outputStream) {
+        this.streamOutputStream = outputStream;
+        return this;
+    }
+
+    /**
+     * 启动前按内存数据保有量估算的堆内存向准入控制申请准入，构建、写出、结束或关闭构建者时归还，需在start之前调用
+     *
+     * @param governor 导出准入控制，可由多个构建者共用
+     * @return DefaultStreamExcelBuilder
+     */
+    public DefaultStreamExcelBuilder governor(@NonNull ExportGovernor governor) {
+        this.governor = governor;
+        return this;
+    }
+
     /**
      * 流式构建启动，包含一些初始化操作，等待队列容量采用CPU核心数目
      *
@@ -128,11 +279,47 @@ public class DefaultStreamExcelBuilder extends AbstractSimpleExcelBuilder implem
     @Override
     public DefaultStreamExcelBuilder start(int waitQueueSize, Class<?>... groups) {
         Objects.requireNonNull(dataType);
-        htmlToExcelStreamFactory = new HtmlToExcelStreamFactory(waitQueueSize, executorService);
-        htmlToExcelStreamFactory.rowAccessWindowSize(rowAccessWindowSize).workbookType(workbookType).autoWidthStrategy(autoWidthStrategy);
-
+        // 先读取@ExcelTable，其中的配置需作用于流工厂
         ClassFieldContainer classFieldContainer = ReflectUtil.getAllFieldsOfClass(dataType);
         filteredFields = getFilteredFields(classFieldContainer, groups);
+        if (Objects.nonNull(streamOutputStream) && (Objects.nonNull(workbook) || workbookType == WorkbookType.XLS)) {
+            throw new IllegalArgumentException("StreamTo only supports .xlsx");
+        }
+        if (Objects.nonNull(governor)) {
+            admission = governor.admit(this.estimateHeapBytes(), 0);
+        }
+        // 启动失败时释放准入，避免占用名额
+        try {
+            this.startFactory(waitQueueSize);
+        } catch (RuntimeException e) {
+            this.releaseAdmission();
+            throw e;
+        }
+        return this;
+    }
+
+    private void startFactory(int waitQueueSize) {
+        htmlToExcelStreamFactory = new HtmlToExcelStreamFactory(waitQueueSize, executorService);
+        htmlToExcelStreamFactory.rowAccessWindowSize(rowAccessWindowSize).autoWidthStrategy(autoWidthStrategy);
+        htmlToExcelStreamFactory.compressTempFiles(compressTempFiles).deflatePolicy(this.getDeflatePolicy());
+        String rowBandingColor = this.getRowBandingColor();
+        if (Objects.nonNull(rowBandingColor)) {
+            htmlToExcelStreamFactory.rowBanding(rowBandingColor);
+        }
+        if (columnStyle) {
+            htmlToExcelStreamFactory.columnStyle();
+        }
+        if (Objects.nonNull(streamOutputStream)) {
+            htmlToExcelStreamFactory.streamTo(streamOutputStream);
+        } else {
+            htmlToExcelStreamFactory.workbookType(workbookType == WorkbookType.AUTO ? WorkbookType.SXLSX : workbookType);
+        }
+        if (Objects.nonNull(rowAccessBudget)) {
+            htmlToExcelStreamFactory.rowAccessBudget(rowAccessBudget);
+        }
+        if (Objects.nonNull(splitPolicy)) {
+            htmlToExcelStreamFactory.splitToZip(splitPolicy, zipOutputStream, splitFileName);
+        }
 
         this.initStyleMap();
         Table table = this.createTable();
@@ -140,12 +327,11 @@ public class DefaultStreamExcelBuilder extends AbstractSimpleExcelBuilder implem
 
         Tr head = this.createThead();
         if (Objects.isNull(head)) {
-            return this;
+            return;
         }
         List<Tr> headList = new ArrayList<>();
         headList.add(head);
         htmlToExcelStreamFactory.append(headList);
-        return this;
     }
 
     @Override
@@ -158,9 +344,106 @@ public class DefaultStreamExcelBuilder extends AbstractSimpleExcelBuilder implem
         htmlToExcelStreamFactory.append(trList);
     }
 
+    /**
+     * 追加html中所有表格的行，边解析边追加，不构建文档树，各行样式、内容取自html
+     *
+     * @param html html，不关闭
+     */
+    public void appendHtml(@NonNull Reader html) {
+        try {
+            htmlToExcelStreamFactory.append(HtmlTableParser.of(html), HTML_BATCH_SIZE);
+        } catch (IOException e) {
+            throw ExcelBuildException.of("Failed to append html", e);
+        }
+    }
+
     @Override
     public Workbook build() {
-        return htmlToExcelStreamFactory.build();
+        try {
+            return htmlToExcelStreamFactory.build();
+        } finally {
+            this.releaseAdmission();
+        }
+    }
+
+    @Override
+    public void write(@NonNull OutputStream outputStream) throws IOException {
+        try {
+            WorkbookUtil.write(htmlToExcelStreamFactory.build(), outputStream, this.getDeflatePolicy());
+        } finally {
+            this.releaseAdmission();
+        }
+    }
+
+    @Override
+    public void write(@NonNull Path path) throws IOException {
+        try {
+            WorkbookUtil.write(htmlToExcelStreamFactory.build(), path, this.getDeflatePolicy());
+        } finally {
+            this.releaseAdmission();
+        }
+    }
+
+    /**
+     * 终止构建，关闭工作簿并清除临时文件，可配合try-with-resources使用
+     *
+     * @throws IOException IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (Objects.nonNull(htmlToExcelStreamFactory)) {
+                htmlToExcelStreamFactory.close();
+            }
+        } finally {
+            this.releaseAdmission();
+        }
+    }
+
+    /**
+     * 停止追加数据，将最后一个拆分的工作簿写入zip并结束zip写入，或结束流式写出，仅在splitToZip、streamTo后使用
+     */
+    public void finish() {
+        try {
+            htmlToExcelStreamFactory.finish();
+        } finally {
+            this.releaseAdmission();
+        }
+    }
+
+    /**
+     * 设置了调度器时，并行压缩改由调度器执行
+     *
+     * @return 压缩策略
+     */
+    @Override
+    protected DeflatePolicy getDeflatePolicy() {
+        DeflatePolicy policy = super.getDeflatePolicy();
+        if (Objects.isNull(stageExecutorService) || Objects.isNull(policy) || Objects.isNull(policy.getExecutorService())) {
+            return policy;
+        }
+        DeflatePolicy scheduledPolicy = DeflatePolicy.parallel(stageExecutorService);
+        return policy.getLevel() == Deflater.DEFAULT_COMPRESSION ? scheduledPolicy : scheduledPolicy.withLevel(policy.getLevel());
+    }
+
+    /**
+     * 估算导出占用的堆内存，即内存中保有的行，设置了字节预算时取预算
+     *
+     * @return 字节数
+     */
+    private long estimateHeapBytes() {
+        if (Objects.nonNull(rowAccessBudget)) {
+            return rowAccessBudget;
+        }
+        int windowSize = rowAccessWindowSize > 0 ? rowAccessWindowSize : SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+        return (long) windowSize * Math.max(1, filteredFields.size()) * DefaultExcelBuilder.XSSF_CELL_BYTES;
+    }
+
+    private void releaseAdmission() {
+        if (Objects.nonNull(admission)) {
+            admission.close();
+            admission = null;
+        }
     }
 
     @Override
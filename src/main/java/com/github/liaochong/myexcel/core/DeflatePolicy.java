@@ -0,0 +1,118 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.utils.ExecutorUtil;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+/**
+ * 工作簿写出时的压缩策略，包含压缩级别以及是否在线程池中并行压缩.xlsx各条目，.xls不受影响
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public final class DeflatePolicy {
+
+    /**
+     * 压缩使用的线程池，为null时在当前线程压缩
+     */
+    ExecutorService executorService;
+
+    /**
+     * 并行度
+     */
+    int parallelism;
+
+    /**
+     * 压缩级别，0-9，-1为默认级别
+     */
+    int level;
+
+    private DeflatePolicy(ExecutorService executorService, int level) {
+        this.executorService = executorService;
+        this.parallelism = Objects.isNull(executorService) ? 1 : ExecutorUtil.getParallelism(executorService);
+        this.level = level;
+    }
+
+    /**
+     * 使用公共线程池并行压缩
+     *
+     * @return DeflatePolicy
+     */
+    public static DeflatePolicy parallel() {
+        return new DeflatePolicy(ForkJoinPool.commonPool(), Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * 使用指定线程池并行压缩
+     *
+     * @param executorService 线程池
+     * @return DeflatePolicy
+     */
+    public static DeflatePolicy parallel(@NonNull ExecutorService executorService) {
+        return new DeflatePolicy(executorService, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * 在当前线程以指定级别压缩，XSSF工作簿需解压POI写出的各条目后重新压缩，写出耗时有所增加
+     *
+     * @param level 压缩级别，0-9，0为仅存储，1最快，9压缩率最高
+     * @return DeflatePolicy
+     */
+    public static DeflatePolicy of(int level) {
+        return new DeflatePolicy(null, checkLevel(level));
+    }
+
+    /**
+     * 以指定级别压缩，线程池保持不变
+     *
+     * @param level 压缩级别，0-9，0为仅存储，1最快，9压缩率最高
+     * @return 新的压缩策略
+     */
+    public DeflatePolicy withLevel(int level) {
+        return new DeflatePolicy(executorService, checkLevel(level));
+    }
+
+    /**
+     * 合并构建器分别设置的压缩策略与压缩级别
+     *
+     * @param deflatePolicy 压缩策略
+     * @param level         压缩级别，为null时不变
+     * @return 压缩策略，均未设置时为null
+     */
+    static DeflatePolicy of(DeflatePolicy deflatePolicy, Integer level) {
+        if (Objects.isNull(level)) {
+            return deflatePolicy;
+        }
+        return Objects.isNull(deflatePolicy) ? of(level) : deflatePolicy.withLevel(level);
+    }
+
+    static int checkLevel(int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9");
+        }
+        return level;
+    }
+}
@@ -18,7 +18,12 @@ package com.github.liaochong.myexcel.core;
 import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
 import org.apache.poi.ss.usermodel.Workbook;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * excel构建器
@@ -26,7 +31,7 @@ import java.util.Map;
  * @author liaochong
  * @version 1.0
  */
-public interface ExcelBuilder {
+public interface ExcelBuilder extends Closeable {
 
     /**
      * excel类型
@@ -67,6 +72,30 @@ public interface ExcelBuilder {
      */
     ExcelBuilder freezePanes(FreezePane... freezePanes);
 
+    /**
+     * 写出时的压缩策略，如大数据量.xlsx并行压缩
+     *
+     * @param deflatePolicy 压缩策略
+     * @return ExcelBuilder
+     */
+    ExcelBuilder deflatePolicy(DeflatePolicy deflatePolicy);
+
+    /**
+     * 写出时的压缩级别，可与压缩策略同时设置，.xls不受影响；
+     * XSSF工作簿需解压POI写出的各条目后重新压缩，写出耗时有所增加
+     *
+     * @param level 压缩级别，0-9，0为仅存储，1最快，9压缩率最高
+     * @return ExcelBuilder
+     */
+    ExcelBuilder compressionLevel(int level);
+
+    /**
+     * 压缩workbookType为SXSSFWorkbook时的临时文件，以CPU换取磁盘空间及IO
+     *
+     * @return ExcelBuilder
+     */
+    ExcelBuilder compressTempFiles();
+
     /**
      * 设置模板
      *
@@ -75,6 +104,36 @@ public interface ExcelBuilder {
      */
     ExcelBuilder template(String path);
 
+    /**
+     * 管道模式，模板边渲染边经由有界管道交由新线程解析并写入工作簿，不产生html临时文件，也不构建完整的文档
+     *
+     * @return ExcelBuilder
+     */
+    ExcelBuilder pipeline();
+
+    /**
+     * 管道模式，解析及写入工作簿在指定线程池中进行
+     *
+     * @param executorService 线程池
+     * @return ExcelBuilder
+     */
+    ExcelBuilder pipeline(ExecutorService executorService);
+
+    /**
+     * 多表格并行构建，各表格的工作表在公共线程池中并行写入，仅SXLSX生效
+     *
+     * @return ExcelBuilder
+     */
+    ExcelBuilder parallel();
+
+    /**
+     * 多表格并行构建，各表格的工作表在指定线程池中并行写入，仅SXLSX生效
+     *
+     * @param executorService 线程池
+     * @return ExcelBuilder
+     */
+    ExcelBuilder parallel(ExecutorService executorService);
+
     /**
      * 构建
      *
@@ -83,4 +142,24 @@ public interface ExcelBuilder {
      * @return Workbook
      */
     <T> Workbook build(Map<String, T> renderData);
+
+    /**
+     * 构建并写出至输出流，写出后立即关闭工作簿并清除临时文件，不关闭输出流
+     *
+     * @param renderData   渲染数据
+     * @param outputStream 输出流
+     * @param <T>          值类型
+     * @throws IOException IOException
+     */
+    <T> void write(Map<String, T> renderData, OutputStream outputStream) throws IOException;
+
+    /**
+     * 构建并写出至文件，写出后立即关闭工作簿并清除临时文件
+     *
+     * @param renderData 渲染数据
+     * @param path       文件路径
+     * @param <T>        值类型
+     * @throws IOException IOException
+     */
+    <T> void write(Map<String, T> renderData, Path path) throws IOException;
 }
@@ -18,11 +18,16 @@ package com.github.liaochong.myexcel.core;
 import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
 import org.apache.poi.ss.usermodel.Workbook;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
 /**
  * @author liaochong
  * @version 1.0
  */
-public interface ExcelFactory {
+public interface ExcelFactory extends Closeable {
 
     /**
      * 是否使用默认样式
@@ -47,6 +52,21 @@ public interface ExcelFactory {
      */
     ExcelFactory rowAccessWindowSize(int rowAccessWindowSize);
 
+    /**
+     * 斑马纹，以一条条件格式规则为数据区域隔行设置背景色，数据行无需区分奇偶样式
+     *
+     * @param color 背景色
+     * @return ExcelFactory
+     */
+    ExcelFactory rowBanding(String color);
+
+    /**
+     * 列默认样式，列中首个td的样式写入列默认样式，与之相同的空单元格不再逐个创建
+     *
+     * @return ExcelFactory
+     */
+    ExcelFactory columnStyle();
+
     /**
      * 设置workbook类型
      *
@@ -63,10 +83,50 @@ public interface ExcelFactory {
      */
     ExcelFactory autoWidthStrategy(AutoWidthStrategy autoWidthStrategy);
 
+    /**
+     * 写出时的压缩策略，如大数据量.xlsx并行压缩
+     *
+     * @param deflatePolicy 压缩策略
+     * @return ExcelFactory
+     */
+    ExcelFactory deflatePolicy(DeflatePolicy deflatePolicy);
+
+    /**
+     * 写出时的压缩级别，可与压缩策略同时设置
+     *
+     * @param level 压缩级别，0-9，0为仅存储，1最快，9压缩率最高
+     * @return ExcelFactory
+     */
+    ExcelFactory compressionLevel(int level);
+
+    /**
+     * 是否压缩workbookType为SXSSFWorkbook时的临时文件，需在workbookType之前设置
+     *
+     * @param compressTempFiles 是否压缩
+     * @return ExcelFactory
+     */
+    ExcelFactory compressTempFiles(boolean compressTempFiles);
+
     /**
      * 构建
      *
      * @return workbook
      */
     Workbook build();
+
+    /**
+     * 构建并写出至输出流，写出后立即关闭工作簿并清除临时文件，不关闭输出流
+     *
+     * @param outputStream 输出流
+     * @throws IOException IOException
+     */
+    void write(OutputStream outputStream) throws IOException;
+
+    /**
+     * 构建并写出至文件，写出后立即关闭工作簿并清除临时文件
+     *
+     * @param path 文件路径
+     * @throws IOException IOException
+     */
+    void write(Path path) throws IOException;
 }
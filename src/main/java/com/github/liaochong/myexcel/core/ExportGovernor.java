@@ -0,0 +1,287 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 导出准入控制，限制共用同一实例的导出的并发数及估算堆内存总量。
+ * <p>
+ * 导出开始前按估算的堆内存申请准入，并发数或堆内存预算不足时排队等待，等待超时或估算值超出预算时拒绝；
+ * 开启降级后，可流式构建的导出在预算不足时按流式构建的估算值准入。准入凭证须在导出结束时关闭
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@Slf4j
+public final class ExportGovernor {
+
+    private final int maxConcurrency;
+
+    private final long heapBudget;
+
+    /**
+     * 最长等待纳秒数，小于0时一直等待
+     */
+    private long maxWaitNanos = -1;
+
+    private boolean degradeToStreaming;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    private final Condition released = lock.newCondition();
+
+    private int runningCount;
+
+    private long reservedBytes;
+
+    private int queueLength;
+
+    private long admittedCount;
+
+    private long degradedCount;
+
+    private long rejectedCount;
+
+    private long totalWaitMillis;
+
+    private long maxWaitMillis;
+
+    private ExportGovernor(int maxConcurrency, long heapBudget) {
+        this.maxConcurrency = maxConcurrency;
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * 创建导出准入控制
+     *
+     * @param maxConcurrency 最大同时导出数
+     * @param heapBudget     导出可占用的估算堆内存总字节数
+     * @return ExportGovernor
+     */
+    public static ExportGovernor of(int maxConcurrency, long heapBudget) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("MaxConcurrency must be greater than 0");
+        }
+        if (heapBudget <= 0) {
+            throw new IllegalArgumentException("Heap budget must be greater than 0");
+        }
+        return new ExportGovernor(maxConcurrency, heapBudget);
+    }
+
+    /**
+     * 排队的最长等待时间，超时则拒绝，为0时不排队，默认一直等待
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return ExportGovernor
+     */
+    public ExportGovernor maxWait(long timeout, @NonNull TimeUnit unit) {
+        this.maxWaitNanos = Math.max(0, unit.toNanos(timeout));
+        return this;
+    }
+
+    /**
+     * 堆内存预算不足时，可流式构建的导出降级为流式构建准入
+     *
+     * @return ExportGovernor
+     */
+    public ExportGovernor degradeToStreaming() {
+        this.degradeToStreaming = true;
+        return this;
+    }
+
+    /**
+     * 申请准入，并发数或堆内存预算不足时排队等待
+     *
+     * @param estimatedBytes 估算的堆内存字节数
+     * @param streamingBytes 流式构建时估算的堆内存字节数，不大于0时表示不可流式构建
+     * @return 准入凭证，导出结束时关闭
+     */
+    public Admission admit(long estimatedBytes, long streamingBytes) {
+        boolean streamable = degradeToStreaming && streamingBytes > 0;
+        if (estimatedBytes > heapBudget && (!streamable || streamingBytes > heapBudget)) {
+            this.reject("Export rejected,estimated heap " + estimatedBytes + " bytes exceeds the budget of " + heapBudget + " bytes");
+        }
+        long startTime = System.nanoTime();
+        lock.lock();
+        try {
+            queueLength++;
+            try {
+                long remainingNanos = maxWaitNanos;
+                while (true) {
+                    if (this.isAvailable(estimatedBytes)) {
+                        return this.grant(estimatedBytes, false, startTime);
+                    }
+                    if (streamable && this.isAvailable(streamingBytes)) {
+                        return this.grant(streamingBytes, true, startTime);
+                    }
+                    if (maxWaitNanos < 0) {
+                        released.await();
+                    } else if (remainingNanos > 0) {
+                        remainingNanos = released.awaitNanos(remainingNanos);
+                    } else {
+                        this.reject("Export rejected,waited " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+                                + " ms,running exports:" + runningCount + ",reserved heap:" + reservedBytes + " bytes");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejectedCount++;
+                throw ExcelBuildException.of("Interrupted while waiting for export admission", e);
+            } finally {
+                queueLength--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取准入统计
+     *
+     * @return 统计
+     */
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(queueLength, runningCount, reservedBytes, admittedCount, degradedCount, rejectedCount,
+                    admittedCount == 0 ? 0 : totalWaitMillis / admittedCount, maxWaitMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isAvailable(long bytes) {
+        return runningCount < maxConcurrency && reservedBytes + bytes <= heapBudget;
+    }
+
+    private Admission grant(long bytes, boolean streaming, long startTime) {
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        runningCount++;
+        reservedBytes += bytes;
+        admittedCount++;
+        totalWaitMillis += waitMillis;
+        maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+        if (streaming) {
+            degradedCount++;
+            log.info("Export degraded to streaming,reserved heap:{} bytes,waited {} ms", bytes, waitMillis);
+        }
+        return new Admission(bytes, streaming);
+    }
+
+    private void reject(String message) {
+        lock.lock();
+        try {
+            rejectedCount++;
+        } finally {
+            lock.unlock();
+        }
+        log.warn(message);
+        throw new ExcelBuildException(message);
+    }
+
+    private void release(long bytes) {
+        lock.lock();
+        try {
+            runningCount--;
+            reservedBytes -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 准入凭证，关闭时归还占用的并发数及堆内存，重复关闭无影响
+     */
+    public final class Admission implements AutoCloseable {
+
+        @Getter
+        private final long reservedBytes;
+
+        /**
+         * 是否降级为流式构建
+         */
+        @Getter
+        private final boolean streaming;
+
+        private boolean closed;
+
+        private Admission(long reservedBytes, boolean streaming) {
+            this.reservedBytes = reservedBytes;
+            this.streaming = streaming;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            release(reservedBytes);
+        }
+    }
+
+    /**
+     * 准入统计
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static final class Stats {
+        /**
+         * 排队中的导出数
+         */
+        private final int queueLength;
+        /**
+         * 进行中的导出数
+         */
+        private final int runningCount;
+        /**
+         * 进行中的导出占用的估算堆内存字节数
+         */
+        private final long reservedBytes;
+        /**
+         * 累计准入数
+         */
+        private final long admittedCount;
+        /**
+         * 累计降级为流式构建的准入数
+         */
+        private final long degradedCount;
+        /**
+         * 累计拒绝数
+         */
+        private final long rejectedCount;
+        /**
+         * 平均等待毫秒数
+         */
+        private final long averageWaitMillis;
+        /**
+         * 最长等待毫秒数
+         */
+        private final long maxWaitMillis;
+    }
+}
@@ -15,9 +15,13 @@
  */
 package com.github.liaochong.myexcel.core;
 
-import com.github.liaochong.myexcel.core.io.TempFileOperator;
+import com.github.liaochong.myexcel.core.cache.Cache;
+import com.github.liaochong.myexcel.core.cache.WeakCache;
 import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
 import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import com.github.liaochong.myexcel.utils.ReflectUtil;
+import freemarker.cache.MruCacheStorage;
+import freemarker.cache.URLTemplateLoader;
 import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateExceptionHandler;
@@ -25,10 +29,8 @@ import org.apache.commons.codec.CharEncoding;
 import org.apache.poi.ss.usermodel.Workbook;
 
 import java.io.IOException;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.lang.ref.WeakReference;
+import java.net.URL;
 import java.util.Map;
 import java.util.Objects;
 
@@ -40,6 +42,9 @@ import java.util.Objects;
  */
 public class FreemarkerExcelBuilder extends AbstractExcelBuilder {
 
+    /**
+     * 模板解析后不可变，可在多线程间共享
+     */
     private Template template;
 
     public FreemarkerExcelBuilder() {
@@ -53,14 +58,10 @@ public class FreemarkerExcelBuilder extends AbstractExcelBuilder {
      */
     @Override
     public ExcelBuilder template(String path) {
+        Objects.requireNonNull(path);
         try {
-            Configuration cfg = new Configuration(Configuration.VERSION_2_3_23);
-            cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
-            cfg.setDefaultEncoding(CharEncoding.UTF_8);
-
-            String[] filePath = this.splitFilePath(path);
-            cfg.setClassLoaderForTemplateLoading(Thread.currentThread().getContextClassLoader(), filePath[0]);
-            template = cfg.getTemplate(filePath[1]);
+            // 由共享配置的模板缓存获取，模板名称均相对于classpath根路径
+            template = getConfiguration().getTemplate(path.startsWith("/") ? path.substring(1) : path);
             return this;
         } catch (IOException e) {
             throw ExcelBuildException.of("Failed to get freemarker template", e);
@@ -76,14 +77,65 @@ public class FreemarkerExcelBuilder extends AbstractExcelBuilder {
     @Override
     public <T> Workbook build(Map<String, T> data) {
         Objects.requireNonNull(template, "The template cannot be empty. Please set the template first.");
-        Path htmlFile = tempFileOperator.createTempFile("freemarker_temp_", TempFileOperator.HTML_SUFFIX);
-        try (Writer out = Files.newBufferedWriter(htmlFile, StandardCharsets.UTF_8)) {
-            template.process(data, out);
-            return HtmlToExcelFactory.readHtml(htmlFile.toFile(), htmlToExcelFactory).build();
-        } catch (Exception e) {
-            throw ExcelBuildException.of("Failed to build excel", e);
-        } finally {
-            tempFileOperator.deleteTempFile();
+        return this.build("freemarker_temp_", out -> template.process(data, out));
+    }
+
+    /**
+     * 获取当前类加载器共享的freemarker配置，首次使用时创建，最大模板数变化后替换模板缓存
+     *
+     * @return Configuration
+     */
+    private static Configuration getConfiguration() {
+        ClassLoader classLoader = ReflectUtil.getClassLoader();
+        Configuration cfg = ConfigurationHolder.CONFIGURATIONS.get(classLoader);
+        if (Objects.isNull(cfg)) {
+            synchronized (ConfigurationHolder.class) {
+                cfg = ConfigurationHolder.CONFIGURATIONS.get(classLoader);
+                if (Objects.isNull(cfg)) {
+                    cfg = ConfigurationHolder.createConfiguration(classLoader);
+                    ConfigurationHolder.CONFIGURATIONS.cache(classLoader, cfg);
+                }
+            }
+        }
+        if (((MruCacheStorage) cfg.getCacheStorage()).getStrongSizeLimit() != TemplateCacheConfig.getMaxSize()) {
+            cfg.setCacheStorage(new MruCacheStorage(TemplateCacheConfig.getMaxSize(), 0));
+        }
+        return cfg;
+    }
+
+    /**
+     * 各类加载器的freemarker配置，配置仅弱引用类加载器，不阻止其卸载
+     */
+    private static final class ConfigurationHolder {
+
+        private static final Cache<ClassLoader, Configuration> CONFIGURATIONS = new WeakCache<>();
+
+        private static Configuration createConfiguration(ClassLoader classLoader) {
+            Configuration cfg = new Configuration(Configuration.VERSION_2_3_23);
+            cfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+            cfg.setDefaultEncoding(CharEncoding.UTF_8);
+            cfg.setTemplateLoader(new ClassLoaderTemplateLoader(classLoader));
+            cfg.setCacheStorage(new MruCacheStorage(TemplateCacheConfig.getMaxSize(), 0));
+            cfg.setTemplateUpdateDelayMilliseconds(TemplateCacheConfig.isCheckModified() ? TemplateCacheConfig.getCheckInterval() : Long.MAX_VALUE);
+            return cfg;
+        }
+    }
+
+    /**
+     * 由类加载器的classpath根路径加载模板
+     */
+    private static final class ClassLoaderTemplateLoader extends URLTemplateLoader {
+
+        private final WeakReference<ClassLoader> classLoader;
+
+        private ClassLoaderTemplateLoader(ClassLoader classLoader) {
+            this.classLoader = new WeakReference<>(classLoader);
+        }
+
+        @Override
+        protected URL getURL(String name) {
+            ClassLoader loader = classLoader.get();
+            return Objects.isNull(loader) ? null : loader.getResource(name);
         }
     }
 
@@ -15,23 +15,26 @@
  */
 package com.github.liaochong.myexcel.core;
 
-import com.github.liaochong.myexcel.core.io.TempFileOperator;
+import com.github.liaochong.myexcel.core.cache.Cache;
+import com.github.liaochong.myexcel.core.cache.LruCache;
+import com.github.liaochong.myexcel.core.cache.WeakCache;
 import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
 import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import com.github.liaochong.myexcel.utils.ReflectUtil;
 import groovy.lang.Writable;
 import groovy.text.Template;
 import groovy.text.markup.MarkupTemplateEngine;
 import groovy.text.markup.TemplateConfiguration;
 import org.apache.poi.ss.usermodel.Workbook;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.Map;
 import java.util.Objects;
 
@@ -41,6 +44,9 @@ import java.util.Objects;
  */
 public class GroovyExcelBuilder extends AbstractExcelBuilder {
 
+    /**
+     * 已编译模板，每次渲染创建新的模板实例，可在多线程间共享
+     */
     private Template template;
 
     public GroovyExcelBuilder() {
@@ -53,11 +59,8 @@ public class GroovyExcelBuilder extends AbstractExcelBuilder {
         if (path.startsWith("/")) {
             path = path.substring(1);
         }
-        TemplateConfiguration config = new TemplateConfiguration();
-        MarkupTemplateEngine engine = new MarkupTemplateEngine(config);
-        try (InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(path);
-             Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-            template = engine.createTemplate(reader);
+        try {
+            template = getTemplate(path);
             return this;
         } catch (ClassNotFoundException | IOException e) {
             throw ExcelBuildException.of("Failed to get groovy template", e);
@@ -67,15 +70,105 @@ public class GroovyExcelBuilder extends AbstractExcelBuilder {
     @Override
     public <T> Workbook build(Map<String, T> renderData) {
         Objects.requireNonNull(template, "The template cannot be empty. Please set the template first.");
-        Path htmlFile = tempFileOperator.createTempFile("groovy_temp_", TempFileOperator.HTML_SUFFIX);
-        try (Writer out = Files.newBufferedWriter(htmlFile, StandardCharsets.UTF_8)) {
+        return this.build("groovy_temp_", out -> {
             Writable output = template.make(renderData);
             output.writeTo(out);
-            return HtmlToExcelFactory.readHtml(htmlFile.toFile(), htmlToExcelFactory).build();
-        } catch (Exception e) {
-            throw ExcelBuildException.of("Failed to build excel", e);
-        } finally {
-            tempFileOperator.deleteTempFile();
+        });
+    }
+
+    /**
+     * 由当前类加载器的缓存获取已编译模板，开启修改检查时，超过检查间隔则比较模板文件修改时间，变化后重新编译
+     *
+     * @param path 模板路径
+     * @return Template
+     * @throws IOException            IOException
+     * @throws ClassNotFoundException ClassNotFoundException
+     */
+    private static Template getTemplate(String path) throws IOException, ClassNotFoundException {
+        ClassLoader classLoader = ReflectUtil.getClassLoader();
+        LruCache<String, CachedTemplate> templateCache = getTemplateCache(classLoader);
+        CachedTemplate cachedTemplate = templateCache.get(path);
+        long now = System.currentTimeMillis();
+        if (Objects.nonNull(cachedTemplate)) {
+            if (!TemplateCacheConfig.isCheckModified() || now - cachedTemplate.checkTime < TemplateCacheConfig.getCheckInterval()) {
+                return cachedTemplate.template;
+            }
+            cachedTemplate.checkTime = now;
+            if (getLastModified(cachedTemplate.file) == cachedTemplate.lastModified) {
+                return cachedTemplate.template;
+            }
+        }
+        URL url = classLoader.getResource(path);
+        if (Objects.isNull(url)) {
+            throw new FileNotFoundException("Template does not exist:" + path);
+        }
+        File file = getFile(url);
+        long lastModified = getLastModified(file);
+        Template template;
+        try (Reader reader = new InputStreamReader(url.openStream(), StandardCharsets.UTF_8)) {
+            template = EngineHolder.ENGINE.createTemplate(reader);
+        }
+        templateCache.cache(path, new CachedTemplate(template, file, lastModified, now));
+        return template;
+    }
+
+    private static LruCache<String, CachedTemplate> getTemplateCache(ClassLoader classLoader) {
+        synchronized (EngineHolder.TEMPLATE_CACHES) {
+            LruCache<String, CachedTemplate> templateCache = EngineHolder.TEMPLATE_CACHES.get(classLoader);
+            if (Objects.isNull(templateCache)) {
+                templateCache = new LruCache<>(TemplateCacheConfig::getMaxSize, null);
+                EngineHolder.TEMPLATE_CACHES.cache(classLoader, templateCache);
+            }
+            return templateCache;
+        }
+    }
+
+    /**
+     * 获取模板文件，仅文件系统中的模板可检查修改时间，jar内模板视为不变
+     *
+     * @param url 模板地址
+     * @return 模板文件，不在文件系统中时为null
+     */
+    private static File getFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long getLastModified(File file) {
+        return Objects.isNull(file) ? 0 : file.lastModified();
+    }
+
+    /**
+     * 进程内共享的模板引擎，以及各类加载器的模板缓存，缓存不持有类加载器及其资源地址，不阻止其卸载
+     */
+    private static final class EngineHolder {
+
+        private static final MarkupTemplateEngine ENGINE = new MarkupTemplateEngine(new TemplateConfiguration());
+
+        private static final Cache<ClassLoader, LruCache<String, CachedTemplate>> TEMPLATE_CACHES = new WeakCache<>();
+    }
+
+    private static final class CachedTemplate {
+
+        private final Template template;
+
+        private final File file;
+
+        private final long lastModified;
+
+        private volatile long checkTime;
+
+        private CachedTemplate(Template template, File file, long lastModified, long checkTime) {
+            this.template = template;
+            this.file = file;
+            this.lastModified = lastModified;
+            this.checkTime = checkTime;
         }
     }
 }
@@ -17,18 +17,31 @@ package com.github.liaochong.myexcel.core;
 
 import com.github.liaochong.myexcel.core.parser.HtmlTableParser;
 import com.github.liaochong.myexcel.core.parser.Table;
+import com.github.liaochong.myexcel.core.parser.TableListener;
 import com.github.liaochong.myexcel.core.parser.Tr;
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * HtmlToExcelFactory
@@ -44,6 +57,11 @@ public class HtmlToExcelFactory extends AbstractExcelFactory {
 
     private HtmlTableParser htmlTableParser;
 
+    /**
+     * 多表格并行构建的线程池，为null时顺序构建
+     */
+    private ExecutorService parallelExecutor;
+
     /**
      * 读取html
      *
@@ -91,6 +109,52 @@ public class HtmlToExcelFactory extends AbstractExcelFactory {
         return htmlToExcelFactory;
     }
 
+    /**
+     * 读取html
+     *
+     * @param htmlInputStream    html输入流，UTF-8编码，不关闭，构建时边解析边写入工作簿
+     * @param htmlToExcelFactory 实例对象
+     * @return HtmlToExcelFactory
+     */
+    public static HtmlToExcelFactory readHtml(@NonNull InputStream htmlInputStream, @NonNull HtmlToExcelFactory htmlToExcelFactory) {
+        htmlToExcelFactory.htmlTableParser = HtmlTableParser.of(htmlInputStream);
+        return htmlToExcelFactory;
+    }
+
+    /**
+     * 读取html，构建时边解析边写入工作簿，不构建文档树
+     *
+     * @param htmlReader         html，不关闭
+     * @param htmlToExcelFactory 实例对象
+     * @return HtmlToExcelFactory
+     */
+    public static HtmlToExcelFactory readHtml(@NonNull Reader htmlReader, @NonNull HtmlToExcelFactory htmlToExcelFactory) {
+        htmlToExcelFactory.htmlTableParser = HtmlTableParser.of(htmlReader);
+        return htmlToExcelFactory;
+    }
+
+    /**
+     * 多表格并行构建，各表格的工作表在公共线程池中并行写入，共享工作簿样式，工作表顺序与表格顺序一致。
+     * <p>
+     * 仅SXLSX工作簿生效，其余类型的工作表共享字符串表等结构，仍顺序构建；流式读取的html需先解析出所有表格
+     *
+     * @return HtmlToExcelFactory
+     */
+    public HtmlToExcelFactory parallel() {
+        return this.parallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 多表格并行构建，各表格的工作表在指定线程池中并行写入
+     *
+     * @param executorService 线程池
+     * @return HtmlToExcelFactory
+     */
+    public HtmlToExcelFactory parallel(@NonNull ExecutorService executorService) {
+        this.parallelExecutor = executorService;
+        return this;
+    }
+
     /**
      * 开始构建
      *
@@ -98,8 +162,11 @@ public class HtmlToExcelFactory extends AbstractExcelFactory {
      */
     @Override
     public Workbook build() {
-        List<Table> tables = htmlTableParser.getAllTable();
-        return this.build(tables);
+        try {
+            return this.build(htmlTableParser);
+        } catch (IOException e) {
+            throw ExcelBuildException.of("Failed to build excel", e);
+        }
     }
 
     /**
@@ -135,6 +202,12 @@ public class HtmlToExcelFactory extends AbstractExcelFactory {
         }
         this.initCellStyle(workbook);
         // 2、处理解析表格
+        if (Objects.nonNull(parallelExecutor) && workbook instanceof SXSSFWorkbook && tables.size() > 1) {
+            this.buildInParallel(tables);
+            this.logCellStyleStats();
+            log.info("Build excel takes {} ms", System.currentTimeMillis() - startTime);
+            return workbook;
+        }
         for (int i = 0, size = tables.size(); i < size; i++) {
             Table table = tables.get(i);
             String sheetName = Objects.isNull(table.getCaption()) || table.getCaption().length() < 1 ? "Sheet" + (i + 1) : table.getCaption();
@@ -148,10 +221,72 @@ public class HtmlToExcelFactory extends AbstractExcelFactory {
             this.setTdOfTable(table, sheet);
             this.freezePane(i, sheet);
         }
+        this.logCellStyleStats();
         log.info("Build excel takes {} ms", System.currentTimeMillis() - startTime);
         return workbook;
     }
 
+    /**
+     * 边解析边构建，html中每解析完一行即写入工作簿，不构建文档树，也不保留完整的表格
+     *
+     * @param htmlReader html，不关闭
+     * @return Workbook
+     * @throws IOException IOException
+     */
+    public Workbook build(@NonNull Reader htmlReader) throws IOException {
+        return this.build(HtmlTableParser.of(htmlReader));
+    }
+
+    private Workbook build(HtmlTableParser parser) throws IOException {
+        if (!parser.isStreaming() || Objects.nonNull(parallelExecutor)) {
+            return this.build(parser.getAllTable());
+        }
+        log.info("Start building excel");
+        long startTime = System.currentTimeMillis();
+        if (Objects.isNull(workbook)) {
+            workbook = new XSSFWorkbook();
+        }
+        this.initCellStyle(workbook);
+        SheetWriter sheetWriter = new SheetWriter();
+        parser.parse(sheetWriter);
+        if (sheetWriter.tableCount == 0) {
+            log.warn("There is no any table exist");
+            return emptyWorkbook();
+        }
+        this.logCellStyleStats();
+        log.info("Build excel takes {} ms", System.currentTimeMillis() - startTime);
+        return workbook;
+    }
+
+    /**
+     * 按表格顺序创建工作表，再并行写入各工作表，SXSSF各工作表行数据独立写出，字符串内联，无共享结构
+     *
+     * @param tables tables
+     */
+    private void buildInParallel(List<Table> tables) {
+        List<Sheet> sheets = new ArrayList<>(tables.size());
+        for (int i = 0, size = tables.size(); i < size; i++) {
+            Table table = tables.get(i);
+            String sheetName = Objects.isNull(table.getCaption()) || table.getCaption().length() < 1 ? "Sheet" + (i + 1) : table.getCaption();
+            sheets.add(workbook.createSheet(sheetName));
+        }
+        CompletableFuture<?>[] futures = IntStream.range(0, tables.size()).mapToObj(i -> CompletableFuture.runAsync(() -> {
+            Table table = tables.get(i);
+            boolean hasTd = table.getTrList().stream().map(Tr::getTdList).anyMatch(list -> !list.isEmpty());
+            if (!hasTd) {
+                return;
+            }
+            Sheet sheet = sheets.get(i);
+            this.setTdOfTable(table, sheet);
+            this.freezePane(i, sheet);
+        }, parallelExecutor)).toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            throw ExcelBuildException.of("Failed to build excel", e.getCause());
+        }
+    }
+
     /**
      * 设置所有单元格，自适应列宽，单元格最大支持字符长度255
      */
@@ -162,6 +297,50 @@ public class HtmlToExcelFactory extends AbstractExcelFactory {
             table.getTrList().set(i, null);
         }
         this.setColWidth(colMaxWidthMap, sheet);
+        this.finishSheet(sheet);
+    }
+
+    /**
+     * 逐行写入工作表的表格监听者
+     */
+    private class SheetWriter implements TableListener {
+
+        private int tableCount;
+
+        private Sheet sheet;
+
+        private Map<Integer, Integer> colMaxWidthMap;
+
+        private boolean hasTd;
+
+        @Override
+        public void startTable(Table table) {
+            tableCount++;
+            String sheetName = Objects.isNull(table.getCaption()) || table.getCaption().length() < 1 ? "Sheet" + tableCount : table.getCaption();
+            sheet = workbook.createSheet(sheetName);
+            colMaxWidthMap = new HashMap<>();
+            hasTd = false;
+        }
+
+        @Override
+        public void tr(Tr tr) {
+            if (!tr.getTdList().isEmpty()) {
+                hasTd = true;
+            }
+            mergeColMaxWidth(tr, colMaxWidthMap);
+            createRow(tr, sheet);
+        }
+
+        @Override
+        public void endTable(Table table) {
+            if (hasTd) {
+                setColWidth(colMaxWidthMap, sheet);
+                finishSheet(sheet);
+                freezePane(tableCount - 1, sheet);
+            }
+            sheet = null;
+            colMaxWidthMap = null;
+        }
     }
 
 }
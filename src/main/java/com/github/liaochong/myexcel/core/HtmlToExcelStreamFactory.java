@@ -15,15 +15,32 @@
  */
 package com.github.liaochong.myexcel.core;
 
+import com.github.liaochong.myexcel.core.io.StreamingXlsxWriter;
+import com.github.liaochong.myexcel.core.io.ZipWorkbookWriter;
+import com.github.liaochong.myexcel.core.parser.HtmlTableParser;
 import com.github.liaochong.myexcel.core.parser.Table;
+import com.github.liaochong.myexcel.core.parser.TableListener;
+import com.github.liaochong.myexcel.core.parser.Td;
 import com.github.liaochong.myexcel.core.parser.Tr;
+import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
+import com.github.liaochong.myexcel.core.style.BorderStyle;
+import com.github.liaochong.myexcel.core.style.CellStyleSpec;
+import com.github.liaochong.myexcel.core.style.FontStyle;
+import com.github.liaochong.myexcel.core.style.TextAlignStyle;
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import com.github.liaochong.myexcel.utils.WorkbookUtil;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,7 +48,9 @@ import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * HtmlToExcelStreamFactory 流工厂
@@ -50,26 +69,127 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
 
     private static final List<Tr> STOP_FLAG_LIST = new ArrayList<>();
 
+    /**
+     * 单元格估算的固定开销字节数，对应单元格的xml标签、坐标等
+     */
+    private static final int CELL_OVERHEAD_BYTES = 32;
+
+    /**
+     * 流式写出时与默认样式等价的单元格样式
+     */
+    private static final CellStyleSpec DEFAULT_TD_STYLE;
+
+    private static final CellStyleSpec DEFAULT_TH_STYLE;
+
+    static {
+        Map<String, String> tdStyle = new HashMap<>();
+        tdStyle.put(TextAlignStyle.TEXT_ALIGN, TextAlignStyle.CENTER);
+        tdStyle.put(TextAlignStyle.VERTICAL_ALIGN, TextAlignStyle.MIDDLE);
+        tdStyle.put(BorderStyle.BORDER_LEFT_STYLE, BorderStyle.THIN);
+        tdStyle.put(BorderStyle.BORDER_RIGHT_STYLE, BorderStyle.THIN);
+        tdStyle.put(BorderStyle.BORDER_TOP_STYLE, BorderStyle.THIN);
+        tdStyle.put(BorderStyle.BORDER_BOTTOM_STYLE, BorderStyle.THIN);
+        DEFAULT_TD_STYLE = CellStyleSpec.of(tdStyle);
+        DEFAULT_TH_STYLE = DEFAULT_TD_STYLE.mix(CellStyleSpec.of(Collections.singletonMap(FontStyle.FONT_WEIGHT, FontStyle.BOLD)));
+    }
+
     private int maxRowCountOfSheet = XLSX_MAX_ROW_COUNT;
 
     private Sheet sheet;
 
-    private BlockingQueue<List<Tr>> trWaitQueue;
+    private final BlockingQueue<List<Tr>> trWaitQueue;
 
-    private boolean stop;
+    private volatile boolean stop;
 
-    private boolean exception;
+    private volatile boolean exception;
+
+    /**
+     * 接收结束时计数，接收线程启动后方可等待
+     */
+    private final CountDownLatch receiveLatch = new CountDownLatch(1);
+
+    private volatile boolean receiveStarted;
 
     private long startTime;
 
     private String sheetName = "Sheet";
 
-    private Map<Integer, Integer> colWidthMap;
+    private Map<Integer, Integer> colWidthMap = new HashMap<>();
 
     private int rowNum;
 
+    /**
+     * 当前工作表中跨行单元格覆盖的最大行号，该行及之前的行均已创建
+     */
+    private int openRowBound = -1;
+
+    /**
+     * SXSSF工作表的内存数据保有量，工作表自身不再自动写出，由跨行单元格决定可写出的行
+     */
+    private int windowSize = -1;
+
+    /**
+     * SXSSF内存数据的字节预算，设置后按预算自适应内存数据保有量
+     */
+    private RowAccessBudget rowAccessBudget;
+
     private int sheetNum;
 
+    /**
+     * 工作簿拆分策略
+     */
+    private SplitPolicy splitPolicy;
+
+    /**
+     * 拆分后工作簿的zip写入者
+     */
+    private ZipWorkbookWriter zipWorkbookWriter;
+
+    /**
+     * 当前工作簿行数
+     */
+    private int fileRowCount;
+
+    /**
+     * 当前工作簿估算字节数
+     */
+    private long fileBytes;
+
+    /**
+     * 首个工作簿开头的表头行，拆分时每个工作簿均重复写入
+     */
+    private final List<Tr> headerTrList = new ArrayList<>();
+
+    /**
+     * 表头行的列宽，拆分后的工作簿以此为初始列宽
+     */
+    private final Map<Integer, Integer> headerColWidthMap = new HashMap<>();
+
+    /**
+     * 表头行中跨行单元格覆盖的最大行号，被覆盖的行同属表头
+     */
+    private int headerRowBound = -1;
+
+    /**
+     * 是否仍在收集表头行
+     */
+    private boolean capturingHeader = true;
+
+    /**
+     * 流式写出者，设置后不再构建POI工作簿，数据随到随写至输出流
+     */
+    private StreamingXlsxWriter streamingXlsxWriter;
+
+    /**
+     * 流式写出时的列默认样式，取自首批数据
+     */
+    private Map<Integer, CellStyleSpec> columnStyleMap;
+
+    /**
+     * 流式写出时暂缓的标题行，列默认样式需取自数据行
+     */
+    private List<Tr> pendingTitleTrList;
+
     /**
      * 线程池
      */
@@ -80,24 +200,88 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
         this.executorService = executorService;
     }
 
+    /**
+     * 按照拆分策略将数据拆分为多个工作簿，并依次写入zip输出流，需在start之前调用
+     *
+     * @param splitPolicy  拆分策略
+     * @param outputStream zip输出流
+     * @param fileName     工作簿文件名称，不包含后缀
+     */
+    public void splitToZip(SplitPolicy splitPolicy, OutputStream outputStream, String fileName) {
+        this.splitPolicy = splitPolicy;
+        this.zipWorkbookWriter = new ZipWorkbookWriter(outputStream, fileName);
+    }
+
+    /**
+     * 按每个工作表内存数据的字节预算自适应SXSSF的内存数据保有量，代替固定行数，需在start之前调用
+     *
+     * @param budgetBytes 字节预算
+     */
+    public void rowAccessBudget(long budgetBytes) {
+        this.rowAccessBudget = new RowAccessBudget(budgetBytes);
+    }
+
+    /**
+     * 获取内存数据保有量统计
+     *
+     * @return 统计，未设置字节预算时为null
+     */
+    public RowAccessBudget.Stats getRowAccessStats() {
+        return Objects.isNull(rowAccessBudget) ? null : rowAccessBudget.getStats();
+    }
+
+    /**
+     * 将.xlsx边生成边写入输出流，不在内存或临时文件中保留完整工作簿，需在start之前调用
+     *
+     * @param outputStream 输出流，如HTTP响应输出流
+     */
+    public void streamTo(OutputStream outputStream) {
+        this.streamingXlsxWriter = new StreamingXlsxWriter(outputStream);
+    }
+
     public void start(Table table, Workbook workbook) {
         log.info("Start streaming building excel");
         if (Objects.nonNull(workbook)) {
             this.workbook = workbook;
         }
         startTime = System.currentTimeMillis();
+        if (Objects.nonNull(table)) {
+            sheetName = Objects.isNull(table.getCaption()) || table.getCaption().length() < 1 ? sheetName : table.getCaption();
+        }
+        if (Objects.nonNull(streamingXlsxWriter)) {
+            if (Objects.nonNull(this.workbook) || Objects.nonNull(zipWorkbookWriter)) {
+                throw new IllegalArgumentException("StreamTo only supports .xlsx written by itself,and can not be combined with splitToZip");
+            }
+            if (AutoWidthStrategy.isAutoWidth(autoWidthStrategy)) {
+                throw new UnsupportedOperationException("Streaming does not support automatic width at this time");
+            }
+            DeflatePolicy policy = DeflatePolicy.of(deflatePolicy, compressionLevel);
+            if (Objects.nonNull(policy)) {
+                streamingXlsxWriter.setLevel(policy.getLevel());
+            }
+            streamingXlsxWriter.setRowBanding(rowBandingColor);
+            try {
+                streamingXlsxWriter.start();
+            } catch (IOException e) {
+                throw ExcelBuildException.of("Failed to start streaming", e);
+            }
+            this.startReceive();
+            return;
+        }
 
         if (Objects.isNull(this.workbook)) {
             workbookType(WorkbookType.SXLSX);
         }
-        if (workbook instanceof HSSFWorkbook) {
+        if (this.workbook instanceof HSSFWorkbook) {
             maxRowCountOfSheet = XLS_MAX_ROW_COUNT;
         }
-        initCellStyle(workbook);
-        if (Objects.nonNull(table)) {
-            sheetName = Objects.isNull(table.getCaption()) || table.getCaption().length() < 1 ? sheetName : table.getCaption();
-        }
-        this.sheet = this.workbook.createSheet(sheetName);
+        initCellStyle(this.workbook);
+        this.sheet = this.createSheet(sheetName);
+        this.startReceive();
+    }
+
+    private void startReceive() {
+        receiveStarted = true;
         if (Objects.isNull(executorService)) {
             Thread thread = new Thread(this::receive);
             thread.setName("Excel-builder-1");
@@ -127,39 +311,56 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
         }
     }
 
+    /**
+     * 流式解析html，按批追加其中所有表格的行，内存占用与行数无关
+     *
+     * @param parser    html解析器
+     * @param batchSize 每批行数
+     * @throws IOException IOException
+     */
+    public void append(@NonNull HtmlTableParser parser, int batchSize) throws IOException {
+        TrBatchListener listener = new TrBatchListener(batchSize);
+        parser.parse(listener);
+        listener.appendBatch();
+    }
+
     private void receive() {
-        List<Tr> trList = this.getTrListFromQueue();
         int appendSize = 0;
         try {
+            List<Tr> trList = this.getTrListFromQueue();
             while (trList != STOP_FLAG_LIST) {
                 log.info("Received data size:{},current waiting queue size:{}", trList.size(), trWaitQueue.size());
+                appendSize++;
+                if (Objects.nonNull(streamingXlsxWriter)) {
+                    this.writeRows(trList);
+                    trList = this.getTrListFromQueue();
+                    continue;
+                }
                 for (Tr tr : trList) {
+                    if (Objects.nonNull(splitPolicy)) {
+                        if (splitPolicy.isReached(fileRowCount, fileBytes) && rowNum > openRowBound) {
+                            this.splitFile();
+                        } else if (capturingHeader) {
+                            this.captureHeader(tr);
+                        }
+                        fileRowCount++;
+                        fileBytes += this.estimateBytes(tr);
+                    }
                     if (rowNum == maxRowCountOfSheet) {
                         sheetNum++;
                         this.setColWidth(colWidthMap, sheet);
-                        colWidthMap = null;
-                        sheet = workbook.createSheet(sheetName + " " + sheetNum);
+                        this.finishSheet(sheet);
+                        colWidthMap = new HashMap<>();
+                        sheet = this.createSheet(sheetName + " " + sheetNum);
                         rowNum = 0;
                     }
-                    tr.setIndex(rowNum);
-                    tr.getTdList().forEach(td -> {
-                        td.setRow(rowNum);
-                        td.setRowBound(rowNum);
-                    });
+                    this.moveTo(tr, rowNum);
                     rowNum++;
                     this.createRow(tr, sheet);
+                    // 逐行合并列宽，拆分或换表时各工作表仅包含自身行的列宽
+                    this.mergeColMaxWidth(tr, colWidthMap);
+                    this.flushRows(tr);
                 }
-                appendSize++;
-                Map<Integer, Integer> colWidthMap = this.getColMaxWidthMap(trList);
-                if (Objects.isNull(this.colWidthMap)) {
-                    this.colWidthMap = new HashMap<>(colWidthMap.size());
-                }
-                colWidthMap.forEach((k, v) -> {
-                    Integer val = this.colWidthMap.get(k);
-                    if (Objects.isNull(val) || v > val) {
-                        this.colWidthMap.put(k, v);
-                    }
-                });
                 trList = this.getTrListFromQueue();
             }
             log.info("End of reception,append size:{}", appendSize);
@@ -167,13 +368,214 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
             log.error("An exception occurred while processing", e);
             exception = true;
             try {
-                workbook.close();
+                WorkbookUtil.close(workbook);
             } catch (IOException e1) {
                 e1.printStackTrace();
             }
             trWaitQueue.clear();
-            trWaitQueue = null;
+        } finally {
+            receiveLatch.countDown();
+        }
+    }
+
+    /**
+     * 流式写入行，首批数据到达时确定列宽并开始工作表，每批写入后立即刷新至输出流
+     *
+     * @param trList trList
+     * @throws IOException IOException
+     */
+    private void writeRows(List<Tr> trList) throws IOException {
+        if (!streamingXlsxWriter.isSheetStarted()) {
+            if (columnStyle && Objects.isNull(pendingTitleTrList) && trList.stream().allMatch(this::isTitle)) {
+                pendingTitleTrList = trList;
+                return;
+            }
+            if (Objects.nonNull(pendingTitleTrList)) {
+                List<Tr> mergedTrList = new ArrayList<>(pendingTitleTrList.size() + trList.size());
+                mergedTrList.addAll(pendingTitleTrList);
+                mergedTrList.addAll(trList);
+                trList = mergedTrList;
+                pendingTitleTrList = null;
+            }
+            Map<Integer, Integer> colMaxWidthMap = this.getColMaxWidthMap(trList);
+            colWidthMap = new HashMap<>(colMaxWidthMap.size());
+            colMaxWidthMap.forEach((k, v) -> colWidthMap.put(k, this.getColumnWidth(v)));
+            if (columnStyle) {
+                columnStyleMap = this.getColumnStyleMap(trList);
+            }
+            this.startStreamingSheet(sheetName);
+        } else {
+            trList.forEach(tr -> tr.setColWidthMap(null));
         }
+        for (Tr tr : trList) {
+            if (rowNum == maxRowCountOfSheet) {
+                sheetNum++;
+                this.startStreamingSheet(sheetName + " " + sheetNum);
+                rowNum = 0;
+                openRowBound = -1;
+            }
+            this.moveTo(tr, rowNum);
+            for (Td td : tr.getTdList()) {
+                if (useDefaultStyle) {
+                    td.setStyle(td.isTh() ? DEFAULT_TH_STYLE : DEFAULT_TD_STYLE);
+                }
+            }
+            rowNum++;
+            streamingXlsxWriter.writeRow(tr);
+        }
+        streamingXlsxWriter.flush();
+    }
+
+    private void startStreamingSheet(String name) throws IOException {
+        FreezePane freezePane = this.getFreezePane(0);
+        if (Objects.isNull(freezePane)) {
+            streamingXlsxWriter.startSheet(name, 0, 0, colWidthMap, columnStyleMap);
+        } else {
+            streamingXlsxWriter.startSheet(name, freezePane.getColSplit(), freezePane.getRowSplit(), colWidthMap, columnStyleMap);
+        }
+    }
+
+    /**
+     * 以各列首个未跨行跨列的td样式作为列默认样式
+     *
+     * @param trList trList
+     * @return 列默认样式
+     */
+    private Map<Integer, CellStyleSpec> getColumnStyleMap(List<Tr> trList) {
+        Map<Integer, CellStyleSpec> result = new HashMap<>();
+        for (Tr tr : trList) {
+            for (Td td : tr.getTdList()) {
+                if (td.isTh() || td.getColSpan() > 0 || td.getRowSpan() > 0) {
+                    continue;
+                }
+                CellStyleSpec style = useDefaultStyle ? DEFAULT_TD_STYLE : td.getStyle();
+                if (!style.isEmpty()) {
+                    result.putIfAbsent(td.getCol(), style);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 结束当前工作簿并写入zip，随后以相同类型开始新的工作簿
+     *
+     * @throws IOException IOException
+     */
+    private void splitFile() throws IOException {
+        this.setColWidth(colWidthMap, sheet);
+        this.finishSheet(sheet);
+        this.freezePane(0, sheet);
+        zipWorkbookWriter.write(workbook);
+
+        this.renewWorkbook();
+        sheetNum = 0;
+        sheet = this.createSheet(sheetName);
+        rowNum = 0;
+        fileRowCount = 0;
+        fileBytes = 0;
+        capturingHeader = false;
+        for (Tr headerTr : headerTrList) {
+            this.moveTo(headerTr, rowNum);
+            rowNum++;
+            this.createRow(headerTr, sheet);
+            fileRowCount++;
+            fileBytes += this.estimateBytes(headerTr);
+        }
+        colWidthMap = new HashMap<>(headerColWidthMap);
+    }
+
+    /**
+     * 收集首个工作簿开头的表头行及其列宽，包含标题行、thead中的行及被表头跨行单元格覆盖的行
+     *
+     * @param tr 即将写入的行
+     */
+    private void captureHeader(Tr tr) {
+        if (!this.isTitle(tr) && !tr.isHeader() && rowNum > headerRowBound) {
+            capturingHeader = false;
+            return;
+        }
+        headerTrList.add(tr);
+        for (Td td : tr.getTdList()) {
+            headerRowBound = Math.max(headerRowBound, rowNum + td.getRowBound() - td.getRow());
+        }
+        // 行自身的列宽在合并后即被清除，此处使用副本
+        Tr widthTr = new Tr(tr.getIndex());
+        widthTr.setTdList(tr.getTdList());
+        widthTr.setColWidthMap(new HashMap<>(tr.getColWidthMap()));
+        this.mergeColMaxWidth(widthTr, headerColWidthMap);
+    }
+
+    /**
+     * 创建工作表，SXSSF工作表改由flushRows控制写出
+     *
+     * @param name 工作表名称
+     * @return 工作表
+     */
+    private Sheet createSheet(String name) {
+        Sheet newSheet = workbook.createSheet(name);
+        if (newSheet instanceof SXSSFSheet) {
+            windowSize = ((SXSSFWorkbook) workbook).getRandomAccessWindowSize();
+            ((SXSSFSheet) newSheet).setRandomAccessWindowSize(-1);
+        }
+        openRowBound = -1;
+        return newSheet;
+    }
+
+    /**
+     * 将行移至当前工作表的指定行，保留单元格跨行，跨行不超出工作表的最大行数
+     *
+     * @param tr       行
+     * @param rowIndex 行号
+     */
+    private void moveTo(Tr tr, int rowIndex) {
+        tr.setIndex(rowIndex);
+        for (Td td : tr.getTdList()) {
+            int rowBound = Math.min(rowIndex + td.getRowBound() - td.getRow(), maxRowCountOfSheet - 1);
+            td.setRow(rowIndex);
+            td.setRowBound(rowBound);
+            td.setRowSpan(rowBound > rowIndex ? rowBound - rowIndex + 1 : 0);
+            openRowBound = Math.max(openRowBound, rowBound);
+        }
+    }
+
+    /**
+     * SXSSF工作表超出内存数据保有量时写出最早的行，跨行单元格覆盖的后续行已提前创建，需保留在内存中。
+     * 设置字节预算时，保有量取自预算估算的有效保有行数
+     *
+     * @param tr 刚写入的行
+     * @throws IOException IOException
+     */
+    private void flushRows(Tr tr) throws IOException {
+        if (!(sheet instanceof SXSSFSheet)) {
+            return;
+        }
+        int window = Objects.isNull(rowAccessBudget) ? windowSize : rowAccessBudget.record(tr);
+        if (window > 0) {
+            ((SXSSFSheet) sheet).flushRows(window + Math.max(0, openRowBound - rowNum + 1));
+        }
+    }
+
+    private void logRowAccessStats() {
+        RowAccessBudget.Stats stats = this.getRowAccessStats();
+        if (Objects.nonNull(stats)) {
+            log.info("Row access window:{}", stats);
+        }
+    }
+
+    private boolean isTitle(Tr tr) {
+        return !tr.getTdList().isEmpty() && tr.getTdList().stream().allMatch(Td::isTh);
+    }
+
+    private long estimateBytes(Tr tr) {
+        long bytes = 0;
+        for (Td td : tr.getTdList()) {
+            bytes += CELL_OVERHEAD_BYTES;
+            if (Objects.nonNull(td.getContent())) {
+                bytes += td.getContent().length();
+            }
+        }
+        return bytes;
     }
 
     private List<Tr> getTrListFromQueue() {
@@ -186,24 +588,137 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
 
     @Override
     public Workbook build() {
+        if (Objects.nonNull(zipWorkbookWriter) || Objects.nonNull(streamingXlsxWriter)) {
+            throw new IllegalStateException("Workbooks are split into zip or streamed,please use finish method instead");
+        }
+        this.waitForReceived();
+        this.setColWidth(colWidthMap, sheet);
+        this.finishSheet(sheet);
+        this.freezePane(0, sheet);
+        this.logCellStyleStats();
+        this.logRowAccessStats();
+        log.info("Build Excel success,takes {} ms", System.currentTimeMillis() - startTime);
+        return workbook;
+    }
+
+    /**
+     * 停止接收数据，将最后一个工作簿写入zip并结束zip写入，流式写出时则写出剩余部件
+     */
+    public void finish() {
+        if (Objects.nonNull(streamingXlsxWriter)) {
+            this.waitForReceived();
+            try {
+                if (Objects.nonNull(pendingTitleTrList)) {
+                    this.writeRows(Collections.emptyList());
+                }
+                streamingXlsxWriter.finish();
+            } catch (IOException e) {
+                throw ExcelBuildException.of("Failed to finish streaming", e);
+            }
+            log.info("Build Excel success,{} sheets streamed,takes {} ms", streamingXlsxWriter.getSheetCount(), System.currentTimeMillis() - startTime);
+            return;
+        }
+        if (Objects.isNull(zipWorkbookWriter)) {
+            throw new IllegalStateException("SplitToZip or streamTo is not set,please use build method instead");
+        }
+        this.waitForReceived();
+        this.setColWidth(colWidthMap, sheet);
+        this.finishSheet(sheet);
+        this.freezePane(0, sheet);
+        try {
+            zipWorkbookWriter.write(workbook);
+            zipWorkbookWriter.finish();
+        } catch (IOException e) {
+            throw ExcelBuildException.of("Failed to write workbook to zip", e);
+        }
+        this.logRowAccessStats();
+        log.info("Build Excel success,split into {} files,takes {} ms", zipWorkbookWriter.getFileNum(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 关闭工作簿并清除临时文件，若尚未停止接收数据，则同时终止接收
+     *
+     * @throws IOException IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (!stop && !exception && receiveStarted) {
+            trWaitQueue.clear();
+            try {
+                this.stopReceive();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        super.close();
+    }
+
+    /**
+     * 将解析出的行按批追加的监听者
+     */
+    private class TrBatchListener implements TableListener {
+
+        private final int batchSize;
+
+        private List<Tr> batch;
+
+        private TrBatchListener(int batchSize) {
+            this.batchSize = Math.max(1, batchSize);
+            this.batch = new ArrayList<>(this.batchSize);
+        }
+
+        @Override
+        public void startTable(Table table) {
+            // 所有表格的行依次追加至同一工作表
+        }
+
+        @Override
+        public void tr(Tr tr) {
+            batch.add(tr);
+            if (batch.size() >= batchSize) {
+                this.appendBatch();
+            }
+        }
+
+        @Override
+        public void endTable(Table table) {
+            this.appendBatch();
+        }
+
+        private void appendBatch() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            append(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private void waitForReceived() {
         if (exception) {
             throw new IllegalStateException("An exception occurred while processing");
         }
-        this.stop = true;
-        while (!trWaitQueue.isEmpty()) {
-            // wait all tr received
-        }
         try {
-            trWaitQueue.put(STOP_FLAG_LIST);
+            this.stopReceive();
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
+            throw ExcelBuildException.of("Interrupted while waiting for rows to be received", e);
         }
-        while (!trWaitQueue.isEmpty()) {
-            // wait all tr received
+        if (exception) {
+            throw new IllegalStateException("An exception occurred while processing");
         }
-        this.setColWidth(colWidthMap, sheet);
-        this.freezePane(0, sheet);
-        log.info("Build Excel success,takes {} ms", System.currentTimeMillis() - startTime);
-        return workbook;
+    }
+
+    /**
+     * 在队列末尾放入结束标志，并等待接收线程处理完之前的所有数据，接收线程已退出时不再等待队列空位
+     *
+     * @throws InterruptedException InterruptedException
+     */
+    private void stopReceive() throws InterruptedException {
+        stop = true;
+        while (receiveLatch.getCount() > 0 && !trWaitQueue.offer(STOP_FLAG_LIST, 100, TimeUnit.MILLISECONDS)) {
+            // 队列已满，接收线程仍在处理
+        }
+        receiveLatch.await();
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * 工作表合并单元格登记。
+ * <p>
+ * 按行索引各合并区域的列区间，重叠检查仅涉及区域所跨各行，工作表结束时一次性以addMergedRegionUnsafe写入，
+ * 避免POI每次新增均与全部已有区域比较。区域须按首行递增的顺序登记，早于当前区域首行的索引随之释放
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+class MergedRegionRegistry {
+
+    /**
+     * 行->区域首列->区域
+     */
+    private final TreeMap<Integer, TreeMap<Integer, CellRangeAddress>> rowIndex = new TreeMap<>();
+
+    private final List<CellRangeAddress> regions = new ArrayList<>();
+
+    /**
+     * 登记合并区域
+     *
+     * @param region 合并区域
+     * @throws IllegalStateException 与已登记的区域重叠
+     */
+    void add(CellRangeAddress region) {
+        rowIndex.headMap(region.getFirstRow()).clear();
+        for (int row = region.getFirstRow(), lastRow = region.getLastRow(); row <= lastRow; row++) {
+            TreeMap<Integer, CellRangeAddress> cols = rowIndex.get(row);
+            if (Objects.isNull(cols)) {
+                continue;
+            }
+            // 同一行中的区域互不重叠，列区间有序，只需检查首列不大于当前区域末列的最后一个区域
+            Map.Entry<Integer, CellRangeAddress> entry = cols.floorEntry(region.getLastColumn());
+            if (Objects.nonNull(entry) && entry.getValue().getLastColumn() >= region.getFirstColumn()) {
+                throw new IllegalStateException("Cannot add merged region " + region.formatAsString()
+                        + " to sheet because it overlaps with an existing merged region (" + entry.getValue().formatAsString() + ").");
+            }
+        }
+        for (int row = region.getFirstRow(), lastRow = region.getLastRow(); row <= lastRow; row++) {
+            rowIndex.computeIfAbsent(row, key -> new TreeMap<>()).put(region.getFirstColumn(), region);
+        }
+        regions.add(region);
+    }
+
+    /**
+     * 将已登记的区域写入工作表并清空登记
+     *
+     * @param sheet sheet
+     */
+    void addTo(Sheet sheet) {
+        regions.forEach(sheet::addMergedRegionUnsafe);
+        regions.clear();
+        rowIndex.clear();
+    }
+}
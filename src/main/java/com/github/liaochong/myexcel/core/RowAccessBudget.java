@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Objects;
+
+/**
+ * 按内存字节预算自适应的SXSSF内存数据保有量。
+ * <p>
+ * 以单元格数、内容长度估算每行在内存中占用的字节数并取近期行的指数平均，预算除以平均行字节数即为有效保有行数，
+ * 宽行保有的行数少以避免内存溢出，窄行保有的行数多以减少写出次数
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class RowAccessBudget {
+
+    /**
+     * 行对象的固定开销字节数
+     */
+    private static final int ROW_OVERHEAD_BYTES = 80;
+    /**
+     * 单元格对象、值对象及字符串对象头的固定开销字节数
+     */
+    private static final int CELL_OVERHEAD_BYTES = 96;
+    /**
+     * 指数平均中新行的权重
+     */
+    private static final double ALPHA = 1.0 / 64;
+
+    private static final int MIN_WINDOW_SIZE = 10;
+
+    private static final int MAX_WINDOW_SIZE = 100000;
+
+    private final long budgetBytes;
+
+    private long rowCount;
+
+    private double averageRowBytes;
+
+    private int windowSize;
+
+    private int minWindowSize = Integer.MAX_VALUE;
+
+    private int maxWindowSize;
+
+    /**
+     * @param budgetBytes 每个工作表内存数据的字节预算
+     */
+    public RowAccessBudget(long budgetBytes) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Row access budget must be greater than 0");
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * 记录新写入的行，返回有效保有行数
+     *
+     * @param tr 行
+     * @return 有效保有行数
+     */
+    public int record(Tr tr) {
+        long rowBytes = estimateBytes(tr);
+        averageRowBytes = rowCount == 0 ? rowBytes : averageRowBytes + (rowBytes - averageRowBytes) * ALPHA;
+        rowCount++;
+        windowSize = (int) Math.max(MIN_WINDOW_SIZE, Math.min(MAX_WINDOW_SIZE, budgetBytes / Math.max(1, (long) averageRowBytes)));
+        minWindowSize = Math.min(minWindowSize, windowSize);
+        maxWindowSize = Math.max(maxWindowSize, windowSize);
+        return windowSize;
+    }
+
+    /**
+     * 获取当前有效保有行数
+     *
+     * @return 有效保有行数，尚无行时为0
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * 获取统计
+     *
+     * @return 统计
+     */
+    public Stats getStats() {
+        return new Stats(budgetBytes, rowCount, (long) averageRowBytes, windowSize, rowCount == 0 ? 0 : minWindowSize, maxWindowSize);
+    }
+
+    private static long estimateBytes(Tr tr) {
+        long bytes = ROW_OVERHEAD_BYTES;
+        for (Td td : tr.getTdList()) {
+            bytes += CELL_OVERHEAD_BYTES;
+            if (Objects.nonNull(td.getContent())) {
+                // 字符串以UTF-16存储
+                bytes += (long) td.getContent().length() << 1;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 内存数据保有量统计
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static final class Stats {
+        /**
+         * 字节预算
+         */
+        private final long budgetBytes;
+        /**
+         * 已记录的行数
+         */
+        private final long rowCount;
+        /**
+         * 平均行字节数
+         */
+        private final long averageRowBytes;
+        /**
+         * 当前有效保有行数
+         */
+        private final int windowSize;
+        /**
+         * 最小有效保有行数
+         */
+        private final int minWindowSize;
+        /**
+         * 最大有效保有行数
+         */
+        private final int maxWindowSize;
+    }
+}
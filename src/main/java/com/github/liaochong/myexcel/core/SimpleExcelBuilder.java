@@ -17,8 +17,12 @@ package com.github.liaochong.myexcel.core;
 
 import org.apache.poi.ss.usermodel.Workbook;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * 简单excel构建器
@@ -59,6 +63,20 @@ interface SimpleExcelBuilder extends ExcelBuilder {
      */
     SimpleExcelBuilder noStyle();
 
+    /**
+     * 斑马纹，偶数行背景色以一条条件格式规则设置，所有数据行共用同一单元格样式，无样式时不生效
+     *
+     * @return SimpleExcelBuilder
+     */
+    SimpleExcelBuilder rowBanding();
+
+    /**
+     * 列默认样式，每列样式仅设置一次，与列样式相同的空单元格不再逐个写出
+     *
+     * @return SimpleExcelBuilder
+     */
+    SimpleExcelBuilder columnStyle();
+
     /**
      * 根据指定的数据集合构建，需指明数据集合数据的类类型，使用该方法，如设定了标题但无数据，则标题行也不展示
      *
@@ -68,6 +86,26 @@ interface SimpleExcelBuilder extends ExcelBuilder {
      */
     Workbook build(List<?> data, Class<?>... groups);
 
+    /**
+     * 根据指定的数据集合构建并写出至输出流，写出后立即关闭工作簿并清除临时文件，不关闭输出流
+     *
+     * @param data         数据列表
+     * @param outputStream 输出流
+     * @param groups       分组
+     * @throws IOException IOException
+     */
+    void write(List<?> data, OutputStream outputStream, Class<?>... groups) throws IOException;
+
+    /**
+     * 根据指定的数据集合构建并写出至文件，写出后立即关闭工作簿并清除临时文件
+     *
+     * @param data   数据列表
+     * @param path   文件路径
+     * @param groups 分组
+     * @throws IOException IOException
+     */
+    void write(List<?> data, Path path, Class<?>... groups) throws IOException;
+
     @Override
     default ExcelBuilder useDefaultStyle() {
         throw new UnsupportedOperationException();
@@ -83,8 +121,38 @@ interface SimpleExcelBuilder extends ExcelBuilder {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    default ExcelBuilder pipeline() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    default ExcelBuilder pipeline(ExecutorService executorService) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    default ExcelBuilder parallel() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    default ExcelBuilder parallel(ExecutorService executorService) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     default <T> Workbook build(Map<String, T> renderData) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    default <T> void write(Map<String, T> renderData, OutputStream outputStream) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    default <T> void write(Map<String, T> renderData, Path path) {
+        throw new UnsupportedOperationException();
+    }
 }
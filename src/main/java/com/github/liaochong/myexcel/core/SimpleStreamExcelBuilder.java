@@ -17,6 +17,9 @@ package com.github.liaochong.myexcel.core;
 
 import org.apache.poi.ss.usermodel.Workbook;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 
@@ -65,4 +68,20 @@ interface SimpleStreamExcelBuilder {
      * @return Workbook
      */
     Workbook build();
+
+    /**
+     * 停止追加数据，构建并写出至输出流，写出后立即关闭工作簿并清除临时文件，不关闭输出流
+     *
+     * @param outputStream 输出流
+     * @throws IOException IOException
+     */
+    void write(OutputStream outputStream) throws IOException;
+
+    /**
+     * 停止追加数据，构建并写出至文件，写出后立即关闭工作簿并清除临时文件
+     *
+     * @param path 文件路径
+     * @throws IOException IOException
+     */
+    void write(Path path) throws IOException;
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * 工作簿拆分策略，满足任一条件时结束当前工作簿并开始新的工作簿
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public final class SplitPolicy {
+
+    /**
+     * 每个工作簿最大行数，不大于0时不限制
+     */
+    int maxRowCountOfFile;
+
+    /**
+     * 每个工作簿最大估算字节数（未压缩的单元格内容），不大于0时不限制
+     */
+    long maxBytesOfFile;
+
+    private SplitPolicy(int maxRowCountOfFile, long maxBytesOfFile) {
+        this.maxRowCountOfFile = maxRowCountOfFile;
+        this.maxBytesOfFile = maxBytesOfFile;
+    }
+
+    /**
+     * 按行数拆分
+     *
+     * @param maxRowCountOfFile 每个工作簿最大行数
+     * @return SplitPolicy
+     */
+    public static SplitPolicy ofRows(int maxRowCountOfFile) {
+        if (maxRowCountOfFile <= 0) {
+            throw new IllegalArgumentException("MaxRowCountOfFile must be greater than 0");
+        }
+        return new SplitPolicy(maxRowCountOfFile, -1);
+    }
+
+    /**
+     * 按估算字节数拆分
+     *
+     * @param maxBytesOfFile 每个工作簿最大估算字节数
+     * @return SplitPolicy
+     */
+    public static SplitPolicy ofBytes(long maxBytesOfFile) {
+        if (maxBytesOfFile <= 0) {
+            throw new IllegalArgumentException("MaxBytesOfFile must be greater than 0");
+        }
+        return new SplitPolicy(-1, maxBytesOfFile);
+    }
+
+    /**
+     * 按行数以及估算字节数拆分，先达到者生效
+     *
+     * @param maxRowCountOfFile 每个工作簿最大行数
+     * @param maxBytesOfFile    每个工作簿最大估算字节数
+     * @return SplitPolicy
+     */
+    public static SplitPolicy of(int maxRowCountOfFile, long maxBytesOfFile) {
+        if (maxRowCountOfFile <= 0 && maxBytesOfFile <= 0) {
+            throw new IllegalArgumentException("At least one of maxRowCountOfFile and maxBytesOfFile must be greater than 0");
+        }
+        return new SplitPolicy(maxRowCountOfFile, maxBytesOfFile);
+    }
+
+    /**
+     * 当前工作簿是否已达到拆分条件
+     *
+     * @param rowCount 当前工作簿行数
+     * @param bytes    当前工作簿估算字节数
+     * @return true/false
+     */
+    boolean isReached(int rowCount, long bytes) {
+        if (maxRowCountOfFile > 0 && rowCount >= maxRowCountOfFile) {
+            return true;
+        }
+        return maxBytesOfFile > 0 && bytes >= maxBytesOfFile;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * 模板缓存配置，freemarker、beetl、groovy各自共享模板引擎，已编译模板按路径缓存。
+ * <p>
+ * 引擎于首次获取模板时创建，修改检查间隔须在此之前设置，最大模板数的修改于之后获取模板时生效
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@UtilityClass
+public final class TemplateCacheConfig {
+
+    /**
+     * 默认每种引擎最多缓存的模板数
+     */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private static volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    /**
+     * 模板修改检查间隔，小于0时不检查
+     */
+    private static volatile long checkInterval = -1;
+
+    /**
+     * 设置每种引擎最多缓存的模板数，超出的模板于之后获取模板时淘汰
+     *
+     * @param maxSize 最大模板数
+     */
+    public static void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("MaxSize must be positive");
+        }
+        TemplateCacheConfig.maxSize = maxSize;
+    }
+
+    public static int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 设置模板修改检查间隔，模板文件修改时间变化后重新编译，beetl不支持间隔，开启后每次获取均检查
+     *
+     * @param checkInterval 检查间隔（毫秒），小于0时不检查
+     */
+    public static void setCheckInterval(long checkInterval) {
+        TemplateCacheConfig.checkInterval = checkInterval;
+    }
+
+    public static long getCheckInterval() {
+        return checkInterval;
+    }
+
+    public static boolean isCheckModified() {
+        return checkInterval >= 0;
+    }
+}
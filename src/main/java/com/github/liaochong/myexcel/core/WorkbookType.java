@@ -31,7 +31,11 @@ public enum WorkbookType {
     /**
      * .xlsx
      */
-    SXLSX;
+    SXLSX,
+    /**
+     * .xlsx，DefaultExcelBuilder按数据量估算的堆内存选择XLSX或SXLSX，流式构建时为SXLSX，其余按XLSX处理
+     */
+    AUTO;
 
     public static boolean isXls(WorkbookType workbookType) {
         return XLS.equals(workbookType);
@@ -67,6 +67,21 @@ public @interface ExcelTable {
      */
     int rowAccessWindowSize() default -1;
 
+    /**
+     * 写出时的压缩级别，0-9，小于0时使用默认级别，.xls不受影响；
+     * XSSF工作簿需解压POI写出的各条目后重新压缩，写出耗时有所增加
+     *
+     * @return 压缩级别
+     */
+    int compressionLevel() default -1;
+
+    /**
+     * 是否压缩SXSSF临时文件，只在WorkbookType.SXLSX有效
+     *
+     * @return true/false
+     */
+    boolean compressTempFiles() default false;
+
     /**
      * 是否使用字段名称作为标题
      *
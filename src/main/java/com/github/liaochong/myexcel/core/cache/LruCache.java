@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * 有界最近最少使用缓存，超出容量时淘汰最久未访问的条目，容量可于运行期间变化，在下次放入时生效
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class LruCache<K, V> implements Cache<K, V> {
+
+    private final LinkedHashMap<K, V> cacheMap = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final IntSupplier maxSize;
+
+    private final BiConsumer<K, V> evictionListener;
+
+    public LruCache(int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * @param maxSize          最大条目数
+     * @param evictionListener 条目被淘汰时回调，可为null
+     */
+    public LruCache(int maxSize, BiConsumer<K, V> evictionListener) {
+        this(fixedSize(maxSize), evictionListener);
+    }
+
+    /**
+     * @param maxSize          最大条目数，每次放入时获取
+     * @param evictionListener 条目被淘汰时回调，可为null
+     */
+    public LruCache(IntSupplier maxSize, BiConsumer<K, V> evictionListener) {
+        this.maxSize = Objects.requireNonNull(maxSize);
+        this.evictionListener = evictionListener;
+    }
+
+    @Override
+    public synchronized void cache(K key, V value) {
+        cacheMap.put(key, value);
+        // 容量可能已调小，一次淘汰至容量以内
+        int size = maxSize.getAsInt();
+        Iterator<Map.Entry<K, V>> iterator = cacheMap.entrySet().iterator();
+        while (cacheMap.size() > size && iterator.hasNext()) {
+            Map.Entry<K, V> eldest = iterator.next();
+            iterator.remove();
+            if (Objects.nonNull(evictionListener)) {
+                evictionListener.accept(eldest.getKey(), eldest.getValue());
+            }
+        }
+    }
+
+    @Override
+    public synchronized V get(K key) {
+        return cacheMap.get(key);
+    }
+
+    public synchronized void remove(K key) {
+        cacheMap.remove(key);
+    }
+
+    public synchronized int size() {
+        return cacheMap.size();
+    }
+
+    @Override
+    public synchronized void clearAll() {
+        cacheMap.clear();
+    }
+
+    private static IntSupplier fixedSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("MaxSize must be positive");
+        }
+        return () -> maxSize;
+    }
+}
@@ -38,8 +38,11 @@ public class WeakCache<K, V> implements Cache<K, V> {
         cacheMap.put(key, value);
     }
 
+    /**
+     * WeakHashMap读取时亦会清除失效条目，需同步
+     */
     @Override
-    public V get(K key) {
+    public synchronized V get(K key) {
         return cacheMap.get(key);
     }
 
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.crypt;
+
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import com.github.liaochong.myexcel.utils.ExecutorUtil;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.poifs.crypt.CryptoFunctions;
+import org.apache.poi.poifs.crypt.EncryptionHeader;
+import org.apache.poi.poifs.crypt.EncryptionInfo;
+import org.apache.poi.poifs.crypt.EncryptionMode;
+import org.apache.poi.poifs.crypt.agile.AgileEncryptor;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentOutputStream;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.LittleEndianConsts;
+import org.apache.poi.util.TempFile;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 并行agile加密者
+ * <p>
+ * agile加密以4096字节为一段，每段以段序号生成向量后独立加密，因此可将各段分配至线程池并行加密，再按序写出，
+ * 加密结果与POI顺序加密逐字节一致，完整性校验、加密信息等沿用POI实现
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@Slf4j
+public class ParallelAgileEncryptor extends AgileEncryptor {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    /**
+     * 每个任务加密的段数
+     */
+    private static final int SEGMENTS_PER_TASK = 64;
+
+    /**
+     * 每批明文字节数上限
+     */
+    private static final int MAX_BATCH_SIZE = 16 * 1024 * 1024;
+
+    private final ExecutorService executorService;
+
+    private final int parallelism;
+
+    /**
+     * 创建并行agile加密者，并与新的agile加密信息关联
+     *
+     * @param executorService 线程池，为null时使用公共线程池
+     * @return ParallelAgileEncryptor
+     */
+    public static ParallelAgileEncryptor of(ExecutorService executorService) {
+        EncryptionInfo info = new EncryptionInfo(EncryptionMode.agile);
+        ParallelAgileEncryptor encryptor = new ParallelAgileEncryptor(executorService);
+        encryptor.setEncryptionInfo(info);
+        info.setEncryptor(encryptor);
+        return encryptor;
+    }
+
+    private ParallelAgileEncryptor(ExecutorService executorService) {
+        this.executorService = Objects.isNull(executorService) ? ForkJoinPool.commonPool() : executorService;
+        this.parallelism = ExecutorUtil.getParallelism(this.executorService);
+    }
+
+    @Override
+    public OutputStream getDataStream(@NonNull DirectoryNode dir) throws IOException {
+        return new SegmentCipherOutputStream(dir);
+    }
+
+    /**
+     * 分段加密输出流，写入的明文按批次切分为若干段区间并行加密，一批加密时可继续接收下一批明文
+     */
+    private class SegmentCipherOutputStream extends OutputStream {
+
+        private final DirectoryNode dir;
+
+        private final File tempFile;
+
+        private final OutputStream fileOut;
+
+        private final int batchSize;
+
+        private byte[] batch;
+
+        /**
+         * 加密中批次使用的缓冲区，加密完成后复用
+         */
+        private byte[] spareBatch;
+
+        private int batchPos;
+
+        private int nextSegmentIndex;
+
+        private long plainSize;
+
+        private List<CompletableFuture<byte[]>> pending = new ArrayList<>();
+
+        private boolean closed;
+
+        SegmentCipherOutputStream(DirectoryNode dir) throws IOException {
+            this.dir = dir;
+            this.tempFile = TempFile.createTempFile("encrypted_package", "crypt");
+            this.fileOut = new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()));
+            this.batchSize = (int) Math.min(MAX_BATCH_SIZE, (long) Math.max(1, parallelism) * SEGMENTS_PER_TASK * SEGMENT_SIZE);
+            this.batch = new byte[batchSize];
+            this.spareBatch = new byte[batchSize];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int nextLen = Math.min(batchSize - batchPos, len);
+                System.arraycopy(b, off, batch, batchPos, nextLen);
+                batchPos += nextLen;
+                plainSize += nextLen;
+                off += nextLen;
+                len -= nextLen;
+                if (batchPos == batchSize) {
+                    this.submitBatch(false);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                this.submitBatch(true);
+                this.writePending();
+                fileOut.close();
+                // 与POI一致，完整性校验以明文长度为流长度
+                updateIntegrityHMAC(tempFile, (int) plainSize);
+                int oleStreamSize = (int) (tempFile.length() + LittleEndianConsts.LONG_SIZE);
+                dir.createDocument(DEFAULT_POIFS_ENTRY, oleStreamSize, event -> {
+                    try {
+                        DocumentOutputStream os = event.getStream();
+                        byte[] buf = new byte[LittleEndianConsts.LONG_SIZE];
+                        LittleEndian.putLong(buf, 0, plainSize);
+                        os.write(buf);
+                        Files.copy(tempFile.toPath(), os);
+                        os.close();
+                    } catch (IOException e) {
+                        throw ExcelBuildException.of("Failed to write encrypted package", e);
+                    }
+                });
+                createEncryptionInfoEntry(dir, tempFile);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            } finally {
+                fileOut.close();
+                if (!tempFile.delete()) {
+                    log.warn("Delete temp file failure");
+                }
+            }
+        }
+
+        /**
+         * 写出上一批加密结果，并将当前批次按段区间提交加密
+         *
+         * @param last 是否为最后一批
+         * @throws IOException IOException
+         */
+        private void submitBatch(boolean last) throws IOException {
+            this.writePending();
+            if (batchPos == 0) {
+                return;
+            }
+            final byte[] plain = batch;
+            final int length = batchPos;
+            final int firstSegment = nextSegmentIndex;
+            int segmentCount = (length + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+            int taskSize = SEGMENTS_PER_TASK * SEGMENT_SIZE;
+            for (int start = 0; start < length; start += taskSize) {
+                final int from = start;
+                final int to = Math.min(start + taskSize, length);
+                // 仅整个数据的最后一段不足一段时使用填充
+                final boolean padLast = last && to == length && length % SEGMENT_SIZE != 0;
+                pending.add(CompletableFuture.supplyAsync(
+                        () -> encryptSegments(plain, from, to, firstSegment + from / SEGMENT_SIZE, padLast), executorService));
+            }
+            nextSegmentIndex += segmentCount;
+            batch = spareBatch;
+            spareBatch = plain;
+            batchPos = 0;
+        }
+
+        private void writePending() throws IOException {
+            try {
+                for (CompletableFuture<byte[]> future : pending) {
+                    fileOut.write(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            } finally {
+                pending = new ArrayList<>();
+            }
+        }
+    }
+
+    /**
+     * 加密明文中连续的若干段
+     *
+     * @param plain        明文
+     * @param from         起始位置，须为段的起始
+     * @param to           结束位置
+     * @param segmentIndex 起始段序号
+     * @param padLast      最后一段是否填充
+     * @return 密文
+     */
+    private byte[] encryptSegments(byte[] plain, int from, int to, int segmentIndex, boolean padLast) {
+        EncryptionHeader header = getEncryptionInfo().getHeader();
+        SecretKey secretKey = getSecretKey();
+        int blockSize = header.getBlockSize();
+        int length = to - from;
+        byte[] result = new byte[padLast ? (length / blockSize + 1) * blockSize : length];
+        byte[] blockKey = new byte[LittleEndianConsts.INT_SIZE];
+        try {
+            Cipher cipher = null;
+            int outPos = 0;
+            for (int pos = from; pos < to; pos += SEGMENT_SIZE, segmentIndex++) {
+                int segmentLength = Math.min(SEGMENT_SIZE, to - pos);
+                boolean padding = padLast && pos + segmentLength == to;
+                LittleEndian.putInt(blockKey, 0, segmentIndex);
+                byte[] iv = CryptoFunctions.generateIv(header.getHashAlgorithm(), header.getKeySalt(), blockKey, blockSize);
+                if (Objects.isNull(cipher) || padding) {
+                    cipher = CryptoFunctions.getCipher(secretKey, header.getCipherAlgorithm(), header.getChainingMode(), iv,
+                            Cipher.ENCRYPT_MODE, padding ? "PKCS5Padding" : "NoPadding");
+                } else {
+                    cipher.init(Cipher.ENCRYPT_MODE, secretKey, new IvParameterSpec(iv));
+                }
+                outPos += cipher.doFinal(plain, pos, segmentLength, result, outPos);
+            }
+            return result;
+        } catch (GeneralSecurityException e) {
+            throw ExcelBuildException.of("Failed to encrypt segments", e);
+        }
+    }
+}
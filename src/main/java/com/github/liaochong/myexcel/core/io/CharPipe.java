@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 有界字符管道，一个线程写入、另一个线程读取，写入方快于读取方时阻塞，任一方失败时另一方随即抛出异常
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class CharPipe {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private static final char[] EOF = new char[0];
+
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<char[]> queue;
+
+    private volatile Throwable failure;
+
+    /**
+     * @param capacity 最多缓冲的块数，每块8K字符
+     */
+    public CharPipe(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * 中止管道，读写两端随即抛出异常
+     *
+     * @param cause 原因
+     */
+    public void abort(Throwable cause) {
+        if (Objects.isNull(failure)) {
+            failure = Objects.isNull(cause) ? new IOException("Pipe aborted") : cause;
+        }
+    }
+
+    public Writer writer() {
+        return new PipeWriter();
+    }
+
+    public Reader reader() {
+        return new PipeReader();
+    }
+
+    private void checkFailure() throws IOException {
+        if (Objects.nonNull(failure)) {
+            throw new IOException("Pipe aborted", failure);
+        }
+    }
+
+    private void put(char[] chunk) throws IOException {
+        try {
+            while (!queue.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private class PipeWriter extends Writer {
+
+        private char[] chunk = new char[CHUNK_SIZE];
+
+        private int count;
+
+        private boolean closed;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Pipe writer is closed");
+            }
+            checkFailure();
+            while (len > 0) {
+                int n = Math.min(CHUNK_SIZE - count, len);
+                System.arraycopy(cbuf, off, chunk, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count == CHUNK_SIZE) {
+                    this.flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            char[] full = count == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, count);
+            chunk = new char[CHUNK_SIZE];
+            count = 0;
+            put(full);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (Objects.nonNull(failure)) {
+                return;
+            }
+            this.flush();
+            put(EOF);
+        }
+    }
+
+    private class PipeReader extends Reader {
+
+        private char[] chunk;
+
+        private int pos;
+
+        private boolean eof;
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (Objects.isNull(chunk) || pos == chunk.length) {
+                if (eof || !this.nextChunk()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(chunk.length - pos, len);
+            System.arraycopy(chunk, pos, cbuf, off, n);
+            pos += n;
+            return n;
+        }
+
+        private boolean nextChunk() throws IOException {
+            try {
+                char[] next;
+                do {
+                    checkFailure();
+                    next = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } while (Objects.isNull(next));
+                if (next == EOF) {
+                    eof = true;
+                    return false;
+                }
+                chunk = next;
+                pos = 0;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!eof) {
+                // 读取方提前结束时释放写入方
+                abort(new IOException("Pipe reader is closed"));
+            }
+        }
+    }
+}
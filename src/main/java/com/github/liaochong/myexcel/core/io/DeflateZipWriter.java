@@ -0,0 +1,275 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+import lombok.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * zip写入者，各条目以并行deflate输出流压缩，条目大小与校验值写入数据描述符，因此无需回写，可直接写入任意输出流。
+ * <p>
+ * 条目大小或偏移量超出4GB、条目数超出65535时，按zip64格式写入数据描述符、中央目录及目录结束记录
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class DeflateZipWriter {
+
+    private static final long MAX_ZIP32_VALUE = 0xFFFFFFFFL;
+
+    private static final int FLAGS = 0x0808;
+
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final int VERSION = 20;
+
+    private static final int ZIP64_VERSION = 45;
+
+    private static final int MAX_ZIP32_ENTRIES = 0xFFFF;
+
+    private final CountingOutputStream out;
+
+    private final int level;
+
+    private final ExecutorService executorService;
+
+    private final int parallelism;
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private final int dosTime;
+
+    private Entry currentEntry;
+
+    private ParallelDeflaterOutputStream currentStream;
+
+    /**
+     * @param outputStream    输出流
+     * @param level           压缩级别
+     * @param executorService 线程池，为null时在当前线程压缩
+     * @param parallelism     并行度
+     */
+    public DeflateZipWriter(@NonNull OutputStream outputStream, int level, ExecutorService executorService, int parallelism) {
+        this.out = new CountingOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+        this.level = level;
+        this.executorService = executorService;
+        this.parallelism = parallelism;
+        LocalDateTime now = LocalDateTime.now();
+        this.dosTime = (now.getYear() - 1980) << 25 | now.getMonthValue() << 21 | now.getDayOfMonth() << 16
+                | now.getHour() << 11 | now.getMinute() << 5 | now.getSecond() >> 1;
+    }
+
+    /**
+     * 开始新的条目
+     *
+     * @param name 条目名称
+     * @return 条目数据输出流，写入完成后调用closeEntry，无需关闭
+     * @throws IOException IOException
+     */
+    public OutputStream putNextEntry(@NonNull String name) throws IOException {
+        if (Objects.nonNull(currentEntry)) {
+            this.closeEntry();
+        }
+        currentEntry = new Entry(name.getBytes(StandardCharsets.UTF_8), out.getCount());
+        writeInt(0x04034b50);
+        writeShort(VERSION);
+        writeShort(FLAGS);
+        writeShort(METHOD_DEFLATED);
+        writeInt(dosTime);
+        // crc及大小写入数据描述符
+        writeInt(0);
+        writeInt(0);
+        writeInt(0);
+        writeShort(currentEntry.name.length);
+        writeShort(0);
+        out.write(currentEntry.name);
+        currentStream = new ParallelDeflaterOutputStream(new UncloseableOutputStream(out), level, executorService, parallelism);
+        return currentStream;
+    }
+
+    /**
+     * 结束当前条目
+     *
+     * @throws IOException IOException
+     */
+    public void closeEntry() throws IOException {
+        if (Objects.isNull(currentEntry)) {
+            return;
+        }
+        currentStream.finish();
+        currentEntry.crc = currentStream.getCrc();
+        currentEntry.compressedSize = currentStream.getBytesWritten();
+        currentEntry.size = currentStream.getBytesRead();
+        writeInt(0x08074b50);
+        writeInt(currentEntry.crc);
+        if (currentEntry.compressedSize >= MAX_ZIP32_VALUE || currentEntry.size >= MAX_ZIP32_VALUE) {
+            writeLong(currentEntry.compressedSize);
+            writeLong(currentEntry.size);
+        } else {
+            writeInt(currentEntry.compressedSize);
+            writeInt(currentEntry.size);
+        }
+        entries.add(currentEntry);
+        currentEntry = null;
+        currentStream = null;
+    }
+
+    /**
+     * 写出中央目录并结束zip写入，不关闭输出流
+     *
+     * @throws IOException IOException
+     */
+    public void finish() throws IOException {
+        this.closeEntry();
+        long centralDirectoryOffset = out.getCount();
+        for (Entry entry : entries) {
+            boolean zip64Size = entry.size >= MAX_ZIP32_VALUE;
+            boolean zip64CompressedSize = entry.compressedSize >= MAX_ZIP32_VALUE;
+            boolean zip64Offset = entry.offset >= MAX_ZIP32_VALUE;
+            // zip64扩展字段依次为原始大小、压缩后大小、偏移量，仅包含超出的项
+            int extraLength = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+            int version = extraLength > 0 ? ZIP64_VERSION : VERSION;
+            writeInt(0x02014b50);
+            writeShort(version);
+            writeShort(version);
+            writeShort(FLAGS);
+            writeShort(METHOD_DEFLATED);
+            writeInt(dosTime);
+            writeInt(entry.crc);
+            writeInt(Math.min(entry.compressedSize, MAX_ZIP32_VALUE));
+            writeInt(Math.min(entry.size, MAX_ZIP32_VALUE));
+            writeShort(entry.name.length);
+            writeShort(extraLength > 0 ? extraLength + 4 : 0);
+            // comment、disk、internal attributes、external attributes
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeInt(0);
+            writeInt(Math.min(entry.offset, MAX_ZIP32_VALUE));
+            out.write(entry.name);
+            if (extraLength > 0) {
+                writeShort(0x0001);
+                writeShort(extraLength);
+                if (zip64Size) {
+                    writeLong(entry.size);
+                }
+                if (zip64CompressedSize) {
+                    writeLong(entry.compressedSize);
+                }
+                if (zip64Offset) {
+                    writeLong(entry.offset);
+                }
+            }
+        }
+        long centralDirectoryEnd = out.getCount();
+        long centralDirectorySize = centralDirectoryEnd - centralDirectoryOffset;
+        if (centralDirectoryOffset >= MAX_ZIP32_VALUE || centralDirectorySize >= MAX_ZIP32_VALUE || entries.size() >= MAX_ZIP32_ENTRIES) {
+            // zip64目录结束记录及其定位符
+            writeInt(0x06064b50);
+            writeLong(44);
+            writeShort(ZIP64_VERSION);
+            writeShort(ZIP64_VERSION);
+            writeInt(0);
+            writeInt(0);
+            writeLong(entries.size());
+            writeLong(entries.size());
+            writeLong(centralDirectorySize);
+            writeLong(centralDirectoryOffset);
+            writeInt(0x07064b50);
+            writeInt(0);
+            writeLong(centralDirectoryEnd);
+            writeInt(1);
+        }
+        writeInt(0x06054b50);
+        writeShort(0);
+        writeShort(0);
+        writeShort(Math.min(entries.size(), MAX_ZIP32_ENTRIES));
+        writeShort(Math.min(entries.size(), MAX_ZIP32_ENTRIES));
+        writeInt(Math.min(centralDirectorySize, MAX_ZIP32_VALUE));
+        writeInt(Math.min(centralDirectoryOffset, MAX_ZIP32_VALUE));
+        writeShort(0);
+        out.flush();
+    }
+
+    private void writeShort(int v) throws IOException {
+        out.write(v & 0xFF);
+        out.write((v >>> 8) & 0xFF);
+    }
+
+    private void writeInt(long v) throws IOException {
+        out.write((int) (v & 0xFF));
+        out.write((int) ((v >>> 8) & 0xFF));
+        out.write((int) ((v >>> 16) & 0xFF));
+        out.write((int) ((v >>> 24) & 0xFF));
+    }
+
+    private void writeLong(long v) throws IOException {
+        writeInt(v);
+        writeInt(v >>> 32);
+    }
+
+    private static final class Entry {
+
+        private final byte[] name;
+
+        private final long offset;
+
+        private long crc;
+
+        private long compressedSize;
+
+        private long size;
+
+        private Entry(byte[] name, long offset) {
+            this.name = name;
+            this.offset = offset;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
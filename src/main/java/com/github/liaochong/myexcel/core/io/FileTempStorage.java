@@ -0,0 +1,236 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.util.TempFileCreationStrategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 文件临时存储，临时文件均位于指定目录，文件名以"myexcel_进程号_"开头，便于清理崩溃遗留的文件。
+ * <p>
+ * 配额限制经由本存储写入的字节数，写入超出时即失败；SXSSF等POI临时文件由POI直接写入，不逐字节计量，
+ * 仅在创建新的临时文件时以其当前大小计入已用空间，已用空间达到配额时拒绝创建，故对POI临时文件而言配额为软限制
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@Slf4j
+public class FileTempStorage implements TempStorage {
+
+    private static final String MARKER = "myexcel_";
+
+    /**
+     * 本存储生成的文件名，即"myexcel_进程号_序号_"开头，用户文件即使以myexcel_开头也不会匹配
+     */
+    private static final Pattern GENERATED_NAME = Pattern.compile(MARKER + "\\d+_\\d+_.*");
+
+    private static final String PID = getPid();
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final Path directory;
+
+    private final TempQuota quota;
+
+    /**
+     * POI创建的临时文件
+     */
+    private final Set<File> poiFiles = ConcurrentHashMap.newKeySet();
+
+    public FileTempStorage(@NonNull Path directory) {
+        this(directory, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param directory  临时文件目录，不存在时创建
+     * @param quotaBytes 本进程可使用的字节数
+     */
+    public FileTempStorage(@NonNull Path directory, long quotaBytes) {
+        try {
+            this.directory = Files.createDirectories(directory).toAbsolutePath();
+        } catch (IOException e) {
+            throw ExcelBuildException.of("Failed to create temp directory", e);
+        }
+        this.quota = new TempQuota(quotaBytes);
+    }
+
+    @Override
+    public TempResource create(String prefix, String suffix) {
+        try {
+            return new FileResource(this.createFile(prefix, suffix));
+        } catch (IOException e) {
+            throw ExcelBuildException.of("Failed to create temp file", e);
+        }
+    }
+
+    /**
+     * 删除其他进程遗留的过期临时文件，仅匹配本存储生成的文件名，当前进程的文件不受影响
+     *
+     * @param maxAge 最后修改时间距今超过该时长的文件视为过期
+     * @return 删除的文件数
+     */
+    public int sweepStaleFiles(@NonNull Duration maxAge) {
+        long expireTime = System.currentTimeMillis() - maxAge.toMillis();
+        String ownPrefix = MARKER + PID + "_";
+        int count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, MARKER + "*")) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                if (fileName.startsWith(ownPrefix) || !GENERATED_NAME.matcher(fileName).matches()) {
+                    continue;
+                }
+                try {
+                    if (Files.getLastModifiedTime(path).toMillis() < expireTime && Files.deleteIfExists(path)) {
+                        count++;
+                    }
+                } catch (IOException e) {
+                    log.warn("Delete stale temp file failure:{}", path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Sweep stale temp files failure", e);
+        }
+        if (count > 0) {
+            log.info("Deleted {} stale temp files in {}", count, directory);
+        }
+        return count;
+    }
+
+    /**
+     * 已用字节数，包含仍存在的POI临时文件
+     *
+     * @return 字节数
+     */
+    public long getUsedBytes() {
+        long used = quota.getUsed();
+        for (File file : poiFiles) {
+            if (file.exists()) {
+                used += file.length();
+            } else {
+                poiFiles.remove(file);
+            }
+        }
+        return used;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 供POI使用的临时文件创建策略，使SXSSF等临时文件同样位于本存储目录并计入已用空间
+     *
+     * @return TempFileCreationStrategy
+     */
+    public TempFileCreationStrategy toPoiStrategy() {
+        return new TempFileCreationStrategy() {
+            @Override
+            public File createTempFile(String prefix, String suffix) throws IOException {
+                File file = createFile(prefix, Objects.isNull(suffix) ? ".tmp" : suffix).toFile();
+                poiFiles.add(file);
+                return file;
+            }
+
+            @Override
+            public File createTempDirectory(String prefix) throws IOException {
+                return Files.createDirectory(directory.resolve(nextFileName(prefix, ""))).toFile();
+            }
+        };
+    }
+
+    private Path createFile(String prefix, String suffix) throws IOException {
+        if (this.getUsedBytes() >= quota.getLimit()) {
+            throw new IOException("Temp storage quota exceeded,limit is " + quota.getLimit() + " bytes");
+        }
+        return Files.createFile(directory.resolve(nextFileName(prefix, suffix)));
+    }
+
+    private static String nextFileName(String prefix, String suffix) {
+        return MARKER + PID + "_" + SEQUENCE.incrementAndGet() + "_" + prefix + suffix;
+    }
+
+    private static String getPid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int index = name.indexOf('@');
+        return index > 0 ? name.substring(0, index) : String.valueOf(name.hashCode() & Integer.MAX_VALUE);
+    }
+
+    private class FileResource implements TempResource {
+
+        private final Path path;
+
+        private TempQuota.QuotaOutputStream outputStream;
+
+        private FileResource(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public OutputStream openOutputStream() throws IOException {
+            this.releaseWritten();
+            outputStream = new TempQuota.QuotaOutputStream(Files.newOutputStream(path), quota);
+            return outputStream;
+        }
+
+        @Override
+        public InputStream openInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public Path getPath() {
+            return path;
+        }
+
+        @Override
+        public long size() {
+            return Objects.isNull(outputStream) ? 0 : outputStream.getCount();
+        }
+
+        @Override
+        public void close() {
+            this.releaseWritten();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Delete temp file failure");
+            }
+        }
+
+        private void releaseWritten() {
+            if (Objects.nonNull(outputStream)) {
+                quota.release(outputStream.getCount());
+                outputStream = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * 内存临时存储，适用于小数据量导出，避免磁盘IO，配额限制本进程经由本存储占用的堆内存。
+ * <p>
+ * SXSSF工作表数据仍由POI写入文件
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class MemoryTempStorage implements TempStorage {
+
+    private final TempQuota quota;
+
+    public MemoryTempStorage() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param quotaBytes 本进程可使用的字节数
+     */
+    public MemoryTempStorage(long quotaBytes) {
+        this.quota = new TempQuota(quotaBytes);
+    }
+
+    @Override
+    public TempResource create(String prefix, String suffix) {
+        return new MemoryResource();
+    }
+
+    @Override
+    public boolean isInMemory() {
+        return true;
+    }
+
+    public long getUsedBytes() {
+        return quota.getUsed();
+    }
+
+    private class MemoryResource implements TempResource {
+
+        private Buffer buffer;
+
+        private TempQuota.QuotaOutputStream outputStream;
+
+        @Override
+        public OutputStream openOutputStream() {
+            this.close();
+            buffer = new Buffer();
+            outputStream = new TempQuota.QuotaOutputStream(buffer, quota);
+            return outputStream;
+        }
+
+        @Override
+        public InputStream openInputStream() {
+            if (Objects.isNull(buffer)) {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+            return buffer.toInputStream();
+        }
+
+        @Override
+        public Path getPath() {
+            return null;
+        }
+
+        @Override
+        public long size() {
+            return Objects.isNull(buffer) ? 0 : buffer.size();
+        }
+
+        @Override
+        public void close() {
+            if (Objects.nonNull(outputStream)) {
+                quota.release(outputStream.getCount());
+                outputStream = null;
+            }
+            buffer = null;
+        }
+    }
+
+    /**
+     * 读取时不复制数组的缓冲区
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
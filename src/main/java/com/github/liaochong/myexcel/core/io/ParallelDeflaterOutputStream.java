@@ -0,0 +1,232 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 并行deflate输出流，输出为不含头尾的原始deflate数据。
+ * <p>
+ * 输入按块切分，每块以前一块末尾32K作为字典独立压缩，非最后一块以同步刷新结尾，拼接后即为一个合法的deflate流。
+ * 未指定线程池时在当前线程依次压缩各块，结果与并行压缩一致
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class ParallelDeflaterOutputStream extends OutputStream {
+
+    /**
+     * 每块大小
+     */
+    public static final int BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * 同时压缩中的块数上限
+     */
+    private static final int MAX_PENDING = 256;
+
+    private final OutputStream out;
+
+    private final int level;
+
+    private final ExecutorService executorService;
+
+    /**
+     * 同时压缩中的最大块数，限制内存占用
+     */
+    private final int maxPending;
+
+    private final Queue<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block = new byte[BLOCK_SIZE];
+
+    private int blockPos;
+
+    private byte[] dictionary;
+
+    private long bytesRead;
+
+    private long bytesWritten;
+
+    private boolean finished;
+
+    /**
+     * @param out             输出流
+     * @param level           压缩级别
+     * @param executorService 线程池，为null时在当前线程压缩
+     * @param parallelism     并行度
+     */
+    public ParallelDeflaterOutputStream(@NonNull OutputStream out, int level, ExecutorService executorService, int parallelism) {
+        this.out = out;
+        this.level = level;
+        this.executorService = executorService;
+        this.maxPending = (int) Math.min(MAX_PENDING, (long) Math.max(1, parallelism) << 1);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream is finished");
+        }
+        crc.update(b, off, len);
+        bytesRead += len;
+        while (len > 0) {
+            int nextLen = Math.min(BLOCK_SIZE - blockPos, len);
+            System.arraycopy(b, off, block, blockPos, nextLen);
+            blockPos += nextLen;
+            off += nextLen;
+            len -= nextLen;
+            if (blockPos == BLOCK_SIZE) {
+                this.submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * 压缩剩余数据并写出结束块，不关闭输出流
+     *
+     * @throws IOException IOException
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        this.submitBlock(true);
+        while (!pending.isEmpty()) {
+            this.writeFirstPending();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.finish();
+    }
+
+    public long getCrc() {
+        return crc.getValue();
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        final byte[] input = blockPos == BLOCK_SIZE ? block : Arrays.copyOf(block, blockPos);
+        final byte[] dict = dictionary;
+        if (blockPos >= DICTIONARY_SIZE) {
+            dictionary = Arrays.copyOfRange(input, blockPos - DICTIONARY_SIZE, blockPos);
+        } else if (blockPos > 0) {
+            dictionary = Objects.isNull(dict) ? Arrays.copyOf(input, blockPos) : concatTail(dict, input, blockPos);
+        }
+        block = new byte[BLOCK_SIZE];
+        blockPos = 0;
+        if (Objects.isNull(executorService)) {
+            this.writeCompressed(deflate(input, dict, level, last));
+            return;
+        }
+        while (pending.size() >= maxPending) {
+            this.writeFirstPending();
+        }
+        pending.add(CompletableFuture.supplyAsync(() -> deflate(input, dict, level, last), executorService));
+        // 写出已完成的块，尽早释放内存
+        while (!pending.isEmpty() && pending.peek().isDone()) {
+            this.writeFirstPending();
+        }
+    }
+
+    private void writeFirstPending() throws IOException {
+        try {
+            this.writeCompressed(pending.poll().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void writeCompressed(byte[] compressed) throws IOException {
+        out.write(compressed);
+        bytesWritten += compressed.length;
+    }
+
+    private static byte[] concatTail(byte[] dict, byte[] input, int length) {
+        int keep = Math.min(dict.length, DICTIONARY_SIZE - length);
+        byte[] result = new byte[keep + length];
+        System.arraycopy(dict, dict.length - keep, result, 0, keep);
+        System.arraycopy(input, 0, result, keep, length);
+        return result;
+    }
+
+    private static byte[] deflate(byte[] input, byte[] dictionary, int level, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (Objects.nonNull(dictionary)) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input);
+            ByteArrayOutputStream result = new ByteArrayOutputStream(input.length / 4 + 64);
+            byte[] buf = new byte[16 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int len = deflater.deflate(buf);
+                    result.write(buf, 0, len);
+                }
+            } else {
+                int len;
+                do {
+                    len = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                    result.write(buf, 0, len);
+                } while (len == buf.length || !deflater.needsInput());
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+}
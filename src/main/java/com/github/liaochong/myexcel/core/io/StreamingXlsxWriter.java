@@ -0,0 +1,557 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+import com.github.liaochong.myexcel.core.style.CellStyleSpec;
+import com.github.liaochong.myexcel.core.style.FontStyle;
+import com.github.liaochong.myexcel.core.style.RowBanding;
+import com.github.liaochong.myexcel.core.style.XlsxStyleTable;
+import lombok.NonNull;
+import org.apache.poi.ss.util.CellReference;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * .xlsx流式写入者，不依赖POI工作簿，直接将SpreadsheetML写入zip输出流。
+ * <p>
+ * 静态部件在start时立即写出，行数据随到随写，workbook.xml、styles.xml等依赖全部数据的部件在finish时写出，
+ * 适用于边生成边下载的场景
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class StreamingXlsxWriter {
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final String PKG_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private static final int MAX_COLUMN_WIDTH = 255;
+
+    /**
+     * 仅设置列默认样式时的列宽，与Excel默认列宽一致
+     */
+    private static final String DEFAULT_COLUMN_WIDTH = "9.140625";
+
+    private final ZipOutputStream zipOutputStream;
+
+    private final Writer writer;
+
+    private final XlsxStyleTable styleTable = new XlsxStyleTable();
+
+    private final List<String> sheetNames = new ArrayList<>();
+
+    private final Set<String> lowerCaseSheetNames = new HashSet<>();
+
+    /**
+     * 当前工作表中被跨行单元格覆盖的单元格，行->列->单元格格式序号
+     */
+    private final TreeMap<Integer, TreeMap<Integer, Integer>> coveredCellMap = new TreeMap<>();
+
+    /**
+     * 当前工作表的合并单元格
+     */
+    private final List<String> mergeCells = new ArrayList<>();
+
+    /**
+     * 斑马纹背景色，为null时不设置斑马纹
+     */
+    private String rowBandingColor;
+
+    /**
+     * 当前工作表的斑马纹数据区域
+     */
+    private RowBanding rowBanding;
+
+    /**
+     * 当前工作表的列默认样式，列->单元格格式序号
+     */
+    private final Map<Integer, Integer> columnStyleIndexMap = new HashMap<>();
+
+    private boolean sheetStarted;
+
+    private boolean finished;
+
+    public StreamingXlsxWriter(@NonNull OutputStream outputStream) {
+        this.zipOutputStream = new SyncFlushZipOutputStream(outputStream);
+        this.writer = new BufferedWriter(new OutputStreamWriter(new UncloseableOutputStream(zipOutputStream), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 设置压缩级别，需在start之前调用
+     *
+     * @param level 压缩级别
+     */
+    public void setLevel(int level) {
+        zipOutputStream.setLevel(level);
+    }
+
+    /**
+     * 设置斑马纹背景色，需在startSheet之前调用
+     *
+     * @param color 背景色
+     */
+    public void setRowBanding(String color) {
+        this.rowBandingColor = color;
+    }
+
+    /**
+     * 写出与数据无关的静态部件，并立即刷新至输出流
+     *
+     * @throws IOException IOException
+     */
+    public void start() throws IOException {
+        this.putEntry("[Content_Types].xml");
+        writer.write(XML_DECLARATION);
+        writer.write("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+        writer.write("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+        // 工作表数量事先未知，以xml默认类型声明工作表
+        writer.write("<Default Extension=\"xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        writer.write("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        writer.write("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        writer.write("<Override PartName=\"/docProps/app.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.extended-properties+xml\"/>");
+        writer.write("<Override PartName=\"/docProps/core.xml\" ContentType=\"application/vnd.openxmlformats-package.core-properties+xml\"/>");
+        writer.write("</Types>");
+        this.closeEntry();
+
+        this.putEntry("_rels/.rels");
+        writer.write(XML_DECLARATION);
+        writer.write("<Relationships xmlns=\"" + PKG_REL_NS + "\">");
+        writer.write("<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>");
+        writer.write("<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/package/2006/relationships/metadata/core-properties\" Target=\"docProps/core.xml\"/>");
+        writer.write("<Relationship Id=\"rId3\" Type=\"" + REL_NS + "/extended-properties\" Target=\"docProps/app.xml\"/>");
+        writer.write("</Relationships>");
+        this.closeEntry();
+
+        this.putEntry("docProps/app.xml");
+        writer.write(XML_DECLARATION);
+        writer.write("<Properties xmlns=\"http://schemas.openxmlformats.org/officeDocument/2006/extended-properties\"><Application>MyExcel</Application></Properties>");
+        this.closeEntry();
+
+        this.putEntry("docProps/core.xml");
+        writer.write(XML_DECLARATION);
+        writer.write("<cp:coreProperties xmlns:cp=\"http://schemas.openxmlformats.org/package/2006/metadata/core-properties\"");
+        writer.write(" xmlns:dc=\"http://purl.org/dc/elements/1.1/\" xmlns:dcterms=\"http://purl.org/dc/terms/\"");
+        writer.write(" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">");
+        writer.write("<dcterms:created xsi:type=\"dcterms:W3CDTF\">" + Instant.now().truncatedTo(ChronoUnit.SECONDS) + "</dcterms:created>");
+        writer.write("</cp:coreProperties>");
+        this.closeEntry();
+        this.flush();
+    }
+
+    /**
+     * 开始新的工作表
+     *
+     * @param sheetName   工作表名称，重复或非法时自动修正
+     * @param colSplit    冻结列数
+     * @param rowSplit    冻结行数
+     * @param colWidthMap 列宽，单位为字符数
+     * @throws IOException IOException
+     */
+    public void startSheet(String sheetName, int colSplit, int rowSplit, Map<Integer, Integer> colWidthMap) throws IOException {
+        this.startSheet(sheetName, colSplit, rowSplit, colWidthMap, null);
+    }
+
+    /**
+     * 开始新的工作表，列默认样式写入cols，与列默认样式相同且未跨行跨列的空单元格不再写出
+     *
+     * @param sheetName      工作表名称，重复或非法时自动修正
+     * @param colSplit       冻结列数
+     * @param rowSplit       冻结行数
+     * @param colWidthMap    列宽，单位为字符数
+     * @param columnStyleMap 列默认样式
+     * @throws IOException IOException
+     */
+    public void startSheet(String sheetName, int colSplit, int rowSplit, Map<Integer, Integer> colWidthMap,
+                           Map<Integer, CellStyleSpec> columnStyleMap) throws IOException {
+        if (sheetStarted) {
+            this.endSheet();
+        }
+        String name = this.uniqueSheetName(sheetName);
+        sheetNames.add(name);
+        sheetStarted = true;
+        if (Objects.nonNull(rowBandingColor)) {
+            rowBanding = new RowBanding(rowBandingColor);
+        }
+
+        this.putEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml");
+        writer.write(XML_DECLARATION);
+        writer.write("<worksheet xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\">");
+        writer.write("<sheetViews><sheetView workbookViewId=\"0\"");
+        if (sheetNames.size() == 1) {
+            writer.write(" tabSelected=\"1\"");
+        }
+        if (colSplit > 0 || rowSplit > 0) {
+            String activePane = colSplit > 0 ? (rowSplit > 0 ? "bottomRight" : "topRight") : "bottomLeft";
+            writer.write("><pane");
+            if (colSplit > 0) {
+                writer.write(" xSplit=\"" + colSplit + "\"");
+            }
+            if (rowSplit > 0) {
+                writer.write(" ySplit=\"" + rowSplit + "\"");
+            }
+            writer.write(" topLeftCell=\"" + new CellReference(rowSplit, colSplit).formatAsString() + "\" activePane=\"" + activePane + "\" state=\"frozen\"/>");
+            writer.write("<selection pane=\"" + activePane + "\"/></sheetView>");
+        } else {
+            writer.write("/>");
+        }
+        writer.write("</sheetViews>");
+        writer.write("<sheetFormatPr defaultRowHeight=\"15\"/>");
+        if (Objects.nonNull(columnStyleMap)) {
+            columnStyleMap.forEach((col, style) -> {
+                int styleIndex = styleTable.getStyleIndex(style);
+                if (styleIndex > 0) {
+                    columnStyleIndexMap.put(col, styleIndex);
+                }
+            });
+        }
+        this.writeCols(colWidthMap);
+        writer.write("<sheetData>");
+    }
+
+    /**
+     * 写入行，行号须递增
+     *
+     * @param tr 行
+     * @throws IOException IOException
+     */
+    public void writeRow(Tr tr) throws IOException {
+        if (!sheetStarted) {
+            throw new IllegalStateException("Sheet is not started");
+        }
+        int rowIndex = tr.getIndex();
+        this.writeCoveredRowsBefore(rowIndex);
+        TreeMap<Integer, Integer> coveredCells = coveredCellMap.remove(rowIndex);
+
+        short maxFontSize = 0;
+        StringBuilder cells = new StringBuilder(tr.getTdList().size() << 6);
+        for (Td td : tr.getTdList()) {
+            CellStyleSpec style = td.getStyle();
+            int styleIndex = styleTable.getStyleIndex(style);
+            maxFontSize = (short) Math.max(maxFontSize, Objects.isNull(style) ? 0 : style.getFontSize());
+            if (Objects.nonNull(coveredCells)) {
+                this.appendCoveredCells(cells, rowIndex, coveredCells.headMap(td.getCol()));
+            }
+            if (!this.isCoveredByColumnStyle(td, styleIndex)) {
+                this.appendCell(cells, rowIndex, td.getCol(), styleIndex, td.getContent());
+            }
+            for (int j = td.getCol() + 1; j <= td.getColBound(); j++) {
+                this.appendCell(cells, rowIndex, j, styleIndex, null);
+            }
+            if (td.getRowBound() > rowIndex) {
+                for (int i = rowIndex + 1; i <= td.getRowBound(); i++) {
+                    TreeMap<Integer, Integer> covered = coveredCellMap.computeIfAbsent(i, k -> new TreeMap<>());
+                    for (int j = td.getCol(); j <= td.getColBound(); j++) {
+                        covered.put(j, styleIndex);
+                    }
+                }
+            }
+            if (td.getColSpan() > 0 || td.getRowSpan() > 0) {
+                mergeCells.add(new CellReference(td.getRow(), td.getCol()).formatAsString()
+                        + ":" + new CellReference(td.getRowBound(), td.getColBound()).formatAsString());
+            }
+        }
+        if (Objects.nonNull(coveredCells)) {
+            this.appendCoveredCells(cells, rowIndex, coveredCells);
+        }
+        if (Objects.nonNull(rowBanding)) {
+            rowBanding.accept(tr);
+        }
+        // 与POI写入时保持一致的行高，默认20，字体大于默认字号时为字号+5
+        int height = maxFontSize > FontStyle.DEFAULT_FONT_SIZE ? maxFontSize + 5 : 20;
+        writer.write("<row r=\"" + (rowIndex + 1) + "\" ht=\"" + height + "\" customHeight=\"1\">");
+        writer.write(cells.toString());
+        writer.write("</row>");
+    }
+
+    /**
+     * 结束当前工作表
+     *
+     * @throws IOException IOException
+     */
+    public void endSheet() throws IOException {
+        if (!sheetStarted) {
+            return;
+        }
+        this.writeCoveredRowsBefore(Integer.MAX_VALUE);
+        writer.write("</sheetData>");
+        if (!mergeCells.isEmpty()) {
+            writer.write("<mergeCells count=\"" + mergeCells.size() + "\">");
+            for (String mergeCell : mergeCells) {
+                writer.write("<mergeCell ref=\"" + mergeCell + "\"/>");
+            }
+            writer.write("</mergeCells>");
+            mergeCells.clear();
+        }
+        this.writeRowBanding();
+        writer.write("</worksheet>");
+        this.closeEntry();
+        columnStyleIndexMap.clear();
+        sheetStarted = false;
+    }
+
+    /**
+     * 刷新已写入数据至输出流，已压缩部分同时被同步刷出
+     *
+     * @throws IOException IOException
+     */
+    public void flush() throws IOException {
+        writer.flush();
+        zipOutputStream.flush();
+    }
+
+    /**
+     * 写出工作簿、样式等部件并结束zip写入，不关闭外部输出流
+     *
+     * @throws IOException IOException
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        this.endSheet();
+        if (sheetNames.isEmpty()) {
+            this.startSheet("Sheet", 0, 0, null);
+            this.endSheet();
+        }
+        this.putEntry("xl/workbook.xml");
+        writer.write(XML_DECLARATION);
+        writer.write("<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets>");
+        for (int i = 0, size = sheetNames.size(); i < size; i++) {
+            writer.write("<sheet name=\"" + escape(sheetNames.get(i)) + "\" sheetId=\"" + (i + 1) + "\" r:id=\"rId" + (i + 1) + "\"/>");
+        }
+        writer.write("</sheets></workbook>");
+        this.closeEntry();
+
+        this.putEntry("xl/_rels/workbook.xml.rels");
+        writer.write(XML_DECLARATION);
+        writer.write("<Relationships xmlns=\"" + PKG_REL_NS + "\">");
+        for (int i = 1, size = sheetNames.size(); i <= size; i++) {
+            writer.write("<Relationship Id=\"rId" + i + "\" Type=\"" + REL_NS + "/worksheet\" Target=\"worksheets/sheet" + i + ".xml\"/>");
+        }
+        writer.write("<Relationship Id=\"rId" + (sheetNames.size() + 1) + "\" Type=\"" + REL_NS + "/styles\" Target=\"styles.xml\"/>");
+        writer.write("</Relationships>");
+        this.closeEntry();
+
+        this.putEntry("xl/styles.xml");
+        writer.write(XML_DECLARATION);
+        styleTable.write(writer);
+        this.closeEntry();
+
+        zipOutputStream.finish();
+        zipOutputStream.flush();
+    }
+
+    public boolean isSheetStarted() {
+        return sheetStarted;
+    }
+
+    public int getSheetCount() {
+        return sheetNames.size();
+    }
+
+    private void writeCols(Map<Integer, Integer> colWidthMap) throws IOException {
+        TreeMap<Integer, Integer> cols = new TreeMap<>(columnStyleIndexMap);
+        if (Objects.nonNull(colWidthMap)) {
+            colWidthMap.keySet().forEach(col -> cols.putIfAbsent(col, 0));
+        }
+        if (cols.isEmpty()) {
+            return;
+        }
+        writer.write("<cols>");
+        for (Map.Entry<Integer, Integer> entry : cols.entrySet()) {
+            int col = entry.getKey() + 1;
+            Integer width = Objects.isNull(colWidthMap) ? null : colWidthMap.get(entry.getKey());
+            writer.write("<col min=\"" + col + "\" max=\"" + col + "\"");
+            if (Objects.isNull(width)) {
+                writer.write(" width=\"" + DEFAULT_COLUMN_WIDTH + "\"");
+            } else {
+                writer.write(" width=\"" + Math.min(width, MAX_COLUMN_WIDTH) + "\" customWidth=\"1\"");
+            }
+            if (entry.getValue() > 0) {
+                writer.write(" style=\"" + entry.getValue() + "\"");
+            }
+            writer.write("/>");
+        }
+        writer.write("</cols>");
+    }
+
+    private boolean isCoveredByColumnStyle(Td td, int styleIndex) {
+        if (td.isTh() || td.getColSpan() > 0 || td.getRowSpan() > 0 || Objects.nonNull(td.getContent()) && !td.getContent().isEmpty()) {
+            return false;
+        }
+        Integer columnStyleIndex = columnStyleIndexMap.get(td.getCol());
+        return Objects.nonNull(columnStyleIndex) && columnStyleIndex == styleIndex;
+    }
+
+    private void writeRowBanding() throws IOException {
+        if (Objects.isNull(rowBanding) || rowBanding.isEmpty()) {
+            rowBanding = null;
+            return;
+        }
+        int dxfId = styleTable.getFillDxfIndex(rowBanding.getColor());
+        if (dxfId >= 0) {
+            writer.write("<conditionalFormatting sqref=\"" + rowBanding.getRange().formatAsString() + "\">");
+            writer.write("<cfRule type=\"expression\" dxfId=\"" + dxfId + "\" priority=\"1\"><formula>" + rowBanding.getFormula() + "</formula></cfRule>");
+            writer.write("</conditionalFormatting>");
+        }
+        rowBanding = null;
+    }
+
+    private void writeCoveredRowsBefore(int rowIndex) throws IOException {
+        while (!coveredCellMap.isEmpty() && coveredCellMap.firstKey() < rowIndex) {
+            Map.Entry<Integer, TreeMap<Integer, Integer>> entry = coveredCellMap.pollFirstEntry();
+            StringBuilder cells = new StringBuilder();
+            this.appendCoveredCells(cells, entry.getKey(), entry.getValue());
+            writer.write("<row r=\"" + (entry.getKey() + 1) + "\">");
+            writer.write(cells.toString());
+            writer.write("</row>");
+        }
+    }
+
+    private void appendCoveredCells(StringBuilder cells, int rowIndex, Map<Integer, Integer> coveredCells) {
+        if (coveredCells.isEmpty()) {
+            return;
+        }
+        coveredCells.forEach((col, styleIndex) -> this.appendCell(cells, rowIndex, col, styleIndex, null));
+        coveredCells.clear();
+    }
+
+    private void appendCell(StringBuilder cells, int rowIndex, int col, int styleIndex, String content) {
+        boolean hasContent = Objects.nonNull(content) && !content.isEmpty();
+        if (styleIndex == 0 && !hasContent) {
+            return;
+        }
+        cells.append("<c r=\"").append(CellReference.convertNumToColString(col)).append(rowIndex + 1).append('"');
+        if (styleIndex > 0) {
+            cells.append(" s=\"").append(styleIndex).append('"');
+        }
+        if (!hasContent) {
+            cells.append("/>");
+            return;
+        }
+        cells.append(" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+        appendEscaped(cells, content);
+        cells.append("</t></is></c>");
+    }
+
+    private String uniqueSheetName(String sheetName) {
+        String safeName = org.apache.poi.ss.util.WorkbookUtil.createSafeSheetName(sheetName);
+        String name = safeName;
+        for (int i = 1; lowerCaseSheetNames.contains(name.toLowerCase()); i++) {
+            String suffix = "(" + i + ")";
+            name = (safeName.length() + suffix.length() > 31 ? safeName.substring(0, 31 - suffix.length()) : safeName) + suffix;
+        }
+        lowerCaseSheetNames.add(name.toLowerCase());
+        return name;
+    }
+
+    private void putEntry(String entryName) throws IOException {
+        zipOutputStream.putNextEntry(new ZipEntry(entryName));
+    }
+
+    private void closeEntry() throws IOException {
+        writer.flush();
+        zipOutputStream.closeEntry();
+    }
+
+    private static String escape(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        appendEscaped(result, value);
+        return result.toString().replace("\"", "&quot;");
+    }
+
+    private static void appendEscaped(StringBuilder result, String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    result.append("&amp;");
+                    break;
+                case '<':
+                    result.append("&lt;");
+                    break;
+                case '>':
+                    result.append("&gt;");
+                    break;
+                default:
+                    // 跳过xml中非法的控制字符
+                    if (c >= 0x20 && c != 0xFFFE && c != 0xFFFF || c == '\t' || c == '\n' || c == '\r') {
+                        result.append(c);
+                    }
+            }
+        }
+    }
+
+    /**
+     * 刷新时对当前条目执行同步刷新的zip输出流，保证已写入数据能即时到达客户端
+     */
+    private static final class SyncFlushZipOutputStream extends ZipOutputStream {
+
+        private boolean entryOpen;
+
+        SyncFlushZipOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void putNextEntry(ZipEntry e) throws IOException {
+            super.putNextEntry(e);
+            entryOpen = true;
+        }
+
+        @Override
+        public void closeEntry() throws IOException {
+            super.closeEntry();
+            entryOpen = false;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (entryOpen) {
+                int len;
+                while ((len = def.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH)) > 0) {
+                    out.write(buf, 0, len);
+                }
+            }
+            out.flush();
+        }
+    }
+}
@@ -16,17 +16,21 @@
 package com.github.liaochong.myexcel.core.io;
 
 
-import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.util.DefaultTempFileCreationStrategy;
+import org.apache.poi.util.TempFile;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Objects;
 
 /**
- * 临时文件操作类
+ * 临时文件操作类，临时资源由全局临时存储创建，默认位于系统属性myexcel.temp.dir指定的目录，未指定时为当前工作目录。
+ * <p>
+ * 遗留文件仅在专用目录中清理，即myexcel.temp.dir指定的目录或setTempStorage设置的存储，当前工作目录为共用目录，不自动清理
  *
  * @author liaochong
  * @version 1.0
@@ -36,64 +40,51 @@ public class TempFileOperator {
 
     public static final String HTML_SUFFIX = ".html";
 
-    private static final int MAX_CREATE_NO = 9_999;
-
-    private static int createNo;
-
-    private static Path templateDir;
+    /**
+     * 启动时清理的遗留文件最小存在时长
+     */
+    private static final Duration STALE_FILE_AGE = Duration.ofDays(1);
 
-    private Path templateFile;
+    private static volatile TempStorage tempStorage;
 
     static {
-        try {
-            templateDir = Paths.get(new File("").getCanonicalPath());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        tempStorage = createDefaultStorage(System.getProperty("myexcel.temp.dir"), Paths.get(new File("").getAbsolutePath()));
     }
 
     /**
-     * 依据前缀名称创建临时文件
+     * 创建默认存储，指定了专用目录时清理其中的遗留文件
      *
-     * @param prefix 临时文件前缀
-     * @param suffix 临时文件后缀
-     * @return Path
+     * @param tempDir          专用目录，为null时使用工作目录
+     * @param workingDirectory 工作目录
+     * @return FileTempStorage
      */
-    public Path createTempFile(String prefix, String suffix) {
-        try {
-            templateFile = Files.createTempFile(templateDir, this.getTempFileName(prefix), suffix);
-            return templateFile;
-        } catch (IOException e) {
-            throw ExcelBuildException.of("Failed to create temp file", e);
+    static FileTempStorage createDefaultStorage(String tempDir, Path workingDirectory) {
+        if (Objects.isNull(tempDir)) {
+            return new FileTempStorage(workingDirectory);
         }
+        FileTempStorage storage = new FileTempStorage(Paths.get(tempDir));
+        storage.sweepStaleFiles(STALE_FILE_AGE);
+        return storage;
     }
 
     /**
-     * 获取临时文件名称
+     * 设置全局临时存储，为文件存储时视其目录为专用目录并清理遗留文件，并使SXSSF等POI临时文件同样位于该存储
      *
-     * @param prefix 文件前缀
-     * @return 文件名称
+     * @param storage 临时存储
      */
-    private String getTempFileName(String prefix) {
-        long currentTimeMillis = System.currentTimeMillis();
-        synchronized (this) {
-            if (createNo > MAX_CREATE_NO) {
-                createNo = 0;
-            }
-            createNo++;
+    public static void setTempStorage(@NonNull TempStorage storage) {
+        if (storage instanceof FileTempStorage) {
+            FileTempStorage fileTempStorage = (FileTempStorage) storage;
+            fileTempStorage.sweepStaleFiles(STALE_FILE_AGE);
+            TempFile.setTempFileCreationStrategy(fileTempStorage.toPoiStrategy());
+        } else {
+            TempFile.setTempFileCreationStrategy(new DefaultTempFileCreationStrategy());
         }
-        return prefix + "_" + Thread.currentThread().getId() + "_" + currentTimeMillis + "_" + createNo;
+        tempStorage = storage;
+        log.info("Use temp storage:{}", storage.getClass().getSimpleName());
     }
 
-    /**
-     * 删除临时文件
-     */
-    public void deleteTempFile() {
-        try {
-            Files.deleteIfExists(templateFile);
-        } catch (IOException e) {
-            log.warn("Delete temp file failure");
-        }
+    public static TempStorage getTempStorage() {
+        return tempStorage;
     }
-
 }
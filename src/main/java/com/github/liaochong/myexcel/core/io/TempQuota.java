@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 临时存储字节配额
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class TempQuota {
+
+    private final long limit;
+
+    private final AtomicLong used = new AtomicLong();
+
+    TempQuota(long limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Quota must be greater than 0");
+        }
+        this.limit = limit;
+    }
+
+    void reserve(long bytes) throws IOException {
+        if (used.addAndGet(bytes) > limit) {
+            used.addAndGet(-bytes);
+            throw new IOException("Temp storage quota exceeded,limit is " + limit + " bytes");
+        }
+    }
+
+    void release(long bytes) {
+        used.addAndGet(-bytes);
+    }
+
+    long getUsed() {
+        return used.get();
+    }
+
+    long getLimit() {
+        return limit;
+    }
+
+    /**
+     * 写入前占用配额的输出流
+     */
+    static final class QuotaOutputStream extends FilterOutputStream {
+
+        private final TempQuota quota;
+
+        private long count;
+
+        QuotaOutputStream(OutputStream out, TempQuota quota) {
+            super(out);
+            this.quota = quota;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            quota.reserve(1);
+            count++;
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            quota.reserve(len);
+            count += len;
+            out.write(b, off, len);
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
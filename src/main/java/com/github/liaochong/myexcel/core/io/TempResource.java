@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * 临时资源，关闭时删除并归还所占配额
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public interface TempResource extends Closeable {
+
+    /**
+     * 打开输出流，覆盖已有内容
+     *
+     * @return 输出流
+     * @throws IOException 超出配额等
+     */
+    OutputStream openOutputStream() throws IOException;
+
+    /**
+     * 打开输入流
+     *
+     * @return 输入流
+     * @throws IOException IOException
+     */
+    InputStream openInputStream() throws IOException;
+
+    /**
+     * 文件路径
+     *
+     * @return 文件路径，内存资源为null
+     */
+    Path getPath();
+
+    /**
+     * 已写入的字节数
+     *
+     * @return 字节数
+     */
+    long size();
+
+    /**
+     * 删除资源，不抛出异常
+     */
+    @Override
+    void close();
+}
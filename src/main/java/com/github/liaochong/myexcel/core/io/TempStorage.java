@@ -0,0 +1,43 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+/**
+ * 临时存储，构建过程中的模板、加密、打包等临时数据均经由临时存储创建，
+ * 可通过TempFileOperator.setTempStorage替换为指定目录（如tmpfs）、带配额或内存中的实现
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public interface TempStorage {
+
+    /**
+     * 创建临时资源
+     *
+     * @param prefix 前缀
+     * @param suffix 后缀
+     * @return 临时资源，使用完毕后需关闭
+     */
+    TempResource create(String prefix, String suffix);
+
+    /**
+     * 是否为内存存储，内存存储不提供文件路径
+     *
+     * @return true/false
+     */
+    default boolean isInMemory() {
+        return false;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * .xlsx工作簿写出者，以自定义压缩方式重新打包工作簿。
+ * <p>
+ * SXSSF工作簿先写出不含行数据的模板，再将各工作表临时文件中的行数据注入模板并压缩，与POI自身写出的方式相同；
+ * XSSF工作簿需解压POI写出的各条目后重新压缩，仅在并行压缩或指定非默认压缩级别时进行，否则由POI直接写出，.xls不涉及zip，直接写出
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@Slf4j
+public class XlsxPackageWriter {
+
+    private static final byte[] SHEET_DATA_START = "<sheetData".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] SHEET_DATA_END = "</sheetData>".getBytes(StandardCharsets.UTF_8);
+
+    private final int level;
+
+    private final ExecutorService executorService;
+
+    private final int parallelism;
+
+    /**
+     * @param level           压缩级别
+     * @param executorService 线程池，为null时在当前线程压缩
+     * @param parallelism     并行度
+     */
+    public XlsxPackageWriter(int level, ExecutorService executorService, int parallelism) {
+        this.level = level;
+        this.executorService = executorService;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 写出工作簿，不关闭工作簿及输出流
+     *
+     * @param workbook     workbook
+     * @param outputStream 输出流
+     * @throws IOException IOException
+     */
+    public void write(@NonNull Workbook workbook, @NonNull OutputStream outputStream) throws IOException {
+        if (workbook instanceof HSSFWorkbook || (!(workbook instanceof SXSSFWorkbook) && Objects.isNull(executorService)
+                && level == Deflater.DEFAULT_COMPRESSION)) {
+            workbook.write(outputStream);
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try (TempResource template = TempFileOperator.getTempStorage().create("package_template", ".xlsx")) {
+            Map<String, SheetDataSource> sheetDataMap = new HashMap<>();
+            try (OutputStream os = template.openOutputStream()) {
+                if (workbook instanceof SXSSFWorkbook) {
+                    SXSSFWorkbook sxssfWorkbook = (SXSSFWorkbook) workbook;
+                    XSSFWorkbook xssfWorkbook = sxssfWorkbook.getXSSFWorkbook();
+                    for (int i = 0, size = xssfWorkbook.getNumberOfSheets(); i < size; i++) {
+                        String entryName = xssfWorkbook.getSheetAt(i).getPackagePart().getPartName().getName().substring(1);
+                        int sheetIndex = i;
+                        sheetDataMap.put(entryName, () -> sxssfWorkbook.getSheetAt(sheetIndex).getWorksheetXMLInputStream());
+                    }
+                    xssfWorkbook.write(os);
+                } else {
+                    workbook.write(os);
+                }
+            }
+            DeflateZipWriter zipWriter = new DeflateZipWriter(outputStream, level, executorService, parallelism);
+            // 顺序读取模板，内存临时存储同样适用
+            try (ZipInputStream in = new ZipInputStream(template.openInputStream())) {
+                ZipEntry entry;
+                while (Objects.nonNull(entry = in.getNextEntry())) {
+                    OutputStream entryStream = zipWriter.putNextEntry(entry.getName());
+                    SheetDataSource sheetDataSource = sheetDataMap.get(entry.getName());
+                    if (Objects.isNull(sheetDataSource)) {
+                        IOUtils.copy(in, entryStream);
+                    } else {
+                        try (InputStream sheetData = sheetDataSource.get()) {
+                            injectSheetData(in, entryStream, sheetData);
+                        }
+                    }
+                    zipWriter.closeEntry();
+                }
+            }
+            zipWriter.finish();
+        }
+        log.info("Write workbook package,takes {} ms", System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 将行数据注入工作表模板的sheetData中，边读取模板边写出，替换模板中原有的sheetData元素
+     *
+     * @param template  工作表模板
+     * @param out       输出流
+     * @param sheetData 行数据
+     * @throws IOException IOException
+     */
+    static void injectSheetData(InputStream template, OutputStream out, InputStream sheetData) throws IOException {
+        InputStream in = new BufferedInputStream(template);
+        if (!copyUntil(in, out, SHEET_DATA_START)) {
+            throw new IOException("SheetData is not found in sheet template");
+        }
+        // 跳过开始标签的剩余部分，非自闭合时跳过原有内容
+        int previous = -1;
+        int b;
+        while ((b = in.read()) != '>') {
+            if (b < 0) {
+                throw new IOException("SheetData is not closed in sheet template");
+            }
+            previous = b;
+        }
+        if (previous != '/' && !copyUntil(in, null, SHEET_DATA_END)) {
+            throw new IOException("SheetData is not closed in sheet template");
+        }
+        out.write("<sheetData>".getBytes(StandardCharsets.UTF_8));
+        IOUtils.copy(sheetData, out);
+        out.write(SHEET_DATA_END);
+        IOUtils.copy(in, out);
+    }
+
+    /**
+     * 复制至指定标记之前，标记本身被读取但不写出，标记仅首字节为'<'，匹配失败时可从当前字节重新匹配
+     *
+     * @param in     输入流
+     * @param out    输出流，为null时丢弃
+     * @param marker 标记
+     * @return 是否找到标记
+     * @throws IOException IOException
+     */
+    private static boolean copyUntil(InputStream in, OutputStream out, byte[] marker) throws IOException {
+        int matched = 0;
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == marker[matched]) {
+                if (++matched == marker.length) {
+                    return true;
+                }
+                continue;
+            }
+            if (Objects.nonNull(out)) {
+                out.write(marker, 0, matched);
+            }
+            matched = b == marker[0] ? 1 : 0;
+            if (matched == 0 && Objects.nonNull(out)) {
+                out.write(b);
+            }
+        }
+        if (Objects.nonNull(out)) {
+            out.write(marker, 0, matched);
+        }
+        return false;
+    }
+
+    @FunctionalInterface
+    private interface SheetDataSource {
+
+        InputStream get() throws IOException;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.io;
+
+import com.github.liaochong.myexcel.utils.WorkbookUtil;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 将多个工作簿依次写入同一个zip输出流，每个工作簿写入后立即关闭并释放临时文件
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@Slf4j
+public class ZipWorkbookWriter {
+
+    private final ZipOutputStream zipOutputStream;
+
+    private final String fileName;
+
+    private int fileNum;
+
+    public ZipWorkbookWriter(@NonNull OutputStream outputStream, @NonNull String fileName) {
+        this.zipOutputStream = new ZipOutputStream(outputStream);
+        this.fileName = fileName;
+    }
+
+    /**
+     * 写入工作簿，写入后工作簿将被关闭
+     *
+     * @param workbook workbook
+     * @throws IOException IOException
+     */
+    public void write(Workbook workbook) throws IOException {
+        fileNum++;
+        String suffix = workbook instanceof HSSFWorkbook ? ".xls" : ".xlsx";
+        String entryName = fileName + "_" + fileNum + suffix;
+        long startTime = System.currentTimeMillis();
+        try {
+            zipOutputStream.putNextEntry(new ZipEntry(entryName));
+            workbook.write(new UncloseableOutputStream(zipOutputStream));
+            zipOutputStream.closeEntry();
+            zipOutputStream.flush();
+        } finally {
+            WorkbookUtil.close(workbook);
+        }
+        log.info("Write {} to zip,takes {} ms", entryName, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 结束zip写入，不关闭外部输出流
+     *
+     * @throws IOException IOException
+     */
+    public void finish() throws IOException {
+        zipOutputStream.finish();
+        zipOutputStream.flush();
+    }
+
+    public int getFileNum() {
+        return fileNum;
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.parallel;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 多个导出共用的调度器，按优先级及租户调度导出的消费任务与并行阶段的任务。
+ * <p>
+ * 优先级高的任务总是先于优先级低的任务执行，同一优先级内按租户权重加权公平排队，
+ * 各租户持续有任务排队时，执行次数与权重成正比，单个租户的大量任务不会阻塞其他租户。
+ * 消费任务运行于各自的线程中，同时运行数受限，并行阶段的任务如压缩、加密、多工作表构建由固定数目的工作线程执行
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@Slf4j
+public final class ExportScheduler {
+
+    /**
+     * 未设置权重的租户的权重
+     */
+    private static final int DEFAULT_WEIGHT = 1;
+
+    /**
+     * 优先级
+     */
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    private final int parallelism;
+
+    private int maxRunningExports;
+
+    private final Map<String, Integer> weightMap = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition taskAvailable = lock.newCondition();
+
+    private final FairQueue taskQueue = new FairQueue();
+
+    private final FairQueue exportQueue = new FairQueue();
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private int runningExportCount;
+
+    private int activeWorkerCount;
+
+    private long completedTaskCount;
+
+    private long completedExportCount;
+
+    private int exportThreadCount;
+
+    private boolean shutdown;
+
+    private ExportScheduler(int parallelism) {
+        this.parallelism = parallelism;
+        this.maxRunningExports = parallelism;
+    }
+
+    /**
+     * 创建调度器，同时运行的消费任务数默认同为并行度
+     *
+     * @param parallelism 工作线程数
+     * @return ExportScheduler
+     */
+    public static ExportScheduler of(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0");
+        }
+        return new ExportScheduler(parallelism);
+    }
+
+    /**
+     * 同时运行的消费任务数，超出时按优先级及租户排队
+     *
+     * @param maxRunningExports 同时运行的消费任务数
+     * @return ExportScheduler
+     */
+    public ExportScheduler maxRunningExports(int maxRunningExports) {
+        if (maxRunningExports <= 0) {
+            throw new IllegalArgumentException("MaxRunningExports must be greater than 0");
+        }
+        lock.lock();
+        try {
+            this.maxRunningExports = maxRunningExports;
+            this.dispatchExports();
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * 设置租户权重，默认为1
+     *
+     * @param tenant 租户
+     * @param weight 权重
+     * @return ExportScheduler
+     */
+    public ExportScheduler weight(@NonNull String tenant, int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be greater than 0");
+        }
+        weightMap.put(tenant, weight);
+        return this;
+    }
+
+    /**
+     * 获取执行并行阶段任务的线程池，可用于DeflatePolicy、ParallelAgileEncryptor等，不可关闭
+     *
+     * @param tenant   租户
+     * @param priority 优先级
+     * @return 线程池
+     */
+    public TaskExecutor executor(@NonNull String tenant, @NonNull Priority priority) {
+        return new TaskExecutor(tenant, priority, false);
+    }
+
+    /**
+     * 获取执行消费任务的线程池，每个任务运行于各自的线程中，可用于DefaultStreamExcelBuilder.threadPool等，不可关闭
+     *
+     * @param tenant   租户
+     * @param priority 优先级
+     * @return 线程池
+     */
+    public TaskExecutor exportExecutor(@NonNull String tenant, @NonNull Priority priority) {
+        return new TaskExecutor(tenant, priority, true);
+    }
+
+    /**
+     * 停止接收任务，已排队的任务仍会执行
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            taskAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取调度统计
+     *
+     * @return 统计
+     */
+    public Stats getStats() {
+        lock.lock();
+        try {
+            return new Stats(taskQueue.size(), exportQueue.size(), activeWorkerCount, runningExportCount,
+                    completedTaskCount, completedExportCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void schedule(String tenant, Priority priority, boolean export, Runnable task) {
+        int weight = weightMap.getOrDefault(tenant, DEFAULT_WEIGHT);
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Export scheduler has been shut down");
+            }
+            if (export) {
+                exportQueue.offer(tenant, priority, weight, task);
+                this.dispatchExports();
+                return;
+            }
+            taskQueue.offer(tenant, priority, weight, task);
+            if (workers.size() < parallelism && workers.size() - activeWorkerCount < taskQueue.size()) {
+                Thread worker = new Thread(this::work, "myexcel-scheduler-" + (workers.size() + 1));
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            } else {
+                taskAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在运行数允许的范围内，为排队的消费任务启动线程，需持有锁
+     */
+    private void dispatchExports() {
+        while (runningExportCount < maxRunningExports && exportQueue.size() > 0) {
+            Runnable task = exportQueue.poll();
+            runningExportCount++;
+            Thread thread = new Thread(() -> {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    log.error("Export task failed", e);
+                } finally {
+                    this.finishExport();
+                }
+            }, "myexcel-export-" + (++exportThreadCount));
+            thread.start();
+        }
+    }
+
+    private void finishExport() {
+        lock.lock();
+        try {
+            runningExportCount--;
+            completedExportCount++;
+            this.dispatchExports();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Runnable task;
+            lock.lock();
+            try {
+                while (taskQueue.size() == 0) {
+                    if (shutdown) {
+                        workers.remove(Thread.currentThread());
+                        return;
+                    }
+                    taskAvailable.awaitUninterruptibly();
+                }
+                task = taskQueue.poll();
+                activeWorkerCount++;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Scheduled task failed", e);
+            } finally {
+                lock.lock();
+                try {
+                    activeWorkerCount--;
+                    completedTaskCount++;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * 提交至调度器的线程池，绑定租户及优先级
+     */
+    public final class TaskExecutor extends AbstractExecutorService {
+
+        @Getter
+        private final String tenant;
+
+        @Getter
+        private final Priority priority;
+
+        private final boolean export;
+
+        private TaskExecutor(String tenant, Priority priority, boolean export) {
+            this.tenant = tenant;
+            this.priority = priority;
+            this.export = export;
+        }
+
+        /**
+         * 获取并行度，即调度器的工作线程数
+         *
+         * @return 并行度
+         */
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            schedule(tenant, priority, export, command);
+        }
+
+        @Override
+        public void shutdown() {
+            throw new UnsupportedOperationException("Shut down the export scheduler instead");
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            throw new UnsupportedOperationException("Shut down the export scheduler instead");
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return ExportScheduler.this.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+    }
+
+    /**
+     * 按优先级分级，同一优先级内按虚拟完成时间加权公平排队的队列，每个任务的代价记为1，非线程安全
+     */
+    private static final class FairQueue {
+
+        private final List<PriorityQueue<Entry>> queues = new ArrayList<>();
+
+        /**
+         * 各优先级的虚拟时间，即最近出队任务的完成标记
+         */
+        private final double[] virtualTimes = new double[Priority.values().length];
+
+        /**
+         * 各优先级中各租户最后入队任务的完成标记
+         */
+        private final List<Map<String, Double>> lastFinishMaps = new ArrayList<>();
+
+        private long sequence;
+
+        private int size;
+
+        FairQueue() {
+            for (int i = 0; i < Priority.values().length; i++) {
+                queues.add(new PriorityQueue<>());
+                lastFinishMaps.add(new HashMap<>());
+            }
+        }
+
+        void offer(String tenant, Priority priority, int weight, Runnable task) {
+            int level = priority.ordinal();
+            Map<String, Double> lastFinishMap = lastFinishMaps.get(level);
+            double start = Math.max(virtualTimes[level], lastFinishMap.getOrDefault(tenant, 0D));
+            double finish = start + 1D / weight;
+            lastFinishMap.put(tenant, finish);
+            queues.get(level).add(new Entry(finish, sequence++, task));
+            size++;
+        }
+
+        Runnable poll() {
+            for (int level = 0; level < queues.size(); level++) {
+                PriorityQueue<Entry> queue = queues.get(level);
+                Entry entry = queue.poll();
+                if (Objects.isNull(entry)) {
+                    continue;
+                }
+                size--;
+                virtualTimes[level] = entry.finish;
+                if (queue.isEmpty()) {
+                    // 均已出队，各租户重新以当前虚拟时间起算
+                    lastFinishMaps.get(level).clear();
+                }
+                return entry.task;
+            }
+            return null;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    @AllArgsConstructor
+    private static final class Entry implements Comparable<Entry> {
+
+        private final double finish;
+
+        private final long sequence;
+
+        private final Runnable task;
+
+        @Override
+        public int compareTo(Entry o) {
+            int result = Double.compare(finish, o.finish);
+            return result != 0 ? result : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    /**
+     * 调度统计
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static final class Stats {
+        /**
+         * 排队中的并行阶段任务数
+         */
+        private final int queuedTaskCount;
+        /**
+         * 排队中的消费任务数
+         */
+        private final int queuedExportCount;
+        /**
+         * 执行中的并行阶段任务数
+         */
+        private final int activeTaskCount;
+        /**
+         * 运行中的消费任务数
+         */
+        private final int runningExportCount;
+        /**
+         * 累计完成的并行阶段任务数
+         */
+        private final long completedTaskCount;
+        /**
+         * 累计完成的消费任务数
+         */
+        private final long completedExportCount;
+    }
+}
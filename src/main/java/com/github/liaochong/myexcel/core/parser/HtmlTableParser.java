@@ -15,7 +15,8 @@
  */
 package com.github.liaochong.myexcel.core.parser;
 
-import com.github.liaochong.myexcel.utils.StyleUtil;
+import com.github.liaochong.myexcel.core.style.CellStyleSpec;
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
 import com.github.liaochong.myexcel.utils.TdUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.CharEncoding;
@@ -26,6 +27,10 @@ import org.jsoup.select.Elements;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -50,6 +55,11 @@ public class HtmlTableParser {
      */
     private Document document;
 
+    /**
+     * 流式解析的html，设置时不构建文档树
+     */
+    private Reader reader;
+
     private HtmlTableParser() {
 
     }
@@ -61,6 +71,61 @@ public class HtmlTableParser {
         return parser;
     }
 
+    /**
+     * 流式解析html输入流，不构建文档树
+     *
+     * @param htmlInputStream html输入流，UTF-8编码，不关闭
+     * @return HtmlTableParser
+     */
+    public static HtmlTableParser of(InputStream htmlInputStream) {
+        Objects.requireNonNull(htmlInputStream);
+        return of(new InputStreamReader(htmlInputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 流式解析html，不构建文档树，仅可解析一次
+     *
+     * @param htmlReader html，不关闭
+     * @return HtmlTableParser
+     */
+    public static HtmlTableParser of(Reader htmlReader) {
+        Objects.requireNonNull(htmlReader);
+        HtmlTableParser parser = new HtmlTableParser();
+        parser.reader = htmlReader;
+        return parser;
+    }
+
+    /**
+     * 是否为流式解析
+     *
+     * @return true/false
+     */
+    public boolean isStreaming() {
+        return Objects.nonNull(reader);
+    }
+
+    /**
+     * 按文档顺序解析表格，每解析完一行即通知监听者，流式解析时内存占用与行数无关
+     *
+     * @param listener 监听者
+     * @throws IOException IOException
+     */
+    public void parse(TableListener listener) throws IOException {
+        Objects.requireNonNull(listener);
+        if (this.isStreaming()) {
+            HtmlTableTokenizer.of(reader).parse(listener);
+            return;
+        }
+        for (Table table : this.getAllTable()) {
+            List<Tr> trList = table.getTrList();
+            table.setTrList(null);
+            listener.startTable(table);
+            trList.forEach(listener::tr);
+            table.setTrList(trList);
+            listener.endTable(table);
+        }
+    }
+
     public static HtmlTableParser of(String html) {
         Objects.requireNonNull(html);
         HtmlTableParser parser = new HtmlTableParser();
@@ -76,6 +141,11 @@ public class HtmlTableParser {
     public List<Table> getAllTable() {
         log.info("Start parsing html file");
         long startTime = System.currentTimeMillis();
+        if (this.isStreaming()) {
+            List<Table> tables = this.collectAllTable();
+            log.info("Complete html file parsing,takes {} ms", System.currentTimeMillis() - startTime);
+            return tables;
+        }
         Elements tableElements = document.getElementsByTag(TableTag.table.name());
         List<Table> result = tableElements.stream().map(tableElement -> {
             Table table = new Table();
@@ -83,41 +153,81 @@ public class HtmlTableParser {
             if (!captionElements.isEmpty()) {
                 table.setCaption(captionElements.first().text());
             }
-            this.parseTrOfTable(table, tableElement, StyleUtil.parseStyle(tableElement));
+            this.parseTrOfTable(table, tableElement, CellStyleSpec.parse(tableElement.attr("style")));
             return table;
         }).collect(Collectors.toList());
         log.info("Complete html file parsing,takes {} ms", System.currentTimeMillis() - startTime);
         return result;
     }
 
+    /**
+     * 流式解析并收集所有表格
+     *
+     * @return 所有表格
+     */
+    private List<Table> collectAllTable() {
+        List<Table> tables = new ArrayList<>();
+        try {
+            HtmlTableTokenizer.of(reader).parse(new TableListener() {
+                private List<Tr> trList;
+
+                @Override
+                public void startTable(Table table) {
+                    trList = new ArrayList<>();
+                }
+
+                @Override
+                public void tr(Tr tr) {
+                    trList.add(tr);
+                }
+
+                @Override
+                public void endTable(Table table) {
+                    table.setTrList(trList);
+                    tables.add(table);
+                }
+            });
+        } catch (IOException e) {
+            throw ExcelBuildException.of("Failed to parse html", e);
+        }
+        return tables;
+    }
+
     /**
      * 解析table中的tr
      *
      * @param table table
      */
-    private void parseTrOfTable(Table table, Element tableElement, Map<String, String> tableStyle) {
-        Map<Element, Map<String, String>> parentStyleMap = new ConcurrentHashMap<>();
+    private void parseTrOfTable(Table table, Element tableElement, CellStyleSpec tableStyle) {
+        Map<Element, CellStyleSpec> parentStyleMap = new ConcurrentHashMap<>();
 
         Elements trElements = tableElement.getElementsByTag(TableTag.tr.name());
-        final Map<Integer, List<Integer>> seizeMap = new HashMap<>();
-        List<Tr> trList = IntStream.range(0, trElements.size()).mapToObj(index -> {
+        // 1、并行解析各行内容、样式、宽度，与跨行跨列无关
+        List<ParsedTr> parsedTrList = IntStream.range(0, trElements.size()).parallel().mapToObj(index -> {
             Element trElement = trElements.get(index);
             Element parent = trElement.parent();
-            Map<String, String> upperStyle;
+            CellStyleSpec upperStyle;
             if (Objects.equals(parent, tableElement)) {
                 upperStyle = tableStyle;
             } else {
                 if (parentStyleMap.containsKey(parent)) {
                     upperStyle = parentStyleMap.get(parent);
                 } else {
-                    upperStyle = StyleUtil.mixStyle(tableStyle, StyleUtil.parseStyle(parent));
+                    upperStyle = tableStyle.mix(CellStyleSpec.parse(parent.attr("style")));
                     parentStyleMap.putIfAbsent(parent, upperStyle);
                 }
             }
             Tr tr = new Tr(index);
-            this.parseTdOfTr(tr, trElement, StyleUtil.mixStyle(upperStyle, StyleUtil.parseStyle(trElement)), seizeMap);
-            return tr;
+            tr.setHeader(Objects.equals(TableTag.thead.name(), parent.tagName()));
+            return this.parseTdOfTr(tr, trElement, upperStyle.mix(CellStyleSpec.parse(trElement.attr("style"))));
         }).collect(Collectors.toList());
+        // 2、顺序确定各单元格位置
+        final SpanOccupancy occupancy = new SpanOccupancy();
+        List<Tr> trList = new ArrayList<>(parsedTrList.size());
+        for (ParsedTr parsedTr : parsedTrList) {
+            this.resolvePosition(parsedTr, occupancy);
+            trList.add(parsedTr.tr);
+        }
         table.setTrList(trList);
     }
 
@@ -127,83 +237,92 @@ public class HtmlTableParser {
      * @param tr        tr
      * @param trElement trElement
      * @param trStyle   trStyle
-     * @param seizeMap  seizeMap 占位map
+     * @return 尚未确定位置的行
      */
-    private void parseTdOfTr(Tr tr, Element trElement, Map<String, String> trStyle, Map<Integer, List<Integer>> seizeMap) {
+    private ParsedTr parseTdOfTr(Tr tr, Element trElement, CellStyleSpec trStyle) {
         Elements tdElements = trElement.children();
         if (tdElements.isEmpty()) {
             tr.setTdList(Collections.emptyList());
             tr.setColWidthMap(Collections.emptyMap());
-            return;
+            return new ParsedTr(tr, new int[0]);
         }
 
         final List<Td> tdList = new ArrayList<>(tdElements.size());
-        final Map<Integer, Integer> colWidthMap = new HashMap<>(tdElements.size());
-        List<Integer> seizeOfTr = seizeMap.getOrDefault(tr.getIndex(), Collections.emptyList());
-        // 单元格偏移量
-        int shift = 0;
+        final int[] widths = new int[tdElements.size()];
         for (int i = 0, size = tdElements.size(); i < size; i++) {
             Element tdElement = tdElements.get(i);
             Td td = new Td();
             td.setContent(tdElement.text());
             td.setTh(Objects.equals(TableTag.th.name(), tdElement.tagName()));
             td.setRow(tr.getIndex());
-            td.setStyle(StyleUtil.mixStyle(trStyle, StyleUtil.parseStyle(tdElement)));
-            // 除每行第一个单元格外，修正含跨列的单元格位置
-            td.setCol(i + shift);
-
+            td.setStyle(trStyle.mix(CellStyleSpec.parse(tdElement.attr("style"))));
             String colSpan = tdElement.attr(TableTag.colspan.name());
             td.setColSpan(TdUtil.getSpan(colSpan));
 
             String rowSpan = tdElement.attr(TableTag.rowspan.name());
             td.setRowSpan(TdUtil.getSpan(rowSpan));
 
-            if (!seizeOfTr.isEmpty()) {
-                List<Integer> checkedPositions = new ArrayList<>();
-                while (true) {
-                    List<Integer> seizePositions = seizeOfTr.stream().filter(s -> td.getCol() >= s).collect(Collectors.toList());
-                    if (!checkedPositions.isEmpty()) {
-                        seizePositions.removeAll(checkedPositions);
-                    }
-                    if (seizePositions.isEmpty()) {
-                        break;
-                    }
-                    td.setCol(td.getCol() + seizePositions.size());
-                    checkedPositions.addAll(seizePositions);
-                }
-            }
-
             int rowBound = TdUtil.get(td::getRowSpan, td::getRow);
             td.setRowBound(rowBound);
+            tdList.add(td);
+
+            widths[i] = TdUtil.getStringWidth(td.getContent());
+        }
+        tr.setTdList(tdList);
+        return new ParsedTr(tr, widths);
+    }
+
+    /**
+     * 按跨行跨列确定行中各单元格的列位置，并设置每列宽度，须按行顺序调用
+     *
+     * @param parsedTr  已解析的行
+     * @param occupancy 跨行占位
+     */
+    private void resolvePosition(ParsedTr parsedTr, SpanOccupancy occupancy) {
+        Tr tr = parsedTr.tr;
+        occupancy.startRow(tr.getIndex());
+        List<Td> tdList = tr.getTdList();
+        if (tdList.isEmpty()) {
+            return;
+        }
+        final Map<Integer, Integer> colWidthMap = new HashMap<>(tdList.size());
+        // 下一单元格的起始列
+        int colCursor = 0;
+        for (int i = 0, size = tdList.size(); i < size; i++) {
+            Td td = tdList.get(i);
+            // 跳过被上方跨行单元格占用的列
+            td.setCol(occupancy.nextFreeColumn(colCursor));
 
             int colBound = TdUtil.get(td::getColSpan, td::getCol);
             td.setColBound(colBound);
 
-            if (td.getRowSpan() > 1) {
-                for (int j = 1, length = td.getRowSpan(); j < length; j++) {
-                    int rowNum = tr.getIndex() + j;
-                    List<Integer> seizePosOfTr = seizeMap.get(rowNum);
-                    if (Objects.isNull(seizePosOfTr)) {
-                        seizePosOfTr = new ArrayList<>();
-                        seizeMap.put(rowNum, seizePosOfTr);
-                    }
-                    IntStream.rangeClosed(td.getCol(), td.getColBound()).forEach(seizePosOfTr::add);
-                }
-            }
-
-            if (td.getColSpan() > 0) {
-                shift += td.getColSpan() - 1;
-            }
-            tdList.add(td);
+            occupancy.occupy(td.getRowSpan(), td.getCol(), td.getColBound());
+            colCursor = td.getColBound() + 1;
 
             // 设置每列宽度
-            int width = TdUtil.getStringWidth(td.getContent());
-            colWidthMap.put(td.getCol(), width);
+            colWidthMap.put(td.getCol(), parsedTr.widths[i]);
         }
-        tr.setTdList(tdList);
         tr.setColWidthMap(colWidthMap);
     }
 
+    /**
+     * 尚未确定单元格位置的行
+     */
+    private static final class ParsedTr {
+
+        private final Tr tr;
+
+        /**
+         * 各单元格内容宽度，按单元格顺序
+         */
+        private final int[] widths;
+
+        private ParsedTr(Tr tr, int[] widths) {
+            this.tr = tr;
+            this.widths = widths;
+        }
+    }
+
     public enum TableTag {
         /**
          * table
@@ -0,0 +1,531 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.parser;
+
+import com.github.liaochong.myexcel.core.style.CellStyleSpec;
+import com.github.liaochong.myexcel.utils.TdUtil;
+import lombok.NonNull;
+import org.jsoup.nodes.Entities;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 流式html表格分词器，顺序读取html，每解析完一行即通知监听者，不构建文档树，内存占用与行数无关。
+ * <p>
+ * 仅识别table、caption、thead、tbody、tfoot、tr、td、th及其style、colspan、rowspan属性，
+ * 单元格文本与Jsoup的text()一致，合并连续空白；单元格内嵌套的表格仅作为文本
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class HtmlTableTokenizer {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final int MAX_ENTITY_LENGTH = 32;
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int pos;
+
+    private int limit;
+
+    private TableListener listener;
+
+    private Table table;
+
+    private boolean tableStarted;
+
+    /**
+     * 单元格内嵌套表格的深度
+     */
+    private int nestedTableDepth;
+
+    private CellStyleSpec tableStyle;
+
+    private CellStyleSpec sectionStyle;
+
+    /**
+     * 是否位于thead中
+     */
+    private boolean inThead;
+
+    private CellStyleSpec trStyle;
+
+    private Tr tr;
+
+    private List<Td> tdList;
+
+    private Map<Integer, Integer> colWidthMap;
+
+    private int rowIndex;
+
+    /**
+     * 当前行下一单元格的起始列
+     */
+    private int colCursor;
+
+    /**
+     * 被跨行单元格占用的列
+     */
+    private SpanOccupancy occupancy;
+
+    private Td td;
+
+    private StringBuilder text;
+
+    private boolean inCaption;
+
+    private boolean pendingSpace;
+
+    private HtmlTableTokenizer(Reader reader) {
+        this.reader = reader;
+    }
+
+    public static HtmlTableTokenizer of(@NonNull Reader reader) {
+        return new HtmlTableTokenizer(reader);
+    }
+
+    /**
+     * 解析全部html，不关闭reader
+     *
+     * @param listener 监听者
+     * @throws IOException IOException
+     */
+    public void parse(@NonNull TableListener listener) throws IOException {
+        this.listener = listener;
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<') {
+                this.readMarkup();
+            } else if (c == '&') {
+                this.appendText(this.readEntity());
+            } else {
+                this.appendText((char) c);
+            }
+        }
+        if (Objects.nonNull(table)) {
+            this.endTable();
+        }
+    }
+
+    private void readMarkup() throws IOException {
+        int c = read();
+        if (c == '!') {
+            int next = read();
+            if (next == '-' && read() == '-') {
+                this.skipTo("-->");
+            } else if (next != '>' && next != -1) {
+                this.skipTo(">");
+            }
+        } else if (c == '?') {
+            this.skipTo(">");
+        } else if (c == '/') {
+            String name = this.readTagName();
+            this.skipTo(">");
+            this.handleEndTag(name);
+        } else if (isLetter(c)) {
+            unread();
+            String name = this.readTagName();
+            Map<String, String> attributes = this.readAttributes();
+            this.handleStartTag(name, attributes);
+        } else {
+            this.appendText('<');
+            if (c != -1) {
+                unread();
+            }
+        }
+    }
+
+    private void handleStartTag(String name, Map<String, String> attributes) throws IOException {
+        switch (name) {
+            case "script":
+            case "style":
+            case "textarea":
+            case "title":
+                this.skipTo("</" + name);
+                this.skipTo(">");
+                return;
+            case "br":
+            case "p":
+            case "div":
+            case "li":
+                pendingSpace = true;
+                return;
+            default:
+        }
+        if (nestedTableDepth > 0) {
+            if ("table".equals(name)) {
+                nestedTableDepth++;
+            }
+            return;
+        }
+        switch (name) {
+            case "table":
+                if (Objects.nonNull(td)) {
+                    nestedTableDepth++;
+                    pendingSpace = true;
+                    return;
+                }
+                if (Objects.nonNull(table)) {
+                    this.endTable();
+                }
+                this.startTable(attributes);
+                break;
+            case "caption":
+                if (Objects.nonNull(table) && Objects.isNull(td)) {
+                    inCaption = true;
+                    text = new StringBuilder();
+                    pendingSpace = false;
+                }
+                break;
+            case "thead":
+            case "tbody":
+            case "tfoot":
+                if (Objects.nonNull(table)) {
+                    this.closeTr();
+                    sectionStyle = tableStyle.mix(CellStyleSpec.parse(attributes.get("style")));
+                    inThead = "thead".equals(name);
+                }
+                break;
+            case "tr":
+                if (Objects.nonNull(table)) {
+                    this.openTr(attributes);
+                }
+                break;
+            case "td":
+            case "th":
+                if (Objects.nonNull(table)) {
+                    if (Objects.isNull(tr)) {
+                        this.openTr(Collections.emptyMap());
+                    }
+                    this.openTd("th".equals(name), attributes);
+                }
+                break;
+            default:
+        }
+    }
+
+    private void handleEndTag(String name) {
+        switch (name) {
+            case "p":
+            case "div":
+            case "li":
+                pendingSpace = true;
+                return;
+            default:
+        }
+        if (nestedTableDepth > 0) {
+            if ("table".equals(name)) {
+                nestedTableDepth--;
+                pendingSpace = true;
+            }
+            return;
+        }
+        switch (name) {
+            case "table":
+                if (Objects.nonNull(table)) {
+                    this.endTable();
+                }
+                break;
+            case "caption":
+                if (inCaption) {
+                    inCaption = false;
+                    table.setCaption(text.toString());
+                    text = null;
+                }
+                break;
+            case "thead":
+            case "tbody":
+            case "tfoot":
+                this.closeTr();
+                sectionStyle = null;
+                inThead = false;
+                break;
+            case "tr":
+                this.closeTr();
+                break;
+            case "td":
+            case "th":
+                this.closeTd();
+                break;
+            default:
+        }
+    }
+
+    private void startTable(Map<String, String> attributes) {
+        table = new Table();
+        tableStarted = false;
+        tableStyle = CellStyleSpec.parse(attributes.get("style"));
+        sectionStyle = null;
+        inThead = false;
+        rowIndex = 0;
+        occupancy = new SpanOccupancy();
+    }
+
+    private void endTable() {
+        this.closeTr();
+        inCaption = false;
+        this.ensureTableStarted();
+        listener.endTable(table);
+        table = null;
+        sectionStyle = null;
+        inThead = false;
+        occupancy = null;
+    }
+
+    private void ensureTableStarted() {
+        if (!tableStarted) {
+            tableStarted = true;
+            listener.startTable(table);
+        }
+    }
+
+    private void openTr(Map<String, String> attributes) {
+        this.closeTr();
+        CellStyleSpec upperStyle = Objects.isNull(sectionStyle) ? tableStyle : sectionStyle;
+        trStyle = upperStyle.mix(CellStyleSpec.parse(attributes.get("style")));
+        tr = new Tr(rowIndex);
+        tr.setHeader(inThead);
+        tdList = new ArrayList<>();
+        colWidthMap = new HashMap<>();
+        colCursor = 0;
+        occupancy.startRow(rowIndex);
+    }
+
+    private void closeTr() {
+        if (Objects.isNull(tr)) {
+            return;
+        }
+        this.closeTd();
+        tr.setTdList(tdList);
+        tr.setColWidthMap(colWidthMap);
+        this.ensureTableStarted();
+        listener.tr(tr);
+        tr = null;
+        tdList = null;
+        colWidthMap = null;
+        rowIndex++;
+    }
+
+    private void openTd(boolean th, Map<String, String> attributes) {
+        this.closeTd();
+        td = new Td();
+        td.setTh(th);
+        td.setRow(tr.getIndex());
+        td.setStyle(trStyle.mix(CellStyleSpec.parse(attributes.get("style"))));
+        td.setColSpan(TdUtil.getSpan(attributes.getOrDefault("colspan", "")));
+        td.setRowSpan(TdUtil.getSpan(attributes.getOrDefault("rowspan", "")));
+        text = new StringBuilder();
+        pendingSpace = false;
+    }
+
+    private void closeTd() {
+        if (Objects.isNull(td)) {
+            return;
+        }
+        nestedTableDepth = 0;
+        td.setContent(text.toString());
+        text = null;
+        int col = occupancy.nextFreeColumn(colCursor);
+        td.setCol(col);
+        td.setRowBound(TdUtil.get(td::getRowSpan, td::getRow));
+        td.setColBound(TdUtil.get(td::getColSpan, td::getCol));
+        occupancy.occupy(td.getRowSpan(), col, td.getColBound());
+        colCursor = td.getColBound() + 1;
+        tdList.add(td);
+        colWidthMap.put(col, TdUtil.getStringWidth(td.getContent()));
+        td = null;
+    }
+
+    private void appendText(char c) {
+        if (Objects.isNull(text)) {
+            return;
+        }
+        if (Character.isWhitespace(c) || c == '\u00a0') {
+            pendingSpace = true;
+            return;
+        }
+        if (pendingSpace && text.length() > 0) {
+            text.append(' ');
+        }
+        pendingSpace = false;
+        text.append(c);
+    }
+
+    private void appendText(String s) {
+        for (int i = 0, length = s.length(); i < length; i++) {
+            this.appendText(s.charAt(i));
+        }
+    }
+
+    /**
+     * 读取并解码实体，已读取'&amp;'
+     *
+     * @return 解码结果
+     * @throws IOException IOException
+     */
+    private String readEntity() throws IOException {
+        StringBuilder name = new StringBuilder();
+        int c;
+        while ((c = read()) != -1 && (isLetter(c) || Character.isDigit(c) || c == '#') && name.length() < MAX_ENTITY_LENGTH) {
+            name.append((char) c);
+        }
+        boolean terminated = c == ';';
+        if (!terminated && c != -1) {
+            unread();
+        }
+        String entity = name.toString();
+        if (entity.startsWith("#") && entity.length() > 1) {
+            try {
+                boolean hex = entity.charAt(1) == 'x' || entity.charAt(1) == 'X';
+                int codePoint = hex ? Integer.parseInt(entity.substring(2), 16) : Integer.parseInt(entity.substring(1));
+                return new String(Character.toChars(codePoint));
+            } catch (IllegalArgumentException e) {
+                return "&" + entity + (terminated ? ";" : "");
+            }
+        }
+        if (terminated ? Entities.isNamedEntity(entity) : Entities.isBaseNamedEntity(entity)) {
+            return Entities.getByName(entity);
+        }
+        return "&" + entity + (terminated ? ";" : "");
+    }
+
+    private String readTagName() throws IOException {
+        StringBuilder name = new StringBuilder();
+        int c;
+        while ((c = read()) != -1 && !Character.isWhitespace(c) && c != '>' && c != '/') {
+            name.append(Character.toLowerCase((char) c));
+        }
+        if (c != -1) {
+            unread();
+        }
+        return name.toString();
+    }
+
+    /**
+     * 读取属性至标签结束，仅保留style、colspan、rowspan
+     *
+     * @return 属性
+     * @throws IOException IOException
+     */
+    private Map<String, String> readAttributes() throws IOException {
+        Map<String, String> attributes = Collections.emptyMap();
+        while (true) {
+            int c = this.skipWhitespace();
+            if (c == -1 || c == '>') {
+                return attributes;
+            }
+            if (c == '/') {
+                continue;
+            }
+            StringBuilder name = new StringBuilder();
+            while (c != -1 && !Character.isWhitespace(c) && c != '=' && c != '>' && c != '/') {
+                name.append(Character.toLowerCase((char) c));
+                c = read();
+            }
+            if (Character.isWhitespace(c)) {
+                c = this.skipWhitespace();
+            }
+            String value = "";
+            if (c == '=') {
+                c = this.skipWhitespace();
+                StringBuilder valueBuilder = new StringBuilder();
+                if (c == '"' || c == '\'') {
+                    int quote = c;
+                    while ((c = read()) != -1 && c != quote) {
+                        valueBuilder.append((char) c);
+                    }
+                } else {
+                    while (c != -1 && !Character.isWhitespace(c) && c != '>') {
+                        valueBuilder.append((char) c);
+                        c = read();
+                    }
+                    if (c == '>') {
+                        unread();
+                    }
+                }
+                value = valueBuilder.indexOf("&") >= 0 ? Entities.unescape(valueBuilder.toString()) : valueBuilder.toString();
+            } else if (c == '>' || c == '/') {
+                unread();
+            }
+            String attributeName = name.toString();
+            if ("style".equals(attributeName) || "colspan".equals(attributeName) || "rowspan".equals(attributeName)) {
+                if (attributes.isEmpty()) {
+                    attributes = new HashMap<>(4);
+                }
+                attributes.putIfAbsent(attributeName, value);
+            }
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != -1 && Character.isWhitespace(c));
+        return c;
+    }
+
+    /**
+     * 跳过至指定字符串之后，忽略大小写
+     *
+     * @param target 目标字符串，小写
+     * @throws IOException IOException
+     */
+    private void skipTo(String target) throws IOException {
+        int matched = 0;
+        int c;
+        while (matched < target.length() && (c = read()) != -1) {
+            if (Character.toLowerCase((char) c) == target.charAt(matched)) {
+                matched++;
+            } else {
+                matched = Character.toLowerCase((char) c) == target.charAt(0) ? 1 : 0;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = reader.read(buffer, 0, BUFFER_SIZE);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+
+    /**
+     * 回退一个字符，仅可在成功读取后调用一次
+     */
+    private void unread() {
+        pos--;
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.parser;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+/**
+ * 跨行单元格占位，以环形数组保存当前行及之后若干行被占用的列，环大小随最大跨行数增长，行经过后即释放
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class SpanOccupancy {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private BitSet[] ring = new BitSet[INITIAL_CAPACITY];
+
+    private int currentRow = -1;
+
+    /**
+     * 开始新的一行，释放已经过的行
+     *
+     * @param row 行索引，须递增
+     */
+    void startRow(int row) {
+        if (row <= currentRow) {
+            throw new IllegalArgumentException("Row must be increasing");
+        }
+        if (currentRow >= 0) {
+            int releaseEnd = Math.min(row, currentRow + ring.length);
+            for (int r = currentRow; r < releaseEnd; r++) {
+                this.clear(r);
+            }
+        }
+        currentRow = row;
+    }
+
+    /**
+     * 当前行中自指定列起第一个未被占用的列
+     *
+     * @param col 起始列
+     * @return 未被占用的列
+     */
+    int nextFreeColumn(int col) {
+        BitSet occupied = ring[this.slot(currentRow)];
+        return Objects.isNull(occupied) ? col : occupied.nextClearBit(col);
+    }
+
+    /**
+     * 当前行的单元格跨行时，占用其后各行的列
+     *
+     * @param rowSpan 跨行数
+     * @param fromCol 起始列
+     * @param toCol   结束列，包含
+     */
+    void occupy(int rowSpan, int fromCol, int toCol) {
+        if (rowSpan <= 1) {
+            return;
+        }
+        this.ensureCapacity(rowSpan);
+        for (int r = currentRow + 1, end = currentRow + rowSpan; r < end; r++) {
+            int slot = this.slot(r);
+            BitSet occupied = ring[slot];
+            if (Objects.isNull(occupied)) {
+                occupied = new BitSet();
+                ring[slot] = occupied;
+            }
+            occupied.set(fromCol, toCol + 1);
+        }
+    }
+
+    private void clear(int row) {
+        BitSet occupied = ring[this.slot(row)];
+        if (Objects.nonNull(occupied)) {
+            occupied.clear();
+        }
+    }
+
+    private int slot(int row) {
+        return row & (ring.length - 1);
+    }
+
+    /**
+     * 确保环可容纳当前行起的指定行数，扩容时保持各行位置
+     *
+     * @param rows 行数
+     */
+    private void ensureCapacity(int rows) {
+        if (rows <= ring.length) {
+            return;
+        }
+        BitSet[] newRing = new BitSet[Integer.highestOneBit(rows - 1) << 1];
+        int base = Math.max(currentRow, 0);
+        for (int r = base, end = base + ring.length; r < end; r++) {
+            newRing[r & (newRing.length - 1)] = ring[this.slot(r)];
+        }
+        ring = newRing;
+    }
+}
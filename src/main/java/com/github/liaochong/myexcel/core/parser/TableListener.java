@@ -0,0 +1,45 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.parser;
+
+/**
+ * 表格解析事件监听者，按文档顺序接收表格及行
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public interface TableListener {
+
+    /**
+     * 表格开始，此时表格标题已解析，行列表为空
+     *
+     * @param table 表格
+     */
+    void startTable(Table table);
+
+    /**
+     * 表格行，单元格位置已按跨行跨列修正
+     *
+     * @param tr 行
+     */
+    void tr(Tr tr);
+
+    /**
+     * 表格结束
+     *
+     * @param table 表格
+     */
+    void endTable(Table table);
+}
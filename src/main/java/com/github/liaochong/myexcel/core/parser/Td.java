@@ -15,12 +15,11 @@
  */
 package com.github.liaochong.myexcel.core.parser;
 
+import com.github.liaochong.myexcel.core.style.CellStyleSpec;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.experimental.FieldDefaults;
 
-import java.util.Map;
-
 /**
  * @author liaochong
  * @version 1.0
@@ -63,6 +62,6 @@ public class Td {
     /**
      * 单元格样式
      */
-    Map<String, String> style;
+    CellStyleSpec style = CellStyleSpec.EMPTY;
 
 }
@@ -42,6 +42,10 @@ public class Tr {
      * 最大宽度
      */
     Map<Integer, Integer> colWidthMap;
+    /**
+     * 是否为表头行，即位于thead中或为标题行
+     */
+    boolean header;
 
     public Tr(int index) {
         this.index = index;
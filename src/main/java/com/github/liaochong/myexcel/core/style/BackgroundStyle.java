@@ -19,9 +19,7 @@ import com.github.liaochong.myexcel.utils.ColorUtil;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.FillPatternType;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFColor;
 
-import java.awt.*;
 import java.util.Map;
 import java.util.Objects;
 
@@ -48,7 +46,7 @@ public final class BackgroundStyle {
             style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
             return;
         }
-        int[] rgb = ColorUtil.getRGBByColor(color);
+        int[] rgb = customColor.getRGB(color);
         setCustomColor(style, rgb, customColor);
     }
 
@@ -57,13 +55,11 @@ public final class BackgroundStyle {
             return;
         }
         if (customColor.isXls()) {
-            short index = ColorUtil.getCustomColorIndex(customColor, rgb);
-            style.setFillForegroundColor(index);
+            style.setFillForegroundColor(customColor.getPaletteIndex(rgb));
         } else {
-            XSSFCellStyle xssfCellStyle = (XSSFCellStyle) style;
-            xssfCellStyle.setFillForegroundColor(new XSSFColor(new Color(rgb[0], rgb[1], rgb[2]), customColor.getDefaultIndexedColorMap()));
-            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            ((XSSFCellStyle) style).setFillForegroundColor(customColor.getXSSFColor(rgb));
         }
+        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
     }
 
 }
@@ -45,6 +45,16 @@ public final class BorderStyle {
                 .collect(Collectors.toMap(b -> b.toString().toLowerCase(), b -> b));
     }
 
+    /**
+     * 获取边框样式
+     *
+     * @param borderStyle 边框样式名称
+     * @return 边框样式，不存在时为null
+     */
+    public static org.apache.poi.ss.usermodel.BorderStyle getBorderStyle(String borderStyle) {
+        return Objects.isNull(borderStyle) ? null : borderStyleMap.get(borderStyle);
+    }
+
     public static void setBorder(CellStyle cellStyle, Map<String, String> tdStyle) {
         if (Objects.isNull(tdStyle)) {
             return;
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.style;
+
+import com.github.liaochong.myexcel.utils.ColorUtil;
+import com.github.liaochong.myexcel.utils.StringUtil;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 工作簿单元格样式池。
+ * <p>
+ * 以解析后的填充、边框、对齐、字体属性而非原始样式去重，属性相同的样式共享同一单元格样式，字体亦同样共享。
+ * 单元格样式数接近工作簿上限（.xls为4000，.xlsx为64000）时不再创建新样式，改用已有样式中最相近者
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@Slf4j
+public class CellStylePool {
+
+    /**
+     * 为工作簿其他样式预留的样式数
+     */
+    private static final int RESERVED_STYLE_COUNT = 16;
+
+    private final Workbook workbook;
+
+    private final CustomColor customColor;
+
+    private final int maxStyleCount;
+
+    private final Map<StyleKey, CellStyle> styleMap = new LinkedHashMap<>();
+
+    private final Map<FontKey, Font> fontMap = new HashMap<>();
+
+    private int requestCount;
+
+    private int reusedStyleCount;
+
+    private int degradedStyleCount;
+
+    private int reusedFontCount;
+
+    public CellStylePool(@NonNull Workbook workbook, @NonNull CustomColor customColor) {
+        this.workbook = workbook;
+        this.customColor = customColor;
+        this.maxStyleCount = workbook.getSpreadsheetVersion().getMaxCellStyles() - RESERVED_STYLE_COUNT;
+    }
+
+    /**
+     * 获取样式对应的单元格样式，属性相同时复用已有单元格样式
+     *
+     * @param spec 样式
+     * @return CellStyle
+     */
+    public CellStyle getCellStyle(@NonNull CellStyleSpec spec) {
+        requestCount++;
+        FontKey fontKey = FontKey.of(spec, this.resolveColor(spec.get(FontStyle.FONT_COLOR)));
+        StyleKey styleKey = StyleKey.of(spec, this.resolveColor(spec.get(BackgroundStyle.BACKGROUND_COLOR)), fontKey);
+        CellStyle cellStyle = styleMap.get(styleKey);
+        if (Objects.nonNull(cellStyle)) {
+            reusedStyleCount++;
+            return cellStyle;
+        }
+        if (workbook.getNumCellStyles() >= maxStyleCount) {
+            return this.degrade(styleKey);
+        }
+        cellStyle = workbook.createCellStyle();
+        // background-color
+        BackgroundStyle.setBackgroundColor(cellStyle, spec.getStyle(), customColor);
+        // text-align
+        TextAlignStyle.setTextAlign(cellStyle, spec.getStyle());
+        // border
+        BorderStyle.setBorder(cellStyle, spec.getStyle());
+        // font
+        Font font = this.getFont(spec, fontKey);
+        if (Objects.nonNull(font)) {
+            cellStyle.setFont(font);
+        }
+        styleMap.put(styleKey, cellStyle);
+        return cellStyle;
+    }
+
+    /**
+     * 获取样式池统计
+     *
+     * @return 统计
+     */
+    public Stats getStats() {
+        return new Stats(requestCount, styleMap.size() - degradedStyleCount, reusedStyleCount, degradedStyleCount,
+                fontMap.size(), reusedFontCount);
+    }
+
+    private Font getFont(CellStyleSpec spec, FontKey fontKey) {
+        if (Objects.isNull(fontKey)) {
+            return null;
+        }
+        Font font = fontMap.get(fontKey);
+        if (Objects.nonNull(font)) {
+            reusedFontCount++;
+            return font;
+        }
+        font = FontStyle.createFont(workbook::createFont, spec, customColor);
+        if (Objects.nonNull(font)) {
+            fontMap.put(fontKey, font);
+        }
+        return font;
+    }
+
+    /**
+     * 样式数达到上限，以已有样式中属性最相近者代替
+     *
+     * @param styleKey 样式属性
+     * @return CellStyle
+     */
+    private CellStyle degrade(StyleKey styleKey) {
+        if (degradedStyleCount == 0) {
+            log.warn("The number of cell styles is close to the limit {},similar styles will be reused", maxStyleCount + RESERVED_STYLE_COUNT);
+        }
+        degradedStyleCount++;
+        CellStyle similarStyle = null;
+        int maxSimilarity = -1;
+        for (Map.Entry<StyleKey, CellStyle> entry : styleMap.entrySet()) {
+            int similarity = styleKey.similarity(entry.getKey());
+            if (similarity > maxSimilarity) {
+                maxSimilarity = similarity;
+                similarStyle = entry.getValue();
+            }
+        }
+        if (Objects.isNull(similarStyle)) {
+            similarStyle = workbook.getCellStyleAt(0);
+        }
+        styleMap.put(styleKey, similarStyle);
+        return similarStyle;
+    }
+
+    /**
+     * 解析颜色，预定义颜色为其序号，其余为rgb值
+     *
+     * @param color 颜色
+     * @return 颜色，无法解析时为null
+     */
+    private Object resolveColor(String color) {
+        if (StringUtil.isBlank(color)) {
+            return null;
+        }
+        Short colorPredefined = ColorUtil.getPredefinedColorIndex(color);
+        if (Objects.nonNull(colorPredefined)) {
+            return colorPredefined;
+        }
+        int[] rgb = customColor.getRGB(color);
+        if (Objects.isNull(rgb)) {
+            return null;
+        }
+        return rgb[0] << 16 | rgb[1] << 8 | rgb[2];
+    }
+
+    /**
+     * 单元格样式属性
+     */
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class StyleKey {
+
+        private final Object fillColor;
+
+        private final org.apache.poi.ss.usermodel.BorderStyle borderLeft;
+
+        private final org.apache.poi.ss.usermodel.BorderStyle borderRight;
+
+        private final org.apache.poi.ss.usermodel.BorderStyle borderTop;
+
+        private final org.apache.poi.ss.usermodel.BorderStyle borderBottom;
+
+        private final HorizontalAlignment horizontalAlignment;
+
+        private final VerticalAlignment verticalAlignment;
+
+        private final FontKey font;
+
+        private static StyleKey of(CellStyleSpec spec, Object fillColor, FontKey fontKey) {
+            return new StyleKey(fillColor,
+                    BorderStyle.getBorderStyle(spec.get(BorderStyle.BORDER_LEFT_STYLE)),
+                    BorderStyle.getBorderStyle(spec.get(BorderStyle.BORDER_RIGHT_STYLE)),
+                    BorderStyle.getBorderStyle(spec.get(BorderStyle.BORDER_TOP_STYLE)),
+                    BorderStyle.getBorderStyle(spec.get(BorderStyle.BORDER_BOTTOM_STYLE)),
+                    TextAlignStyle.getHorizontalAlignment(spec.get(TextAlignStyle.TEXT_ALIGN)),
+                    TextAlignStyle.getVerticalAlignment(spec.get(TextAlignStyle.VERTICAL_ALIGN)),
+                    fontKey);
+        }
+
+        /**
+         * 相似度，字体与填充色权重较高
+         */
+        private int similarity(StyleKey other) {
+            int similarity = 0;
+            similarity += Objects.equals(font, other.font) ? 2 : 0;
+            similarity += Objects.equals(fillColor, other.fillColor) ? 2 : 0;
+            similarity += borderLeft == other.borderLeft ? 1 : 0;
+            similarity += borderRight == other.borderRight ? 1 : 0;
+            similarity += borderTop == other.borderTop ? 1 : 0;
+            similarity += borderBottom == other.borderBottom ? 1 : 0;
+            similarity += horizontalAlignment == other.horizontalAlignment ? 1 : 0;
+            similarity += verticalAlignment == other.verticalAlignment ? 1 : 0;
+            return similarity;
+        }
+    }
+
+    /**
+     * 字体属性
+     */
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class FontKey {
+
+        private final short fontSize;
+
+        private final String fontFamily;
+
+        private final boolean italic;
+
+        private final boolean strikeout;
+
+        private final boolean bold;
+
+        private final Object color;
+
+        private static FontKey of(CellStyleSpec spec, Object color) {
+            String fontFamily = spec.get(FontStyle.FONT_FAMILY);
+            boolean italic = Objects.equals(FontStyle.ITALIC, spec.get(FontStyle.FONT_STYLE));
+            boolean strikeout = Objects.equals(FontStyle.LINE_THROUGH, spec.get(FontStyle.TEXT_DECORATION));
+            boolean bold = Objects.equals(FontStyle.BOLD, spec.get(FontStyle.FONT_WEIGHT));
+            if (spec.getFontSize() <= 0 && Objects.isNull(fontFamily) && !italic && !strikeout && !bold && Objects.isNull(color)) {
+                return null;
+            }
+            return new FontKey(spec.getFontSize(), fontFamily, italic, strikeout, bold, color);
+        }
+    }
+
+    /**
+     * 样式池统计
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static final class Stats {
+        /**
+         * 请求的不同样式数
+         */
+        private final int requestCount;
+        /**
+         * 创建的单元格样式数
+         */
+        private final int styleCount;
+        /**
+         * 复用已有单元格样式的次数
+         */
+        private final int reusedStyleCount;
+        /**
+         * 因接近上限而以相近样式代替的次数
+         */
+        private final int degradedStyleCount;
+        /**
+         * 创建的字体数
+         */
+        private final int fontCount;
+        /**
+         * 复用已有字体的次数
+         */
+        private final int reusedFontCount;
+    }
+}
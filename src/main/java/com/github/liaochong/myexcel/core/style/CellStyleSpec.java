@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.style;
+
+import com.github.liaochong.myexcel.core.cache.Cache;
+import com.github.liaochong.myexcel.core.cache.LruCache;
+import com.github.liaochong.myexcel.core.cache.WeakCache;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * 单元格样式，不可变且全局唯一，相同样式的单元格共享同一实例。
+ * <p>
+ * 创建时预先计算哈希值、字号及字体样式，单元格无需各自持有样式map，各工作簿以本实例为key查找对应的单元格样式时也无需重新计算哈希。
+ * 实例为进程内共享，不持有任何工作簿相关的对象
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public final class CellStyleSpec {
+
+    private static final String[] FONT_STYLE_NAMES = {FontStyle.FONT_SIZE, FontStyle.FONT_FAMILY, FontStyle.FONT_STYLE,
+            FontStyle.TEXT_DECORATION, FontStyle.FONT_WEIGHT, FontStyle.FONT_COLOR};
+
+    private static final Map<CellStyleSpec, WeakReference<CellStyleSpec>> INTERNED = new WeakHashMap<>();
+
+    /**
+     * style属性值与样式映射
+     */
+    private static final Cache<String, CellStyleSpec> PARSED_CACHE = new LruCache<>(1024);
+
+    /**
+     * 空样式
+     */
+    public static final CellStyleSpec EMPTY = new CellStyleSpec(Collections.emptyMap());
+
+    private final Map<String, String> style;
+
+    private final int hash;
+
+    /**
+     * 字号，未设置时为0
+     */
+    private final short fontSize;
+
+    /**
+     * 仅包含字体相关属性的样式，用作字体缓存key
+     */
+    private final CellStyleSpec fontSpec;
+
+    /**
+     * 与下级样式融合的结果，下级样式及融合结果均为弱引用，不再使用时即可回收
+     */
+    private final Cache<CellStyleSpec, WeakReference<CellStyleSpec>> mixCache = new WeakCache<>();
+
+    private CellStyleSpec(Map<String, String> style) {
+        this.style = style;
+        this.hash = style.hashCode();
+        this.fontSize = parseFontSize(style.get(FontStyle.FONT_SIZE));
+        Map<String, String> fontStyle = new HashMap<>(FONT_STYLE_NAMES.length);
+        for (String name : FONT_STYLE_NAMES) {
+            String value = style.get(name);
+            if (Objects.nonNull(value)) {
+                fontStyle.put(name, value);
+            }
+        }
+        this.fontSpec = fontStyle.size() == style.size() ? this : of(fontStyle);
+    }
+
+    /**
+     * 获取样式对应的唯一实例
+     *
+     * @param style 样式
+     * @return CellStyleSpec
+     */
+    public static CellStyleSpec of(Map<String, String> style) {
+        if (Objects.isNull(style) || style.isEmpty()) {
+            return EMPTY;
+        }
+        CellStyleSpec spec = new CellStyleSpec(Collections.unmodifiableMap(new HashMap<>(style)));
+        synchronized (INTERNED) {
+            WeakReference<CellStyleSpec> reference = INTERNED.get(spec);
+            CellStyleSpec interned = Objects.isNull(reference) ? null : reference.get();
+            if (Objects.nonNull(interned)) {
+                return interned;
+            }
+            INTERNED.put(spec, new WeakReference<>(spec));
+            return spec;
+        }
+    }
+
+    /**
+     * 解析style属性值
+     *
+     * @param style style属性值
+     * @return CellStyleSpec
+     */
+    public static CellStyleSpec parse(String style) {
+        if (Objects.isNull(style) || style.isEmpty()) {
+            return EMPTY;
+        }
+        CellStyleSpec spec = PARSED_CACHE.get(style);
+        if (Objects.isNull(spec)) {
+            String[] styleArr = style.split(";");
+            Map<String, String> result = new HashMap<>(styleArr.length);
+            for (String styleItem : styleArr) {
+                String[] styleDetail = styleItem.split(":");
+                if (styleDetail.length < 2) {
+                    continue;
+                }
+                String styleName = styleDetail[0].trim();
+                String styleValue = styleDetail[1].trim();
+                if (styleName.isEmpty() || styleValue.isEmpty()) {
+                    continue;
+                }
+                result.put(styleName, styleValue);
+            }
+            spec = of(result);
+            PARSED_CACHE.cache(style, spec);
+        }
+        return spec;
+    }
+
+    /**
+     * 与下级样式融合，下级样式优先
+     *
+     * @param lowerSpec 下级样式
+     * @return 融合结果
+     */
+    public CellStyleSpec mix(CellStyleSpec lowerSpec) {
+        if (Objects.isNull(lowerSpec) || lowerSpec.isEmpty() || lowerSpec == this) {
+            return this;
+        }
+        if (this.isEmpty()) {
+            return lowerSpec;
+        }
+        WeakReference<CellStyleSpec> reference = mixCache.get(lowerSpec);
+        CellStyleSpec result = Objects.isNull(reference) ? null : reference.get();
+        if (Objects.isNull(result)) {
+            Map<String, String> mixed = new HashMap<>(style);
+            mixed.putAll(lowerSpec.style);
+            result = of(mixed);
+            // 融合结果可能即为下级样式，值须为弱引用，否则key无法回收
+            mixCache.cache(lowerSpec, new WeakReference<>(result));
+        }
+        return result;
+    }
+
+    public String get(String name) {
+        return style.get(name);
+    }
+
+    public Map<String, String> getStyle() {
+        return style;
+    }
+
+    public boolean isEmpty() {
+        return style.isEmpty();
+    }
+
+    public short getFontSize() {
+        return fontSize;
+    }
+
+    public CellStyleSpec getFontSpec() {
+        return fontSpec;
+    }
+
+    private static short parseFontSize(String fontSize) {
+        if (Objects.isNull(fontSize)) {
+            return 0;
+        }
+        String fs = fontSize.replaceAll("\\D*", "");
+        return fs.isEmpty() ? 0 : Short.parseShort(fs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CellStyleSpec)) {
+            return false;
+        }
+        CellStyleSpec that = (CellStyleSpec) o;
+        return hash == that.hash && style.equals(that.style);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return style.toString();
+    }
+}
@@ -14,31 +14,60 @@
  */
 package com.github.liaochong.myexcel.core.style;
 
+import com.github.liaochong.myexcel.utils.ColorUtil;
 import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.hssf.usermodel.HSSFPalette;
+import org.apache.poi.hssf.util.HSSFColor;
 import org.apache.poi.xssf.usermodel.DefaultIndexedColorMap;
+import org.apache.poi.xssf.usermodel.XSSFColor;
 
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * 工作簿颜色登记，每种颜色仅解析一次，相同rgb共用调色板序号及XSSFColor
+ *
  * @author liaochong
  * @version 1.0
  */
+@Slf4j
 @Data
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class CustomColor {
 
+    /**
+     * 首个自定义调色板序号，之前为预定义颜色
+     */
+    private static final int FIRST_CUSTOM_INDEX = 56;
+
+    private static final int LAST_PALETTE_INDEX = 63;
+
+    private static final int[] UNKNOWN_RGB = new int[0];
+
     boolean isXls = false;
 
     HSSFPalette palette;
 
-    AtomicInteger colorIndex = new AtomicInteger(56);
+    AtomicInteger colorIndex = new AtomicInteger(FIRST_CUSTOM_INDEX);
 
     DefaultIndexedColorMap defaultIndexedColorMap;
 
+    @Getter(AccessLevel.NONE)
+    final Map<String, int[]> rgbMap = new HashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    final Map<Integer, Short> paletteIndexMap = new HashMap<>();
+
+    @Getter(AccessLevel.NONE)
+    final Map<Integer, XSSFColor> xssfColorMap = new HashMap<>();
+
     public CustomColor(boolean isXls, HSSFPalette palette) {
         this.isXls = isXls;
         this.palette = palette;
@@ -53,4 +82,64 @@ public class CustomColor {
         }
         return defaultIndexedColorMap;
     }
+
+    /**
+     * 解析颜色
+     *
+     * @param color 颜色，如#ffffff、rgb(255,255,255)
+     * @return rgb，无法解析时为null
+     */
+    public int[] getRGB(String color) {
+        int[] rgb = rgbMap.get(color);
+        if (Objects.isNull(rgb)) {
+            rgb = ColorUtil.getRGBByColor(color);
+            rgbMap.put(color, Objects.isNull(rgb) ? UNKNOWN_RGB : rgb);
+        }
+        return rgb == UNKNOWN_RGB ? null : rgb;
+    }
+
+    /**
+     * 获取rgb对应的调色板序号，已有相同颜色时复用，调色板已满时取最相近的颜色
+     *
+     * @param rgb rgb
+     * @return 调色板序号
+     */
+    public short getPaletteIndex(int[] rgb) {
+        int key = toKey(rgb);
+        Short index = paletteIndexMap.get(key);
+        if (Objects.nonNull(index)) {
+            return index;
+        }
+        byte red = (byte) rgb[0];
+        byte green = (byte) rgb[1];
+        byte blue = (byte) rgb[2];
+        // 预定义颜色不会被覆盖，可直接使用
+        HSSFColor color = palette.findColor(red, green, blue);
+        if (Objects.nonNull(color) && color.getIndex() < FIRST_CUSTOM_INDEX) {
+            index = color.getIndex();
+        } else if (colorIndex.get() <= LAST_PALETTE_INDEX) {
+            index = (short) colorIndex.getAndIncrement();
+            palette.setColorAtIndex(index, red, green, blue);
+        } else {
+            log.warn("The palette is full,the most similar color will be used instead of rgb({},{},{})", rgb[0], rgb[1], rgb[2]);
+            index = palette.findSimilarColor(red, green, blue).getIndex();
+        }
+        paletteIndexMap.put(key, index);
+        return index;
+    }
+
+    /**
+     * 获取rgb对应的XSSFColor，相同rgb共用同一实例
+     *
+     * @param rgb rgb
+     * @return XSSFColor
+     */
+    public XSSFColor getXSSFColor(int[] rgb) {
+        return xssfColorMap.computeIfAbsent(toKey(rgb),
+                key -> new XSSFColor(new Color(rgb[0], rgb[1], rgb[2]), this.getDefaultIndexedColorMap()));
+    }
+
+    private static int toKey(int[] rgb) {
+        return rgb[0] << 16 | rgb[1] << 8 | rgb[2];
+    }
 }
@@ -17,13 +17,9 @@ package com.github.liaochong.myexcel.core.style;
 
 import com.github.liaochong.myexcel.utils.ColorUtil;
 import com.github.liaochong.myexcel.utils.StringUtil;
-import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Font;
-import org.apache.poi.xssf.usermodel.XSSFColor;
 import org.apache.poi.xssf.usermodel.XSSFFont;
 
-import java.awt.*;
-import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
 
@@ -53,19 +49,19 @@ public final class FontStyle {
 
     public static final short DEFAULT_FONT_SIZE = 12;
 
-    public static void setFont(Supplier<Font> fontSupplier, CellStyle cellStyle, Map<String, String> tdStyle, Map<String, Font> fontMap, CustomColor customColor) {
-        String cacheKey = getCacheKey(tdStyle);
-        if (Objects.nonNull(fontMap.get(cacheKey))) {
-            cellStyle.setFont(fontMap.get(cacheKey));
-            return;
-        }
+    /**
+     * 按样式创建字体
+     *
+     * @param fontSupplier 字体提供者
+     * @param tdStyle      样式
+     * @param customColor  自定义颜色
+     * @return 字体，样式中无字体相关属性时为null
+     */
+    public static Font createFont(Supplier<Font> fontSupplier, CellStyleSpec tdStyle, CustomColor customColor) {
         Font font = null;
-        String fs = tdStyle.get(FONT_SIZE);
-        if (Objects.nonNull(fs)) {
-            fs = fs.replaceAll("\\D*", "");
-            short fontSize = Short.parseShort(fs);
+        if (tdStyle.getFontSize() > 0) {
             font = fontSupplier.get();
-            font.setFontHeightInPoints(fontSize);
+            font.setFontHeightInPoints(tdStyle.getFontSize());
         }
         String fontFamily = tdStyle.get(FONT_FAMILY);
         if (Objects.nonNull(fontFamily)) {
@@ -89,34 +85,28 @@ public final class FontStyle {
         }
         String fontColor = tdStyle.get(FONT_COLOR);
         if (StringUtil.isNotBlank(fontColor)) {
-            font = setFontColor(fontSupplier, customColor, fontColor);
-        }
-        if (Objects.nonNull(font)) {
-            cellStyle.setFont(font);
-            fontMap.put(cacheKey, font);
+            font = setFontColor(fontSupplier, font, customColor, fontColor);
         }
+        return font;
     }
 
-    private static Font setFontColor(Supplier<Font> fontSupplier, CustomColor customColor, String fontColor) {
+    private static Font setFontColor(Supplier<Font> fontSupplier, Font font, CustomColor customColor, String fontColor) {
         Short colorPredefined = ColorUtil.getPredefinedColorIndex(fontColor);
         if (Objects.nonNull(colorPredefined)) {
-            Font font = fontSupplier.get();
             font = createFontIfNull(fontSupplier, font);
             font.setColor(colorPredefined);
             return font;
         }
-        int[] rgb = ColorUtil.getRGBByColor(fontColor);
+        int[] rgb = customColor.getRGB(fontColor);
         if (Objects.isNull(rgb)) {
-            return null;
+            return font;
         }
-        Font font = null;
         if (customColor.isXls()) {
-            short index = ColorUtil.getCustomColorIndex(customColor, rgb);
             font = createFontIfNull(fontSupplier, font);
-            font.setColor(index);
+            font.setColor(customColor.getPaletteIndex(rgb));
         } else {
             font = createFontIfNull(fontSupplier, font);
-            ((XSSFFont) font).setColor(new XSSFColor(new Color(rgb[0], rgb[1], rgb[2]), customColor.getDefaultIndexedColorMap()));
+            ((XSSFFont) font).setColor(customColor.getXSSFColor(rgb));
         }
         return font;
     }
@@ -127,22 +117,4 @@ public final class FontStyle {
         }
         return font;
     }
-
-    private static String getCacheKey(Map<String, String> tdStyle) {
-        StringBuilder result = new StringBuilder();
-        appendKey(tdStyle, FONT_SIZE, result);
-        appendKey(tdStyle, FONT_FAMILY, result);
-        appendKey(tdStyle, FONT_STYLE, result);
-        appendKey(tdStyle, TEXT_DECORATION, result);
-        appendKey(tdStyle, FONT_WEIGHT, result);
-        appendKey(tdStyle, FONT_COLOR, result);
-        return result.toString();
-    }
-
-    private static void appendKey(Map<String, String> tdStyle, String styleName, StringBuilder result) {
-        String style = tdStyle.get(styleName);
-        if (Objects.nonNull(style)) {
-            result.append(styleName).append(":").append(style).append("_");
-        }
-    }
 }
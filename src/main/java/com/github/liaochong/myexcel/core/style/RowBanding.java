@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.style;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+import com.github.liaochong.myexcel.utils.ColorUtil;
+import lombok.Getter;
+import lombok.NonNull;
+import org.apache.poi.ss.usermodel.ConditionalFormattingRule;
+import org.apache.poi.ss.usermodel.PatternFormatting;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.Objects;
+
+/**
+ * 斑马纹，以一条条件格式规则为数据区域的偶数行设置背景色，单元格仅需携带公共样式。
+ * <p>
+ * 按行顺序记录工作表的数据区域，首个非标题行（全部为th的行）为数据区域首行，该行不着色，其后隔行着色
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class RowBanding {
+
+    /**
+     * 背景色
+     */
+    @Getter
+    private final String color;
+
+    private int firstRow = -1;
+
+    private int lastRow = -1;
+
+    private int lastCol = -1;
+
+    public RowBanding(@NonNull String color) {
+        this.color = color;
+    }
+
+    /**
+     * 记录行，须按行顺序调用
+     *
+     * @param tr 行
+     */
+    public void accept(Tr tr) {
+        if (tr.getTdList().isEmpty()) {
+            return;
+        }
+        if (firstRow < 0) {
+            if (tr.getTdList().stream().allMatch(Td::isTh)) {
+                return;
+            }
+            firstRow = tr.getIndex();
+        }
+        for (Td td : tr.getTdList()) {
+            lastRow = Math.max(lastRow, td.getRowBound());
+            lastCol = Math.max(lastCol, td.getColBound());
+        }
+    }
+
+    /**
+     * 是否无数据区域
+     *
+     * @return true/false
+     */
+    public boolean isEmpty() {
+        return firstRow < 0;
+    }
+
+    /**
+     * 条件格式公式，数据区域首行为第0行，奇数行着色
+     *
+     * @return 公式
+     */
+    public String getFormula() {
+        return "MOD(ROW()-" + (firstRow + 1) + ",2)=1";
+    }
+
+    /**
+     * 数据区域
+     *
+     * @return 数据区域
+     */
+    public CellRangeAddress getRange() {
+        return new CellRangeAddress(firstRow, lastRow, 0, lastCol);
+    }
+
+    /**
+     * 将条件格式写入工作表，无数据区域时忽略
+     *
+     * @param sheet       工作表
+     * @param customColor 颜色登记
+     */
+    public void apply(Sheet sheet, CustomColor customColor) {
+        if (this.isEmpty()) {
+            return;
+        }
+        SheetConditionalFormatting conditionalFormatting = sheet.getSheetConditionalFormatting();
+        ConditionalFormattingRule rule = conditionalFormatting.createConditionalFormattingRule(this.getFormula());
+        PatternFormatting patternFormatting = rule.createPatternFormatting();
+        // 条件格式中纯色填充取背景色
+        Short colorPredefined = ColorUtil.getPredefinedColorIndex(color);
+        if (Objects.nonNull(colorPredefined)) {
+            patternFormatting.setFillBackgroundColor(colorPredefined);
+        } else {
+            int[] rgb = customColor.getRGB(color);
+            if (Objects.isNull(rgb)) {
+                return;
+            }
+            if (customColor.isXls()) {
+                patternFormatting.setFillBackgroundColor(customColor.getPaletteIndex(rgb));
+            } else {
+                patternFormatting.setFillBackgroundColor(customColor.getXSSFColor(rgb));
+            }
+        }
+        patternFormatting.setFillPattern(PatternFormatting.SOLID_FOREGROUND);
+        conditionalFormatting.addConditionalFormatting(new CellRangeAddress[]{this.getRange()}, rule);
+    }
+}
@@ -48,6 +48,14 @@ public final class TextAlignStyle {
         verticalAlignmentMap.put(MIDDLE, VerticalAlignment.CENTER);
     }
 
+    public static HorizontalAlignment getHorizontalAlignment(String textAlign) {
+        return Objects.isNull(textAlign) ? null : horizontalAlignmentMap.get(textAlign);
+    }
+
+    public static VerticalAlignment getVerticalAlignment(String verticalAlign) {
+        return Objects.isNull(verticalAlign) ? null : verticalAlignmentMap.get(verticalAlign);
+    }
+
     public static void setTextAlign(CellStyle cellStyle, Map<String, String> tdStyle) {
         if (Objects.isNull(tdStyle)) {
             return;
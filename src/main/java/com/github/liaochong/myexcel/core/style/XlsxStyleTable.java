@@ -0,0 +1,282 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.style;
+
+import com.github.liaochong.myexcel.utils.ColorUtil;
+import com.github.liaochong.myexcel.utils.StringUtil;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * 流式写出.xlsx时使用的样式表，将单元格样式转换为styles.xml中的字体、填充、边框以及单元格格式
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class XlsxStyleTable {
+
+    private static final String DEFAULT_FONT = "<font><sz val=\"11\"/><name val=\"Calibri\"/><family val=\"2\"/></font>";
+
+    private static final String EMPTY_BORDER = "<border><left/><right/><top/><bottom/><diagonal/></border>";
+
+    private static final String DEFAULT_XF = "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>";
+
+    private static final Map<String, String> BORDER_STYLE_MAP;
+
+    private static final Map<String, String> HORIZONTAL_ALIGNMENT_MAP;
+
+    private static final Map<String, String> VERTICAL_ALIGNMENT_MAP;
+
+    static {
+        BORDER_STYLE_MAP = Arrays.stream(org.apache.poi.ss.usermodel.BorderStyle.values())
+                .filter(b -> b != org.apache.poi.ss.usermodel.BorderStyle.NONE)
+                .collect(Collectors.toMap(b -> b.name().toLowerCase(), b -> toCamelCase(b.name())));
+        BORDER_STYLE_MAP.put("slanted_dash_dot", "slantDashDot");
+
+        HORIZONTAL_ALIGNMENT_MAP = Arrays.stream(HorizontalAlignment.values())
+                .collect(Collectors.toMap(h -> h.name().toLowerCase(), h -> toCamelCase(h.name())));
+        HORIZONTAL_ALIGNMENT_MAP.put("center_selection", "centerContinuous");
+
+        VERTICAL_ALIGNMENT_MAP = Arrays.stream(VerticalAlignment.values())
+                .collect(Collectors.toMap(v -> v.name().toLowerCase(), v -> toCamelCase(v.name())));
+        VERTICAL_ALIGNMENT_MAP.put(TextAlignStyle.MIDDLE, "center");
+    }
+
+    /**
+     * 单元格样式与单元格格式序号映射
+     */
+    private final Map<CellStyleSpec, Integer> styleIndexMap = new HashMap<>();
+
+    private final Map<String, Integer> fonts = new LinkedHashMap<>();
+
+    private final Map<String, Integer> fills = new LinkedHashMap<>();
+
+    private final Map<String, Integer> borders = new LinkedHashMap<>();
+
+    private final Map<String, Integer> cellXfs = new LinkedHashMap<>();
+
+    /**
+     * 条件格式使用的差异格式
+     */
+    private final Map<String, Integer> dxfs = new LinkedHashMap<>();
+
+    public XlsxStyleTable() {
+        fonts.put(DEFAULT_FONT, 0);
+        fills.put("<fill><patternFill patternType=\"none\"/></fill>", 0);
+        fills.put("<fill><patternFill patternType=\"gray125\"/></fill>", 1);
+        borders.put(EMPTY_BORDER, 0);
+        cellXfs.put(DEFAULT_XF, 0);
+    }
+
+    /**
+     * 获取单元格样式对应的单元格格式序号
+     *
+     * @param spec 单元格样式
+     * @return 单元格格式序号
+     */
+    public int getStyleIndex(CellStyleSpec spec) {
+        if (Objects.isNull(spec) || spec.isEmpty()) {
+            return 0;
+        }
+        Integer index = styleIndexMap.get(spec);
+        if (Objects.nonNull(index)) {
+            return index;
+        }
+        Map<String, String> tdStyle = spec.getStyle();
+        int fontId = indexOf(fonts, this.getFont(tdStyle));
+        int fillId = indexOf(fills, this.getFill(tdStyle));
+        int borderId = indexOf(borders, this.getBorder(tdStyle));
+        String alignment = this.getAlignment(tdStyle);
+
+        StringBuilder xf = new StringBuilder("<xf numFmtId=\"0\" fontId=\"").append(fontId)
+                .append("\" fillId=\"").append(fillId)
+                .append("\" borderId=\"").append(borderId).append("\" xfId=\"0\"");
+        if (fontId > 0) {
+            xf.append(" applyFont=\"1\"");
+        }
+        if (fillId > 0) {
+            xf.append(" applyFill=\"1\"");
+        }
+        if (borderId > 0) {
+            xf.append(" applyBorder=\"1\"");
+        }
+        if (alignment.isEmpty()) {
+            xf.append("/>");
+        } else {
+            xf.append(" applyAlignment=\"1\"><alignment").append(alignment).append("/></xf>");
+        }
+        index = indexOf(cellXfs, xf.toString());
+        styleIndexMap.put(spec, index);
+        return index;
+    }
+
+    /**
+     * 获取背景色对应的差异格式序号，用于条件格式
+     *
+     * @param color 背景色
+     * @return 差异格式序号，颜色无法识别时为-1
+     */
+    public int getFillDxfIndex(String color) {
+        String xmlColor = this.getColor(color);
+        if (Objects.isNull(xmlColor)) {
+            return -1;
+        }
+        // 差异格式中纯色填充取背景色
+        return indexOf(dxfs, "<dxf><fill><patternFill patternType=\"solid\"><bgColor " + xmlColor + "/></patternFill></fill></dxf>");
+    }
+
+    /**
+     * 写出styles.xml内容
+     *
+     * @param writer writer
+     * @throws IOException IOException
+     */
+    public void write(Writer writer) throws IOException {
+        writer.write("<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+        writeElements(writer, "fonts", fonts);
+        writeElements(writer, "fills", fills);
+        writeElements(writer, "borders", borders);
+        writer.write("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>");
+        writeElements(writer, "cellXfs", cellXfs);
+        writer.write("<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>");
+        if (!dxfs.isEmpty()) {
+            writeElements(writer, "dxfs", dxfs);
+        }
+        writer.write("</styleSheet>");
+    }
+
+    private String getFont(Map<String, String> tdStyle) {
+        String fs = tdStyle.get(FontStyle.FONT_SIZE);
+        String fontFamily = tdStyle.get(FontStyle.FONT_FAMILY);
+        boolean italic = Objects.equals(FontStyle.ITALIC, tdStyle.get(FontStyle.FONT_STYLE));
+        boolean strikeout = Objects.equals(FontStyle.LINE_THROUGH, tdStyle.get(FontStyle.TEXT_DECORATION));
+        boolean bold = Objects.equals(FontStyle.BOLD, tdStyle.get(FontStyle.FONT_WEIGHT));
+        String color = this.getColor(tdStyle.get(FontStyle.FONT_COLOR));
+        if (Objects.isNull(fs) && Objects.isNull(fontFamily) && !italic && !strikeout && !bold && Objects.isNull(color)) {
+            return DEFAULT_FONT;
+        }
+        StringBuilder font = new StringBuilder("<font>");
+        if (bold) {
+            font.append("<b/>");
+        }
+        if (italic) {
+            font.append("<i/>");
+        }
+        if (strikeout) {
+            font.append("<strike/>");
+        }
+        String fontSize = Objects.isNull(fs) ? "" : fs.replaceAll("\\D*", "");
+        font.append("<sz val=\"").append(fontSize.isEmpty() ? "11" : fontSize).append("\"/>");
+        if (Objects.nonNull(color)) {
+            font.append("<color ").append(color).append("/>");
+        }
+        font.append("<name val=\"").append(Objects.isNull(fontFamily) ? "Calibri" : escape(fontFamily)).append("\"/>");
+        return font.append("</font>").toString();
+    }
+
+    private String getFill(Map<String, String> tdStyle) {
+        String color = this.getColor(tdStyle.get(BackgroundStyle.BACKGROUND_COLOR));
+        if (Objects.isNull(color)) {
+            return "<fill><patternFill patternType=\"none\"/></fill>";
+        }
+        return "<fill><patternFill patternType=\"solid\"><fgColor " + color + "/><bgColor indexed=\"64\"/></patternFill></fill>";
+    }
+
+    private String getBorder(Map<String, String> tdStyle) {
+        String left = BORDER_STYLE_MAP.get(tdStyle.get(BorderStyle.BORDER_LEFT_STYLE));
+        String right = BORDER_STYLE_MAP.get(tdStyle.get(BorderStyle.BORDER_RIGHT_STYLE));
+        String top = BORDER_STYLE_MAP.get(tdStyle.get(BorderStyle.BORDER_TOP_STYLE));
+        String bottom = BORDER_STYLE_MAP.get(tdStyle.get(BorderStyle.BORDER_BOTTOM_STYLE));
+        if (Objects.isNull(left) && Objects.isNull(right) && Objects.isNull(top) && Objects.isNull(bottom)) {
+            return EMPTY_BORDER;
+        }
+        return "<border>" + borderSide("left", left) + borderSide("right", right)
+                + borderSide("top", top) + borderSide("bottom", bottom) + "<diagonal/></border>";
+    }
+
+    private String getAlignment(Map<String, String> tdStyle) {
+        StringBuilder alignment = new StringBuilder();
+        String horizontal = HORIZONTAL_ALIGNMENT_MAP.get(tdStyle.get(TextAlignStyle.TEXT_ALIGN));
+        if (Objects.nonNull(horizontal)) {
+            alignment.append(" horizontal=\"").append(horizontal).append("\"");
+        }
+        String vertical = VERTICAL_ALIGNMENT_MAP.get(tdStyle.get(TextAlignStyle.VERTICAL_ALIGN));
+        if (Objects.nonNull(vertical)) {
+            alignment.append(" vertical=\"").append(vertical).append("\"");
+        }
+        return alignment.toString();
+    }
+
+    private String getColor(String color) {
+        if (StringUtil.isBlank(color)) {
+            return null;
+        }
+        Short colorPredefined = ColorUtil.getPredefinedColorIndex(color);
+        if (Objects.nonNull(colorPredefined)) {
+            return "indexed=\"" + colorPredefined + "\"";
+        }
+        int[] rgb = ColorUtil.getRGBByColor(color);
+        if (Objects.isNull(rgb)) {
+            return null;
+        }
+        return String.format("rgb=\"FF%02X%02X%02X\"", rgb[0], rgb[1], rgb[2]);
+    }
+
+    private static String borderSide(String side, String style) {
+        if (Objects.isNull(style)) {
+            return "<" + side + "/>";
+        }
+        return "<" + side + " style=\"" + style + "\"><color indexed=\"64\"/></" + side + ">";
+    }
+
+    private static int indexOf(Map<String, Integer> elements, String element) {
+        Integer index = elements.get(element);
+        if (Objects.isNull(index)) {
+            index = elements.size();
+            elements.put(element, index);
+        }
+        return index;
+    }
+
+    private static void writeElements(Writer writer, String tag, Map<String, Integer> elements) throws IOException {
+        writer.write("<" + tag + " count=\"" + elements.size() + "\">");
+        for (String element : elements.keySet()) {
+            writer.write(element);
+        }
+        writer.write("</" + tag + ">");
+    }
+
+    private static String toCamelCase(String name) {
+        String[] words = name.toLowerCase().split("_");
+        StringBuilder result = new StringBuilder(words[0]);
+        for (int i = 1; i < words.length; i++) {
+            result.append(StringUtil.toUpperCaseFirst(words[i]));
+        }
+        return result.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -15,25 +15,18 @@
  */
 package com.github.liaochong.myexcel.utils;
 
-import com.github.liaochong.myexcel.core.io.TempFileOperator;
+import com.github.liaochong.myexcel.core.DeflatePolicy;
 import lombok.experimental.UtilityClass;
 import org.apache.commons.codec.CharEncoding;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.openxml4j.opc.OPCPackage;
-import org.apache.poi.openxml4j.opc.PackageAccess;
-import org.apache.poi.poifs.crypt.EncryptionInfo;
 import org.apache.poi.poifs.crypt.EncryptionMode;
-import org.apache.poi.poifs.crypt.Encryptor;
-import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.usermodel.Workbook;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URLEncoder;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.util.Objects;
+import java.util.concurrent.ExecutorService;
 
 /**
  * 附件导出工具类
@@ -53,6 +46,19 @@ public final class AttachmentExportUtil {
      * @throws IOException IOException
      */
     public static void export(Workbook workbook, String fileName, HttpServletResponse response) throws IOException {
+        export(workbook, fileName, response, null);
+    }
+
+    /**
+     * 按照压缩策略导出
+     *
+     * @param workbook      workbook
+     * @param fileName      file name,suffix is not required,and it is not recommended to carry a suffix
+     * @param response      HttpServletResponse
+     * @param deflatePolicy 压缩策略，为null时使用POI默认方式写出
+     * @throws IOException IOException
+     */
+    public static void export(Workbook workbook, String fileName, HttpServletResponse response, DeflatePolicy deflatePolicy) throws IOException {
         String suffix = ".xlsx";
         if (workbook instanceof HSSFWorkbook) {
             if (fileName.endsWith(suffix)) {
@@ -65,8 +71,47 @@ public final class AttachmentExportUtil {
         }
         response.setCharacterEncoding(CharEncoding.UTF_8);
         response.addHeader("Content-Disposition", "attachment;filename=" + URLEncoder.encode(fileName, CharEncoding.UTF_8));
-        workbook.write(response.getOutputStream());
-        workbook.close();
+        WorkbookUtil.write(workbook, response.getOutputStream(), deflatePolicy);
+    }
+
+    /**
+     * 获取zip附件输出流，用于将拆分后的多个工作簿写入同一个zip附件
+     *
+     * @param fileName file name,suffix is not required,and it is not recommended to carry a suffix
+     * @param response HttpServletResponse
+     * @return OutputStream
+     * @throws IOException IOException
+     */
+    public static OutputStream zipOutputStream(String fileName, HttpServletResponse response) throws IOException {
+        String suffix = ".zip";
+        if (!fileName.endsWith(suffix)) {
+            fileName += suffix;
+        }
+        response.setCharacterEncoding(CharEncoding.UTF_8);
+        response.setContentType("application/zip");
+        response.addHeader("Content-Disposition", "attachment;filename=" + URLEncoder.encode(fileName, CharEncoding.UTF_8));
+        return response.getOutputStream();
+    }
+
+    /**
+     * 获取.xlsx流式附件输出流，设置响应头后立即提交响应，不设置内容长度，数据以分块方式随生成随发送，
+     * 配合DefaultStreamExcelBuilder.streamTo使用
+     *
+     * @param fileName file name,suffix is not required,and it is not recommended to carry a suffix
+     * @param response HttpServletResponse
+     * @return OutputStream
+     * @throws IOException IOException
+     */
+    public static OutputStream streamingOutputStream(String fileName, HttpServletResponse response) throws IOException {
+        String suffix = ".xlsx";
+        if (!fileName.endsWith(suffix)) {
+            fileName += suffix;
+        }
+        response.setCharacterEncoding(CharEncoding.UTF_8);
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.addHeader("Content-Disposition", "attachment;filename=" + URLEncoder.encode(fileName, CharEncoding.UTF_8));
+        response.flushBuffer();
+        return response.getOutputStream();
     }
 
     /**
@@ -79,36 +124,44 @@ public final class AttachmentExportUtil {
      * @throws Exception Exception
      */
     public static void encryptExport(final Workbook workbook, String fileName, HttpServletResponse response, final String password) throws Exception {
+        encryptExport(workbook, fileName, response, password, EncryptionMode.standard);
+    }
+
+    /**
+     * 按指定加密模式加密导出，工作簿直接写入加密流，不产生明文临时文件
+     *
+     * @param workbook       workbook
+     * @param fileName       fileName
+     * @param response       response
+     * @param password       password
+     * @param encryptionMode 加密模式，支持agile、standard
+     * @throws Exception Exception
+     */
+    public static void encryptExport(final Workbook workbook, String fileName, HttpServletResponse response, final String password, EncryptionMode encryptionMode) throws Exception {
+        encryptExport(workbook, fileName, response, password, encryptionMode, null);
+    }
+
+    /**
+     * 按指定加密模式加密导出，agile加密时各段并行加密，工作簿直接写入加密流，不产生明文临时文件
+     *
+     * @param workbook        workbook
+     * @param fileName        fileName
+     * @param response        response
+     * @param password        password
+     * @param encryptionMode  加密模式，支持agile、standard
+     * @param executorService agile加密时并行加密使用的线程池，为null时使用公共线程池
+     * @throws Exception Exception
+     */
+    public static void encryptExport(final Workbook workbook, String fileName, HttpServletResponse response, final String password, EncryptionMode encryptionMode, ExecutorService executorService) throws Exception {
         if (workbook instanceof HSSFWorkbook) {
             throw new IllegalArgumentException("Document encryption for.xls is not supported");
         }
-        TempFileOperator tempFileOperator = null;
-        try {
-            tempFileOperator = new TempFileOperator();
-            String suffix = ".xlsx";
-            Path path = tempFileOperator.createTempFile("encrypt_temp", suffix);
-            workbook.write(Files.newOutputStream(path));
-            workbook.close();
-
-            final POIFSFileSystem fs = new POIFSFileSystem();
-            final EncryptionInfo info = new EncryptionInfo(EncryptionMode.standard);
-            final Encryptor enc = info.getEncryptor();
-            enc.confirmPassword(password);
-
-            try (OPCPackage opc = OPCPackage.open(path.toFile(), PackageAccess.READ_WRITE);
-                 OutputStream os = enc.getDataStream(fs)) {
-                opc.save(os);
-            }
-            if (!fileName.endsWith(suffix)) {
-                fileName += suffix;
-            }
-            response.setCharacterEncoding(CharEncoding.UTF_8);
-            response.addHeader("Content-Disposition", "attachment;filename=" + URLEncoder.encode(fileName, CharEncoding.UTF_8));
-            fs.writeFilesystem(response.getOutputStream());
-        } finally {
-            if (Objects.nonNull(tempFileOperator)) {
-                tempFileOperator.deleteTempFile();
-            }
+        String suffix = ".xlsx";
+        if (!fileName.endsWith(suffix)) {
+            fileName += suffix;
         }
+        response.setCharacterEncoding(CharEncoding.UTF_8);
+        response.addHeader("Content-Disposition", "attachment;filename=" + URLEncoder.encode(fileName, CharEncoding.UTF_8));
+        EncryptUtil.encrypt(workbook, password, encryptionMode, executorService, response.getOutputStream());
     }
 }
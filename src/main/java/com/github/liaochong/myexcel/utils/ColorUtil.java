@@ -17,7 +17,6 @@ package com.github.liaochong.myexcel.utils;
 import com.github.liaochong.myexcel.core.style.CustomColor;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
-import org.apache.poi.hssf.usermodel.HSSFPalette;
 import org.apache.poi.hssf.util.HSSFColor;
 
 import java.util.Arrays;
@@ -53,7 +52,7 @@ public class ColorUtil {
     }
 
     public static Short getCustomColorIndex(@NonNull CustomColor customColor, @NonNull String color) {
-        int[] rgb = getRGBByColor(color);
+        int[] rgb = customColor.getRGB(color);
         if (Objects.isNull(rgb)) {
             return null;
         }
@@ -61,10 +60,7 @@ public class ColorUtil {
     }
 
     public static Short getCustomColorIndex(@NonNull CustomColor customColor, @NonNull int[] rgb) {
-        HSSFPalette palette = customColor.getPalette();
-        short index = (short) customColor.getColorIndex().getAndIncrement();
-        palette.setColorAtIndex(index, (byte) rgb[0], (byte) rgb[1], (byte) rgb[2]);
-        return index;
+        return customColor.getPaletteIndex(rgb);
     }
 
     public static int[] getRGBByColor(@NonNull String color) {
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.utils;
+
+import com.github.liaochong.myexcel.core.crypt.ParallelAgileEncryptor;
+import com.github.liaochong.myexcel.core.io.TempFileOperator;
+import com.github.liaochong.myexcel.core.io.TempResource;
+import com.github.liaochong.myexcel.core.io.TempStorage;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.crypt.EncryptionInfo;
+import org.apache.poi.poifs.crypt.EncryptionMode;
+import org.apache.poi.poifs.crypt.Encryptor;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 工作簿加密工具类，工作簿序列化结果直接写入加密流，不产生明文临时文件，也不重新打开工作簿包
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@UtilityClass
+public final class EncryptUtil {
+
+    /**
+     * 加密工作簿并写入文件，文件仅写入一次，写入后工作簿将被关闭
+     *
+     * @param workbook       workbook
+     * @param password       password
+     * @param encryptionMode 加密模式，仅支持agile、standard
+     * @param path           目标文件
+     * @throws IOException              IOException
+     * @throws GeneralSecurityException GeneralSecurityException
+     */
+    public static void encrypt(@NonNull Workbook workbook, @NonNull String password, @NonNull EncryptionMode encryptionMode, @NonNull Path path) throws IOException, GeneralSecurityException {
+        encrypt(workbook, password, encryptionMode, null, path);
+    }
+
+    /**
+     * 加密工作簿并写入文件，文件仅写入一次，写入后工作簿将被关闭，agile加密时各段在线程池中并行加密
+     *
+     * @param workbook        workbook
+     * @param password        password
+     * @param encryptionMode  加密模式，仅支持agile、standard
+     * @param executorService agile加密使用的线程池，为null时使用公共线程池
+     * @param path            目标文件
+     * @throws IOException              IOException
+     * @throws GeneralSecurityException GeneralSecurityException
+     */
+    public static void encrypt(@NonNull Workbook workbook, @NonNull String password, @NonNull EncryptionMode encryptionMode, ExecutorService executorService, @NonNull Path path) throws IOException, GeneralSecurityException {
+        checkEncryptable(workbook, encryptionMode);
+        // 以文件为存储的复合文档，加密数据直接落入目标文件，避免在内存中保有完整副本
+        try (POIFSFileSystem fs = POIFSFileSystem.create(path.toFile())) {
+            writeEncrypted(workbook, password, encryptionMode, executorService, fs);
+            fs.writeFilesystem();
+        }
+    }
+
+    /**
+     * 加密工作簿并写入输出流，写入后工作簿将被关闭，不关闭输出流
+     * <p>
+     * 复合文档头部依赖加密数据长度，非随机访问的输出流需先以仅含密文的临时文件承载复合文档
+     *
+     * @param workbook       workbook
+     * @param password       password
+     * @param encryptionMode 加密模式，仅支持agile、standard
+     * @param outputStream   输出流
+     * @throws IOException              IOException
+     * @throws GeneralSecurityException GeneralSecurityException
+     */
+    public static void encrypt(@NonNull Workbook workbook, @NonNull String password, @NonNull EncryptionMode encryptionMode, @NonNull OutputStream outputStream) throws IOException, GeneralSecurityException {
+        encrypt(workbook, password, encryptionMode, null, outputStream);
+    }
+
+    /**
+     * 加密工作簿并写入输出流，写入后工作簿将被关闭，不关闭输出流，agile加密时各段在线程池中并行加密
+     *
+     * @param workbook        workbook
+     * @param password        password
+     * @param encryptionMode  加密模式，仅支持agile、standard
+     * @param executorService agile加密使用的线程池，为null时使用公共线程池
+     * @param outputStream    输出流
+     * @throws IOException              IOException
+     * @throws GeneralSecurityException GeneralSecurityException
+     */
+    public static void encrypt(@NonNull Workbook workbook, @NonNull String password, @NonNull EncryptionMode encryptionMode, ExecutorService executorService, @NonNull OutputStream outputStream) throws IOException, GeneralSecurityException {
+        checkEncryptable(workbook, encryptionMode);
+        TempStorage tempStorage = TempFileOperator.getTempStorage();
+        if (tempStorage.isInMemory()) {
+            // 内存临时存储时复合文档同样保存在内存中
+            try (POIFSFileSystem fs = new POIFSFileSystem()) {
+                writeEncrypted(workbook, password, encryptionMode, executorService, fs);
+                fs.writeFilesystem(outputStream);
+                outputStream.flush();
+            }
+            return;
+        }
+        try (TempResource tempResource = tempStorage.create("encrypt_temp", ".xlsx")) {
+            encrypt(workbook, password, encryptionMode, executorService, tempResource.getPath());
+            Files.copy(tempResource.getPath(), outputStream);
+            outputStream.flush();
+        } finally {
+            WorkbookUtil.close(workbook);
+        }
+    }
+
+    private static void writeEncrypted(Workbook workbook, String password, EncryptionMode encryptionMode, ExecutorService executorService, POIFSFileSystem fs) throws IOException, GeneralSecurityException {
+        Encryptor enc = getEncryptor(encryptionMode, executorService);
+        enc.confirmPassword(password);
+        try (OutputStream os = enc.getDataStream(fs)) {
+            workbook.write(os);
+        } finally {
+            WorkbookUtil.close(workbook);
+        }
+    }
+
+    private static Encryptor getEncryptor(EncryptionMode encryptionMode, ExecutorService executorService) {
+        if (encryptionMode == EncryptionMode.agile) {
+            return ParallelAgileEncryptor.of(executorService);
+        }
+        return new EncryptionInfo(encryptionMode).getEncryptor();
+    }
+
+    private static void checkEncryptable(Workbook workbook, EncryptionMode encryptionMode) {
+        if (workbook instanceof HSSFWorkbook) {
+            throw new IllegalArgumentException("Document encryption for.xls is not supported");
+        }
+        if (encryptionMode != EncryptionMode.agile && encryptionMode != EncryptionMode.standard) {
+            throw new IllegalArgumentException("Only agile and standard encryption are supported for.xlsx");
+        }
+    }
+}
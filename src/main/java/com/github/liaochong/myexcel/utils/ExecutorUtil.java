@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.utils;
+
+import com.github.liaochong.myexcel.core.parallel.ExportScheduler;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池工具类
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@UtilityClass
+public final class ExecutorUtil {
+
+    /**
+     * 获取线程池并行度，无法获取时为CPU核心数目，线程数无上限的线程池（如newCachedThreadPool）不超过CPU核心数目
+     *
+     * @param executorService 线程池
+     * @return 并行度，不小于1
+     */
+    public static int getParallelism(@NonNull ExecutorService executorService) {
+        if (executorService instanceof ForkJoinPool) {
+            return Math.max(1, ((ForkJoinPool) executorService).getParallelism());
+        }
+        if (executorService instanceof ThreadPoolExecutor) {
+            int maximumPoolSize = ((ThreadPoolExecutor) executorService).getMaximumPoolSize();
+            return Math.max(1, Math.min(maximumPoolSize, Runtime.getRuntime().availableProcessors()));
+        }
+        if (executorService instanceof ExportScheduler.TaskExecutor) {
+            return ((ExportScheduler.TaskExecutor) executorService).getParallelism();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+}
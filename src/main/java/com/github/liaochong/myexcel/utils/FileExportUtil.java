@@ -15,21 +15,16 @@
  */
 package com.github.liaochong.myexcel.utils;
 
+import com.github.liaochong.myexcel.core.DeflatePolicy;
 import lombok.experimental.UtilityClass;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.openxml4j.opc.OPCPackage;
-import org.apache.poi.openxml4j.opc.PackageAccess;
-import org.apache.poi.poifs.crypt.EncryptionInfo;
 import org.apache.poi.poifs.crypt.EncryptionMode;
-import org.apache.poi.poifs.crypt.Encryptor;
-import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.usermodel.Workbook;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
 
 /**
  * 文件导出工具类
@@ -48,6 +43,18 @@ public final class FileExportUtil {
      * @throws IOException IOException
      */
     public static void export(Workbook workbook, File file) throws IOException {
+        export(workbook, file, null);
+    }
+
+    /**
+     * 按照压缩策略导出
+     *
+     * @param workbook      workbook
+     * @param file          file
+     * @param deflatePolicy 压缩策略，为null时使用POI默认方式写出
+     * @throws IOException IOException
+     */
+    public static void export(Workbook workbook, File file, DeflatePolicy deflatePolicy) throws IOException {
         String suffix = ".xlsx";
         if (workbook instanceof HSSFWorkbook) {
             if (file.getName().endsWith(suffix)) {
@@ -59,11 +66,7 @@ public final class FileExportUtil {
         if (!file.getName().endsWith(suffix)) {
             file = Paths.get(file.getAbsolutePath() + suffix).toFile();
         }
-        try (OutputStream os = new FileOutputStream(file)) {
-            workbook.write(os);
-        } finally {
-            workbook.close();
-        }
+        WorkbookUtil.write(workbook, file.toPath(), deflatePolicy);
     }
 
     /**
@@ -75,6 +78,33 @@ public final class FileExportUtil {
      * @throws Exception Exception
      */
     public static void encryptExport(final Workbook workbook, File file, final String password) throws Exception {
+        encryptExport(workbook, file, password, EncryptionMode.standard);
+    }
+
+    /**
+     * 按指定加密模式加密导出，工作簿直接写入加密流，目标文件仅写入一次
+     *
+     * @param workbook       workbook
+     * @param file           file
+     * @param password       password
+     * @param encryptionMode 加密模式，支持agile、standard
+     * @throws Exception Exception
+     */
+    public static void encryptExport(final Workbook workbook, File file, final String password, EncryptionMode encryptionMode) throws Exception {
+        encryptExport(workbook, file, password, encryptionMode, null);
+    }
+
+    /**
+     * 按指定加密模式加密导出，agile加密时各段并行加密，工作簿直接写入加密流，目标文件仅写入一次
+     *
+     * @param workbook        workbook
+     * @param file            file
+     * @param password        password
+     * @param encryptionMode  加密模式，支持agile、standard
+     * @param executorService agile加密时并行加密使用的线程池，为null时使用公共线程池
+     * @throws Exception Exception
+     */
+    public static void encryptExport(final Workbook workbook, File file, final String password, EncryptionMode encryptionMode, ExecutorService executorService) throws Exception {
         if (workbook instanceof HSSFWorkbook) {
             throw new IllegalArgumentException("Document encryption for.xls is not supported");
         }
@@ -82,22 +112,6 @@ public final class FileExportUtil {
         if (!file.getName().endsWith(suffix)) {
             file = Paths.get(file.getAbsolutePath() + suffix).toFile();
         }
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            workbook.write(fos);
-            workbook.close();
-
-            final POIFSFileSystem fs = new POIFSFileSystem();
-            final EncryptionInfo info = new EncryptionInfo(EncryptionMode.standard);
-            final Encryptor enc = info.getEncryptor();
-            enc.confirmPassword(password);
-
-            try (OPCPackage opc = OPCPackage.open(file, PackageAccess.READ_WRITE);
-                 OutputStream os = enc.getDataStream(fs)) {
-                opc.save(os);
-            }
-            try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
-                fs.writeFilesystem(fileOutputStream);
-            }
-        }
+        EncryptUtil.encrypt(workbook, password, encryptionMode, executorService, file.toPath());
     }
 }
@@ -58,6 +58,16 @@ public final class ReflectUtil {
         }
     }
 
+    /**
+     * 获取当前线程的上下文类加载器，未设置时为本库的类加载器，不应缓存于静态变量中
+     *
+     * @return 类加载器
+     */
+    public static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return Objects.isNull(classLoader) ? ReflectUtil.class.getClassLoader() : classLoader;
+    }
+
     private static void getAllFieldsOfClass(Class<?> clazz, ClassFieldContainer container) {
         container.setClazz(clazz);
         Field[] fields = clazz.getDeclaredFields();
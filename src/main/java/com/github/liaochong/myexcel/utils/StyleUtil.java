@@ -15,8 +15,7 @@
  */
 package com.github.liaochong.myexcel.utils;
 
-import com.github.liaochong.myexcel.core.cache.Cache;
-import com.github.liaochong.myexcel.core.cache.WeakCache;
+import com.github.liaochong.myexcel.core.style.CellStyleSpec;
 import lombok.experimental.UtilityClass;
 import org.jsoup.nodes.Element;
 
@@ -34,37 +33,18 @@ import java.util.Objects;
 @UtilityClass
 public final class StyleUtil {
 
-    private static final Cache<String, Map<String, String>> STYLE_CACHE = new WeakCache<>();
-
     public static Map<String, String> parseStyle(Element element) {
-        String style = element.attr("style");
-        if (style.length() == 0) {
-            return Collections.emptyMap();
-        }
-        Map<String, String> cacheResult = STYLE_CACHE.get(style);
-        if (Objects.nonNull(cacheResult)) {
-            return cacheResult;
-        }
-        String[] styleArr = style.split(";");
+        return parseStyle(element.attr("style"));
+    }
 
-        Map<String, String> result = new HashMap<>(styleArr.length);
-        for (int i = 0, length = styleArr.length; i < length; i++) {
-            String[] styleDetail = styleArr[i].split(":");
-            if (styleDetail.length < 2) {
-                continue;
-            }
-            String styleName = styleDetail[0].trim();
-            if (styleName.length() == 0) {
-                continue;
-            }
-            String styleValue = styleDetail[1].trim();
-            if (styleValue.length() == 0) {
-                continue;
-            }
-            result.put(styleName, styleValue);
-        }
-        STYLE_CACHE.cache(style, result);
-        return result;
+    /**
+     * 解析style属性值
+     *
+     * @param style style属性值
+     * @return 样式，不可修改
+     */
+    public static Map<String, String> parseStyle(String style) {
+        return CellStyleSpec.parse(style).getStyle();
     }
 
     /**
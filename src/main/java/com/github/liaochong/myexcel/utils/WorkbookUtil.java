@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.utils;
+
+import com.github.liaochong.myexcel.core.DeflatePolicy;
+import com.github.liaochong.myexcel.core.io.XlsxPackageWriter;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * 工作簿工具类
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@UtilityClass
+public final class WorkbookUtil {
+
+    /**
+     * 写出工作簿，写出后关闭工作簿并清除SXSSF临时文件，不关闭输出流
+     *
+     * @param workbook     workbook
+     * @param outputStream 输出流
+     * @throws IOException IOException
+     */
+    public static void write(@NonNull Workbook workbook, @NonNull OutputStream outputStream) throws IOException {
+        try {
+            workbook.write(outputStream);
+            outputStream.flush();
+        } finally {
+            close(workbook);
+        }
+    }
+
+    /**
+     * 写出工作簿至文件，写出后关闭工作簿并清除SXSSF临时文件
+     *
+     * @param workbook workbook
+     * @param path     文件路径
+     * @throws IOException IOException
+     */
+    public static void write(@NonNull Workbook workbook, @NonNull Path path) throws IOException {
+        try (OutputStream os = Files.newOutputStream(path)) {
+            workbook.write(os);
+        } finally {
+            close(workbook);
+        }
+    }
+
+    /**
+     * 按照压缩策略写出工作簿，写出后关闭工作簿并清除SXSSF临时文件，不关闭输出流
+     *
+     * @param workbook      workbook
+     * @param outputStream  输出流
+     * @param deflatePolicy 压缩策略，为null时使用POI默认方式写出
+     * @throws IOException IOException
+     */
+    public static void write(@NonNull Workbook workbook, @NonNull OutputStream outputStream, DeflatePolicy deflatePolicy) throws IOException {
+        if (Objects.isNull(deflatePolicy)) {
+            write(workbook, outputStream);
+            return;
+        }
+        try {
+            getPackageWriter(deflatePolicy).write(workbook, outputStream);
+            outputStream.flush();
+        } finally {
+            close(workbook);
+        }
+    }
+
+    /**
+     * 按照压缩策略写出工作簿至文件，写出后关闭工作簿并清除SXSSF临时文件
+     *
+     * @param workbook      workbook
+     * @param path          文件路径
+     * @param deflatePolicy 压缩策略，为null时使用POI默认方式写出
+     * @throws IOException IOException
+     */
+    public static void write(@NonNull Workbook workbook, @NonNull Path path, DeflatePolicy deflatePolicy) throws IOException {
+        if (Objects.isNull(deflatePolicy)) {
+            write(workbook, path);
+            return;
+        }
+        try (OutputStream os = Files.newOutputStream(path)) {
+            getPackageWriter(deflatePolicy).write(workbook, os);
+        } finally {
+            close(workbook);
+        }
+    }
+
+    private static XlsxPackageWriter getPackageWriter(DeflatePolicy deflatePolicy) {
+        return new XlsxPackageWriter(deflatePolicy.getLevel(), deflatePolicy.getExecutorService(), deflatePolicy.getParallelism());
+    }
+
+    /**
+     * 关闭工作簿，若为SXSSFWorkbook，同时清除临时文件
+     *
+     * @param workbook workbook
+     * @throws IOException IOException
+     */
+    public static void close(Workbook workbook) throws IOException {
+        if (Objects.isNull(workbook)) {
+            return;
+        }
+        // 先清除临时文件，关闭后未刷新的行无法写入，临时文件将无法删除
+        try {
+            if (workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) workbook).dispose();
+            }
+        } finally {
+            workbook.close();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.liaochong.myexcel.core;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BeetlExcelBuilder Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class BeetlExcelBuilderTest {
+
+    private static final String TEMPLATE = "/templates/beetl_template.btl";
+
+    @Test
+    public void testReuseBuilder() throws Exception {
+        ExcelBuilder builder = new BeetlExcelBuilder().template(TEMPLATE);
+        try (Workbook first = builder.build(renderData("first", 3));
+             Workbook second = builder.build(renderData("second", 5))) {
+            assertSheet(first, "first", 3);
+            assertSheet(second, "second", 5);
+        }
+    }
+
+    @Test
+    public void testTemplatePerClassLoader() throws Exception {
+        // 另一类加载器下同一路径的模板内容不同
+        Path root = Files.createTempDirectory("beetl_class_loader");
+        Path template = root.resolve("templates/beetl_template.btl");
+        Files.createDirectories(template.getParent());
+        Files.write(template, "<table><caption>other</caption><tr><td>${sheetName}</td></tr></table>".getBytes(StandardCharsets.UTF_8));
+
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new ChildFirstClassLoader(root.toUri().toURL(), original)) {
+            thread.setContextClassLoader(classLoader);
+            ExcelBuilder otherBuilder = new BeetlExcelBuilder().template(TEMPLATE);
+            thread.setContextClassLoader(original);
+            ExcelBuilder builder = new BeetlExcelBuilder().template(TEMPLATE);
+
+            try (Workbook other = otherBuilder.build(renderData("first", 1));
+                 Workbook workbook = builder.build(renderData("first", 1))) {
+                Assert.assertEquals("other", other.getSheetAt(0).getSheetName());
+                Assert.assertEquals("first", other.getSheetAt(0).getRow(0).getCell(0).getStringCellValue());
+                assertSheet(workbook, "first", 1);
+            }
+        } finally {
+            thread.setContextClassLoader(original);
+            Files.delete(template);
+            Files.delete(template.getParent());
+            Files.delete(root);
+        }
+    }
+
+    /**
+     * 优先由自身路径加载资源的类加载器
+     */
+    private static final class ChildFirstClassLoader extends URLClassLoader {
+
+        private ChildFirstClassLoader(URL url, ClassLoader parent) {
+            super(new URL[]{url}, parent);
+        }
+
+        @Override
+        public URL getResource(String name) {
+            URL url = findResource(name);
+            return url != null ? url : super.getResource(name);
+        }
+    }
+
+    private static Map<String, Object> renderData(String sheetName, int rowCount) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            names.add(sheetName + "_" + i);
+        }
+        Map<String, Object> renderData = new HashMap<>();
+        renderData.put("sheetName", sheetName);
+        renderData.put("names", names);
+        return renderData;
+    }
+
+    private static void assertSheet(Workbook workbook, String sheetName, int rowCount) {
+        Assert.assertEquals(1, workbook.getNumberOfSheets());
+        Sheet sheet = workbook.getSheetAt(0);
+        Assert.assertEquals(sheetName, sheet.getSheetName());
+        Assert.assertEquals("name", sheet.getRow(0).getCell(0).getStringCellValue());
+        for (int i = 0; i < rowCount; i++) {
+            Assert.assertEquals(sheetName + "_" + i, sheet.getRow(i + 1).getCell(0).getStringCellValue());
+        }
+        Assert.assertNull(sheet.getRow(rowCount + 1));
+    }
+}
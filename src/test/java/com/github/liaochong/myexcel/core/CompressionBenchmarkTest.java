@@ -0,0 +1,95 @@
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.annotation.ExcelTable;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 压缩级别与SXSSF临时文件压缩的吞吐量/文件大小基准，结果输出至日志，不随默认测试运行，需mvn test -Pbenchmark
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@Slf4j
+public class CompressionBenchmarkTest {
+
+    private static final int ROW_COUNT = 20000;
+
+    private static final int[] LEVELS = {0, 1, 3, 6, 9};
+
+    private Path file;
+
+    @Before
+    public void before() throws Exception {
+        file = Files.createTempFile("compression_benchmark", ".xlsx");
+    }
+
+    @After
+    public void after() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testCompressionCurve() throws Exception {
+        List<Data> dataList = new ArrayList<>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            dataList.add(new Data(i));
+        }
+        // 预热
+        this.export(dataList, 6, false);
+
+        long previousSize = Long.MAX_VALUE;
+        for (int level : LEVELS) {
+            for (boolean compressTempFiles : new boolean[]{false, true}) {
+                long startTime = System.nanoTime();
+                this.export(dataList, level, compressTempFiles);
+                long millis = Math.max(1, (System.nanoTime() - startTime) / 1_000_000);
+                long size = Files.size(file);
+                log.info("level:{},compressTempFiles:{},takes {} ms,{} rows/s,size:{} KB", level, compressTempFiles, millis, ROW_COUNT * 1000L / millis, size >> 10);
+                if (!compressTempFiles) {
+                    Assert.assertTrue("Higher level should not produce a larger file", size <= previousSize);
+                    previousSize = size;
+                }
+            }
+        }
+    }
+
+    private void export(List<Data> dataList, int level, boolean compressTempFiles) throws Exception {
+        DefaultStreamExcelBuilder builder = DefaultStreamExcelBuilder.of(Data.class).compressionLevel(level);
+        if (compressTempFiles) {
+            builder.compressTempFiles();
+        }
+        builder.start();
+        for (int i = 0; i < dataList.size(); i += 1000) {
+            builder.append(dataList.subList(i, Math.min(i + 1000, dataList.size())));
+        }
+        builder.write(file);
+    }
+
+    @ExcelTable
+    public static class Data {
+
+        private int id;
+
+        private String name;
+
+        private String description;
+
+        private double amount;
+
+        Data(int id) {
+            this.id = id;
+            this.name = "name_" + id;
+            this.description = "description of row " + id + " in category " + (id % 37);
+            this.amount = id * 1.25;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.annotation.ExcelColumn;
+import com.github.liaochong.myexcel.core.annotation.ExcelTable;
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.ConditionalFormatting;
+import org.apache.poi.ss.usermodel.ConditionalFormattingRule;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.SheetConditionalFormatting;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * DefaultExcelBuilder Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class DefaultExcelBuilderTest {
+
+    @Test
+    public void testRowBanding() throws Exception {
+        try (DefaultExcelBuilder builder = DefaultExcelBuilder.of(Data.class)) {
+            Workbook workbook = builder.rowBanding().build(data(5));
+            Sheet sheet = workbook.getSheetAt(0);
+            // 数据行共用同一单元格样式
+            for (int i = 2; i <= 5; i++) {
+                Assert.assertEquals(sheet.getRow(1).getCell(0).getCellStyle().getIndex(),
+                        sheet.getRow(i).getCell(0).getCellStyle().getIndex());
+            }
+
+            SheetConditionalFormatting conditionalFormatting = sheet.getSheetConditionalFormatting();
+            Assert.assertEquals(1, conditionalFormatting.getNumConditionalFormattings());
+            ConditionalFormatting formatting = conditionalFormatting.getConditionalFormattingAt(0);
+            Assert.assertEquals(1, formatting.getFormattingRanges().length);
+            Assert.assertEquals("A2:B6", formatting.getFormattingRanges()[0].formatAsString());
+            Assert.assertEquals(1, formatting.getNumberOfRules());
+            ConditionalFormattingRule rule = formatting.getRule(0);
+            Assert.assertEquals("MOD(ROW()-2,2)=1", rule.getFormula1());
+            Assert.assertNotNull(rule.getPatternFormatting());
+        }
+    }
+
+    @Test
+    public void testEvenRowStyleWithoutRowBanding() throws Exception {
+        try (DefaultExcelBuilder builder = DefaultExcelBuilder.of(Data.class)) {
+            Sheet sheet = builder.build(data(3)).getSheetAt(0);
+            Assert.assertEquals(0, sheet.getSheetConditionalFormatting().getNumConditionalFormattings());
+            Assert.assertNotEquals(sheet.getRow(1).getCell(0).getCellStyle().getIndex(),
+                    sheet.getRow(2).getCell(0).getCellStyle().getIndex());
+        }
+    }
+
+    @Test
+    public void testAutoWorkbookType() throws Exception {
+        try (DefaultExcelBuilder builder = DefaultExcelBuilder.of(Data.class)) {
+            Workbook workbook = builder.heapBudget(1 << 30).workbookType(WorkbookType.AUTO).build(data(100));
+            Assert.assertEquals(WorkbookType.XLSX, builder.getEffectiveWorkbookType());
+            Assert.assertTrue(workbook instanceof XSSFWorkbook);
+        }
+        try (DefaultExcelBuilder builder = DefaultExcelBuilder.of(Data.class)) {
+            // 估算的XSSF堆内存超出预算
+            Workbook workbook = builder.heapBudget(10_000).workbookType(WorkbookType.AUTO).build(data(100));
+            Assert.assertEquals(WorkbookType.SXLSX, builder.getEffectiveWorkbookType());
+            Assert.assertTrue(workbook instanceof SXSSFWorkbook);
+            Assert.assertEquals("name99", workbook.getSheetAt(0).getRow(100).getCell(0).getStringCellValue());
+        }
+        try (DefaultExcelBuilder builder = DefaultExcelBuilder.of(Data.class)) {
+            // 非AUTO时不受预算影响
+            Workbook workbook = builder.heapBudget(1).workbookType(WorkbookType.XLS).build(data(100));
+            Assert.assertEquals(WorkbookType.XLS, builder.getEffectiveWorkbookType());
+            Assert.assertTrue(workbook instanceof HSSFWorkbook);
+        }
+    }
+
+    @Test
+    public void testBuildReleasesAdmission() throws Exception {
+        ExportGovernor governor = ExportGovernor.of(1, 1L << 30).maxWait(0, TimeUnit.MILLISECONDS);
+        // 构建者未关闭，构建的工作簿由调用方自行写出
+        Workbook first = DefaultExcelBuilder.of(Data.class).governor(governor).build(data(10));
+        Assert.assertEquals(0, governor.getStats().getRunningCount());
+        Workbook second = DefaultExcelBuilder.of(Data.class).governor(governor).build(data(10));
+        Assert.assertEquals(2, governor.getStats().getAdmittedCount());
+        first.close();
+        second.close();
+
+        try (DefaultExcelBuilder builder = DefaultExcelBuilder.of(Data.class).governor(governor)) {
+            builder.write(data(10), new ByteArrayOutputStream());
+            Assert.assertEquals(0, governor.getStats().getRunningCount());
+        }
+        Assert.assertEquals(3, governor.getStats().getAdmittedCount());
+        Assert.assertEquals(0, governor.getStats().getReservedBytes());
+    }
+
+    @Test
+    public void testAdmitBeforeRender() {
+        ExportGovernor governor = ExportGovernor.of(1, 1000);
+        List<Data> data = data(10);
+        try {
+            DefaultExcelBuilder.of(Data.class).governor(governor).build(data);
+            Assert.fail("Export should be rejected");
+        } catch (ExcelBuildException e) {
+            // 拒绝时数据尚未渲染
+            Assert.assertTrue(data.stream().allMatch(Objects::nonNull));
+        }
+        Assert.assertEquals(1, governor.getStats().getRejectedCount());
+        Assert.assertEquals(0, governor.getStats().getRunningCount());
+    }
+
+    @Test
+    public void testCompressionLevel() throws Exception {
+        ZipEntry stored = writeSheetEntry(DefaultExcelBuilder.of(Data.class).compressionLevel(0));
+        Assert.assertTrue("Level 0 should not shrink the sheet", stored.getCompressedSize() >= stored.getSize());
+
+        // 注解设置的压缩级别同样生效
+        ZipEntry annotated = writeSheetEntry(DefaultExcelBuilder.of(StoredData.class));
+        Assert.assertTrue("Level 0 should not shrink the sheet", annotated.getCompressedSize() >= annotated.getSize());
+
+        ZipEntry deflated = writeSheetEntry(DefaultExcelBuilder.of(Data.class).compressionLevel(9));
+        Assert.assertEquals(stored.getSize(), deflated.getSize());
+        Assert.assertTrue("Level 9 should compress the sheet", deflated.getCompressedSize() * 4 < deflated.getSize());
+    }
+
+    private static ZipEntry writeSheetEntry(AbstractSimpleExcelBuilder builder) throws Exception {
+        Path file = Files.createTempFile("compression_level", ".xlsx");
+        try {
+            try (AbstractSimpleExcelBuilder excelBuilder = builder) {
+                excelBuilder.write(data(1000), file);
+            }
+            // 以输入流读取，XSSFWorkbook(File)关闭时会重写文件
+            try (InputStream in = Files.newInputStream(file); XSSFWorkbook workbook = new XSSFWorkbook(in)) {
+                Sheet sheet = workbook.getSheetAt(0);
+                Assert.assertEquals("name999", sheet.getRow(sheet.getLastRowNum()).getCell(0).getStringCellValue());
+            }
+            try (ZipFile zipFile = new ZipFile(file.toFile())) {
+                return zipFile.getEntry("xl/worksheets/sheet1.xml");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    static List<Data> data(int size) {
+        List<Data> data = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Data item = new Data();
+            item.name = "name" + i;
+            item.value = i;
+            data.add(item);
+        }
+        return data;
+    }
+
+    @ExcelTable
+    public static class Data {
+
+        @ExcelColumn(title = "Name", order = 0)
+        private String name;
+
+        @ExcelColumn(title = "Value", order = 1)
+        private Integer value;
+    }
+
+    @ExcelTable(compressionLevel = 0)
+    public static class StoredData extends Data {
+    }
+}
@@ -0,0 +1,320 @@
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.annotation.ExcelTable;
+import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * DefaultStreamExcelBuilder Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class DefaultStreamExcelBuilderTest {
+
+    private static final String LONG_TITLE = "a rather long title that widens the first column";
+
+    @Test
+    public void testSplitRepeatsAllHeaderRows() throws Exception {
+        StringBuilder html = new StringBuilder("<table><thead>")
+                .append("<tr><th rowspan=\"2\">").append(LONG_TITLE).append("</th><th colspan=\"2\">B</th></tr>")
+                .append("<tr><td>b1</td><td>b2</td></tr>")
+                .append("</thead><tbody>");
+        for (int i = 0; i < 10; i++) {
+            html.append("<tr><td>").append(i).append("</td><td>x</td><td>y</td></tr>");
+        }
+        html.append("</tbody></table>");
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (DefaultStreamExcelBuilder builder = DefaultStreamExcelBuilder.of(Data.class)
+                .autoWidthStrategy(AutoWidthStrategy.COMPUTE_AUTO_WIDTH)
+                .splitToZip(SplitPolicy.ofRows(6), zip, "part")
+                .start()) {
+            builder.appendHtml(new StringReader(html.toString()));
+            builder.finish();
+        }
+
+        List<Workbook> workbooks = readZip(zip.toByteArray());
+        Assert.assertTrue("Rows should be split into several files", workbooks.size() > 2);
+        int firstColumnWidth = workbooks.get(0).getSheetAt(0).getColumnWidth(0);
+        List<Integer> dataRows = new ArrayList<>();
+        for (Workbook workbook : workbooks) {
+            Sheet sheet = workbook.getSheetAt(0);
+            Assert.assertEquals(LONG_TITLE, sheet.getRow(0).getCell(0).getStringCellValue());
+            Assert.assertEquals("B", sheet.getRow(0).getCell(1).getStringCellValue());
+            Assert.assertEquals("b1", sheet.getRow(1).getCell(1).getStringCellValue());
+            Assert.assertEquals("b2", sheet.getRow(1).getCell(2).getStringCellValue());
+            Assert.assertTrue(hasMergedRegion(sheet, new CellRangeAddress(0, 1, 0, 0)));
+            Assert.assertTrue(hasMergedRegion(sheet, new CellRangeAddress(0, 0, 1, 2)));
+            Assert.assertEquals("Header widths should be kept", firstColumnWidth, sheet.getColumnWidth(0));
+            for (int i = 2; i <= sheet.getLastRowNum(); i++) {
+                dataRows.add(Integer.parseInt(sheet.getRow(i).getCell(0).getStringCellValue()));
+            }
+            workbook.close();
+        }
+        Assert.assertTrue(firstColumnWidth > 20 << 8);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(Integer.valueOf(i), dataRows.get(i));
+        }
+        Assert.assertEquals(10, dataRows.size());
+    }
+
+    @Test
+    public void testCompressTempFiles() throws Exception {
+        SXSSFWorkbook workbook = (SXSSFWorkbook) DefaultStreamExcelBuilder.of(Data.class).start().build();
+        Assert.assertFalse(workbook.isCompressTempFiles());
+        workbook.dispose();
+
+        workbook = (SXSSFWorkbook) DefaultStreamExcelBuilder.of(Data.class).compressTempFiles().start().build();
+        Assert.assertTrue(workbook.isCompressTempFiles());
+        workbook.dispose();
+
+        workbook = (SXSSFWorkbook) DefaultStreamExcelBuilder.of(CompressedData.class).start().build();
+        Assert.assertTrue("@ExcelTable(compressTempFiles = true) should be applied", workbook.isCompressTempFiles());
+        workbook.dispose();
+    }
+
+    @Test
+    public void testCompressionLevel() throws Exception {
+        ZipEntry stored = this.writeSheetEntry(0);
+        Assert.assertTrue("Level 0 should not shrink the sheet", stored.getCompressedSize() >= stored.getSize());
+
+        ZipEntry deflated = this.writeSheetEntry(9);
+        Assert.assertEquals(stored.getSize(), deflated.getSize());
+        Assert.assertTrue("Level 9 should compress the sheet", deflated.getCompressedSize() * 4 < deflated.getSize());
+    }
+
+    @Test
+    public void testRowAccessBudget() throws Exception {
+        String content = String.join("", Collections.nCopies(50, "x"));
+        StringBuilder html = new StringBuilder("<table>");
+        for (int i = 0; i < 500; i++) {
+            html.append("<tr>");
+            for (int j = 0; j < 4; j++) {
+                html.append("<td>").append(content).append("</td>");
+            }
+            html.append("</tr>");
+        }
+        html.append("</table>");
+
+        DefaultStreamExcelBuilder builder = DefaultStreamExcelBuilder.of(Data.class)
+                .autoWidthStrategy(AutoWidthStrategy.NO_AUTO)
+                .rowAccessBudget(20_000)
+                .start();
+        builder.appendHtml(new StringReader(html.toString()));
+        SXSSFWorkbook workbook = (SXSSFWorkbook) builder.build();
+        try {
+            RowAccessBudget.Stats stats = builder.getRowAccessStats();
+            // 每行约80 + 4 * (96 + 100)字节
+            Assert.assertEquals(500, stats.getRowCount());
+            Assert.assertEquals(20_000 / 864, stats.getWindowSize());
+            SXSSFSheet sheet = workbook.getSheetAt(0);
+            // 仅保留有效保有行数的行，其余已写出
+            Assert.assertEquals(499 - stats.getWindowSize(), sheet.getLastFlushedRowNum());
+            Assert.assertNull(sheet.getRow(499 - stats.getWindowSize()));
+            Assert.assertNotNull(sheet.getRow(500 - stats.getWindowSize()));
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    @Test
+    public void testBuildReleasesAdmission() throws Exception {
+        ExportGovernor governor = ExportGovernor.of(1, 1L << 30).maxWait(0, TimeUnit.MILLISECONDS);
+        SXSSFWorkbook first = (SXSSFWorkbook) DefaultStreamExcelBuilder.of(Data.class).governor(governor).start().build();
+        Assert.assertEquals(0, governor.getStats().getRunningCount());
+        SXSSFWorkbook second = (SXSSFWorkbook) DefaultStreamExcelBuilder.of(Data.class).governor(governor).start().build();
+        Assert.assertEquals(2, governor.getStats().getAdmittedCount());
+        first.dispose();
+        second.dispose();
+    }
+
+    @Test
+    public void testFailedStartReleasesAdmission() {
+        ExportGovernor governor = ExportGovernor.of(1, 1L << 30).maxWait(0, TimeUnit.MILLISECONDS);
+        // 参数校验先于准入
+        DefaultStreamExcelBuilder xlsBuilder = DefaultStreamExcelBuilder.of(Data.class).governor(governor).streamTo(new ByteArrayOutputStream());
+        xlsBuilder.workbookType(WorkbookType.XLS);
+        try {
+            xlsBuilder.start();
+            Assert.fail("StreamTo should reject .xls");
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(0, governor.getStats().getAdmittedCount());
+        }
+
+        // 准入后启动失败
+        DefaultStreamExcelBuilder autoWidthBuilder = DefaultStreamExcelBuilder.of(Data.class).governor(governor).streamTo(new ByteArrayOutputStream());
+        autoWidthBuilder.autoWidthStrategy(AutoWidthStrategy.AUTO_WIDTH);
+        try {
+            autoWidthBuilder.start();
+            Assert.fail("StreamTo should reject automatic width");
+        } catch (UnsupportedOperationException e) {
+            Assert.assertEquals(1, governor.getStats().getAdmittedCount());
+        }
+        Assert.assertEquals(0, governor.getStats().getRunningCount());
+        Assert.assertEquals(0, governor.getStats().getReservedBytes());
+    }
+
+    @Test
+    public void testRowspanLongerThanWindow() throws Exception {
+        String html = groupedHtml(6, 250);
+        // 跨行超出内存行数保有量，行数据已刷新至临时文件
+        DefaultStreamExcelBuilder builder = DefaultStreamExcelBuilder.of(Data.class).rowAccessWindowSize(100).start();
+        builder.appendHtml(new StringReader(html));
+        SXSSFWorkbook workbook = (SXSSFWorkbook) builder.build();
+        ByteArrayOutputStream built = new ByteArrayOutputStream();
+        try {
+            workbook.write(built);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        try (XSSFWorkbook result = new XSSFWorkbook(new ByteArrayInputStream(built.toByteArray()))) {
+            assertGroups(result.getSheetAt(0), 0, 6, 250);
+        }
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        DefaultStreamExcelBuilder streamBuilder = DefaultStreamExcelBuilder.of(Data.class).rowAccessWindowSize(100).streamTo(streamed).start();
+        streamBuilder.appendHtml(new StringReader(html));
+        streamBuilder.finish();
+        try (XSSFWorkbook result = new XSSFWorkbook(new ByteArrayInputStream(streamed.toByteArray()))) {
+            assertGroups(result.getSheetAt(0), 0, 6, 250);
+        }
+    }
+
+    @Test
+    public void testSplitWaitsForOpenRowspan() throws Exception {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (DefaultStreamExcelBuilder builder = DefaultStreamExcelBuilder.of(Data.class)
+                .rowAccessWindowSize(100)
+                .splitToZip(SplitPolicy.ofRows(100), zip, "part")
+                .start()) {
+            builder.appendHtml(new StringReader(groupedHtml(4, 250)));
+            builder.finish();
+        }
+        // 达到拆分行数时跨行未结束，待跨行结束后才拆分
+        List<Workbook> workbooks = readZip(zip.toByteArray());
+        Assert.assertEquals(4, workbooks.size());
+        for (int i = 0; i < workbooks.size(); i++) {
+            assertGroups(workbooks.get(i).getSheetAt(0), i, 1, 250);
+            workbooks.get(i).close();
+        }
+    }
+
+    /**
+     * 分组报表，每组首列跨行，首列带背景色
+     */
+    private static String groupedHtml(int groupCount, int groupSize) {
+        StringBuilder html = new StringBuilder("<table><thead><tr><th>group</th><th>item</th></tr></thead><tbody>");
+        for (int g = 0; g < groupCount; g++) {
+            html.append("<tr><td rowspan=\"").append(groupSize).append("\" style=\"background-color:yellow\">group")
+                    .append(g).append("</td><td>").append(g).append("_0</td></tr>");
+            for (int i = 1; i < groupSize; i++) {
+                html.append("<tr><td>").append(g).append('_').append(i).append("</td></tr>");
+            }
+        }
+        return html.append("</tbody></table>").toString();
+    }
+
+    private static void assertGroups(Sheet sheet, int firstGroup, int groupCount, int groupSize) {
+        Assert.assertEquals("group", sheet.getRow(0).getCell(0).getStringCellValue());
+        Assert.assertEquals(groupCount * groupSize, sheet.getLastRowNum());
+        Assert.assertEquals(groupCount, sheet.getNumMergedRegions());
+        for (int g = 0; g < groupCount; g++) {
+            int firstRow = 1 + g * groupSize;
+            Assert.assertTrue(hasMergedRegion(sheet, new CellRangeAddress(firstRow, firstRow + groupSize - 1, 0, 0)));
+            Cell groupCell = sheet.getRow(firstRow).getCell(0);
+            Assert.assertEquals("group" + (firstGroup + g), groupCell.getStringCellValue());
+            Assert.assertEquals(FillPatternType.SOLID_FOREGROUND, groupCell.getCellStyle().getFillPattern());
+            for (int i = 0; i < groupSize; i++) {
+                Row row = sheet.getRow(firstRow + i);
+                // 被跨行覆盖的单元格保留跨行单元格的样式
+                Assert.assertEquals(groupCell.getCellStyle().getIndex(), row.getCell(0).getCellStyle().getIndex());
+                Assert.assertEquals((firstGroup + g) + "_" + i, row.getCell(1).getStringCellValue());
+            }
+        }
+    }
+
+    private ZipEntry writeSheetEntry(int level) throws Exception {
+        List<Data> dataList = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Data data = new Data();
+            data.name = "name_" + i;
+            dataList.add(data);
+        }
+        Path file = Files.createTempFile("compression_level", ".xlsx");
+        try {
+            DefaultStreamExcelBuilder builder = DefaultStreamExcelBuilder.of(Data.class).compressionLevel(level).start();
+            builder.append(dataList);
+            builder.write(file);
+            // 以输入流读取，XSSFWorkbook(File)关闭时会重写文件
+            try (InputStream in = Files.newInputStream(file); XSSFWorkbook workbook = new XSSFWorkbook(in)) {
+                Sheet sheet = workbook.getSheetAt(0);
+                Assert.assertEquals("name_999", sheet.getRow(sheet.getLastRowNum()).getCell(0).getStringCellValue());
+            }
+            try (ZipFile zipFile = new ZipFile(file.toFile())) {
+                return zipFile.getEntry("xl/worksheets/sheet1.xml");
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    static List<Workbook> readZip(byte[] bytes) throws Exception {
+        List<Workbook> workbooks = new ArrayList<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+                workbooks.add(new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray())));
+            }
+        }
+        return workbooks;
+    }
+
+    private static boolean hasMergedRegion(Sheet sheet, CellRangeAddress expected) {
+        return sheet.getMergedRegions().stream().anyMatch(region -> region.formatAsString().equals(expected.formatAsString()));
+    }
+
+    @ExcelTable
+    public static class Data {
+
+        private String name;
+    }
+
+    @ExcelTable(compressTempFiles = true)
+    public static class CompressedData {
+
+        private String name;
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * FreemarkerExcelBuilder Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class FreemarkerExcelBuilderTest {
+
+    private static final String TEMPLATE = "/templates/freemarker_template.ftl";
+
+    @Test
+    public void testReuseBuilder() throws Exception {
+        ExcelBuilder builder = new FreemarkerExcelBuilder().template(TEMPLATE);
+        try (Workbook first = builder.build(renderData("first", 3));
+             Workbook second = builder.build(renderData("second", 5))) {
+            Assert.assertNotSame(first, second);
+            assertSheet(first, "first", 3);
+            assertSheet(second, "second", 5);
+        }
+    }
+
+    @Test
+    public void testConcurrentBuilds() throws Exception {
+        ExcelBuilder builder = new FreemarkerExcelBuilder().template(TEMPLATE).pipeline();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Workbook>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int rowCount = 50 + i;
+                Callable<Workbook> task = () -> builder.build(renderData("sheet" + rowCount, rowCount));
+                futures.add(executorService.submit(task));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try (Workbook workbook = futures.get(i).get()) {
+                    assertSheet(workbook, "sheet" + (50 + i), 50 + i);
+                }
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSettingsApplyRegardlessOfOrder() throws Exception {
+        ExcelBuilder builder = new FreemarkerExcelBuilder().template(TEMPLATE)
+                .workbookType(WorkbookType.SXLSX)
+                .autoWidthStrategy(AutoWidthStrategy.COMPUTE_AUTO_WIDTH)
+                .compressTempFiles();
+        SXSSFWorkbook workbook = (SXSSFWorkbook) builder.build(renderData("compressed", 1));
+        try {
+            Assert.assertTrue(workbook.isCompressTempFiles());
+            assertSheet(workbook, "compressed", 1);
+        } finally {
+            workbook.dispose();
+        }
+    }
+
+    private static Map<String, Object> renderData(String sheetName, int rowCount) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            names.add(sheetName + "_" + i);
+        }
+        Map<String, Object> renderData = new HashMap<>();
+        renderData.put("sheetName", sheetName);
+        renderData.put("names", names);
+        return renderData;
+    }
+
+    private static void assertSheet(Workbook workbook, String sheetName, int rowCount) {
+        Assert.assertEquals(1, workbook.getNumberOfSheets());
+        Sheet sheet = workbook.getSheetAt(0);
+        Assert.assertEquals(sheetName, sheet.getSheetName());
+        Assert.assertEquals("name", sheet.getRow(0).getCell(0).getStringCellValue());
+        for (int i = 0; i < rowCount; i++) {
+            Assert.assertEquals(sheetName + "_" + i, sheet.getRow(i + 1).getCell(0).getStringCellValue());
+        }
+        Assert.assertNull(sheet.getRow(rowCount + 1));
+    }
+}
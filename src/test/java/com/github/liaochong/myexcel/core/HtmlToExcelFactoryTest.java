@@ -1,9 +1,27 @@
 package com.github.liaochong.myexcel.core;
 
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
 /**
  * HtmlToExcelFactory Tester.
  * 
@@ -143,4 +161,158 @@ public class HtmlToExcelFactoryTest {
          */
     }
 
+    /**
+     *
+     * Method: columnStyle()
+     *
+     */
+    @Test
+    public void testColumnStyle() throws Exception {
+        String html = "<table><tr><th>A</th><th>B</th></tr>"
+                + "<tr><td style=\"color:red\">1</td><td style=\"background-color:yellow\">x</td></tr>"
+                + "<tr><td style=\"color:red\"></td><td style=\"background-color:yellow\">y</td></tr>"
+                + "<tr><td style=\"color:blue\"></td><td style=\"background-color:yellow\"></td></tr>"
+                + "</table>";
+        HtmlToExcelFactory factory = HtmlToExcelFactory.readHtml(html);
+        factory.columnStyle();
+        try (Workbook workbook = factory.build()) {
+            Sheet sheet = workbook.getSheetAt(0);
+            Row first = sheet.getRow(1);
+            Assert.assertEquals(first.getCell(0).getCellStyle().getIndex(), sheet.getColumnStyle(0).getIndex());
+            Assert.assertEquals(first.getCell(1).getCellStyle().getIndex(), sheet.getColumnStyle(1).getIndex());
+
+            // 与列默认样式相同的空单元格不创建
+            Assert.assertNull(sheet.getRow(2).getCell(0));
+            Assert.assertNull(sheet.getRow(3).getCell(1));
+            Assert.assertEquals("y", sheet.getRow(2).getCell(1).getStringCellValue());
+            // 样式不同的空单元格仍创建
+            Assert.assertNotNull(sheet.getRow(3).getCell(0));
+            Assert.assertNotEquals(sheet.getColumnStyle(0).getIndex(), sheet.getRow(3).getCell(0).getCellStyle().getIndex());
+        }
+    }
+
+    /**
+     *
+     * Method: parallel(ExecutorService executorService)
+     *
+     */
+    @Test
+    public void testParallel() throws Exception {
+        String html = tables(6, 300);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            XSSFWorkbook expected = buildSxlsx(html, null);
+            XSSFWorkbook actual = buildSxlsx(html, executorService);
+            assertSameWorkbook(expected, actual);
+            expected.close();
+            actual.close();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelIgnoredForXssf() throws Exception {
+        String html = tables(3, 50);
+        // 已关闭的线程池，一旦使用即拒绝
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        executorService.shutdown();
+        HtmlToExcelFactory factory = HtmlToExcelFactory.readHtml(html).parallel(executorService);
+        try (Workbook expected = HtmlToExcelFactory.readHtml(html).build();
+             Workbook actual = factory.build()) {
+            Assert.assertTrue(actual instanceof XSSFWorkbook);
+            assertSameWorkbook((XSSFWorkbook) expected, (XSSFWorkbook) actual);
+        }
+    }
+
+    private static XSSFWorkbook buildSxlsx(String html, ExecutorService executorService) throws Exception {
+        HtmlToExcelFactory factory = HtmlToExcelFactory.readHtml(html);
+        factory.workbookType(WorkbookType.SXLSX);
+        if (executorService != null) {
+            factory.parallel(executorService);
+        }
+        SXSSFWorkbook workbook = (SXSSFWorkbook) factory.build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        return new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    /**
+     * 多个表格，包含跨行、跨列单元格以及多种样式，部分表格无标题
+     */
+    private static String tables(int tableCount, int rowCount) {
+        String[] styles = {"color:red", "background-color:yellow", "font-weight:bold", "color:blue;background-color:green"};
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (int t = 0; t < tableCount; t++) {
+            html.append("<table>");
+            if (t % 2 == 0) {
+                html.append("<caption>table").append(t).append("</caption>");
+            }
+            html.append("<tr><th colspan=\"2\">head").append(t).append("</th><th>C</th></tr>");
+            for (int i = 0; i < rowCount; i += 2) {
+                String style = styles[(i / 2 + t) % styles.length];
+                html.append("<tr><td rowspan=\"2\" style=\"").append(style).append("\">r").append(t).append('_').append(i).append("</td>")
+                        .append("<td>").append(i).append("</td><td style=\"").append(styles[t % styles.length]).append("\">x</td></tr>")
+                        .append("<tr><td colspan=\"2\">").append(i + 1).append("</td></tr>");
+            }
+            html.append("</table>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    /**
+     * 工作表顺序、单元格内容、合并区域一致，样式的共享关系一致且样式相同
+     */
+    private static void assertSameWorkbook(XSSFWorkbook expected, XSSFWorkbook actual) {
+        Assert.assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+        Assert.assertEquals(expected.getNumCellStyles(), actual.getNumCellStyles());
+        Map<Short, Short> styleIndexMap = new HashMap<>();
+        Map<Short, Short> reverseStyleIndexMap = new HashMap<>();
+        for (int s = 0; s < expected.getNumberOfSheets(); s++) {
+            Sheet expectedSheet = expected.getSheetAt(s);
+            Sheet actualSheet = actual.getSheetAt(s);
+            Assert.assertEquals(expectedSheet.getSheetName(), actualSheet.getSheetName());
+            Assert.assertEquals(mergedRegions(expectedSheet), mergedRegions(actualSheet));
+            Assert.assertEquals(expectedSheet.getLastRowNum(), actualSheet.getLastRowNum());
+            for (int r = 0; r <= expectedSheet.getLastRowNum(); r++) {
+                Row expectedRow = expectedSheet.getRow(r);
+                Row actualRow = actualSheet.getRow(r);
+                Assert.assertEquals(expectedRow == null, actualRow == null);
+                if (expectedRow == null) {
+                    continue;
+                }
+                Assert.assertEquals(expectedRow.getLastCellNum(), actualRow.getLastCellNum());
+                for (int c = 0; c < expectedRow.getLastCellNum(); c++) {
+                    Cell expectedCell = expectedRow.getCell(c);
+                    Cell actualCell = actualRow.getCell(c);
+                    Assert.assertEquals(expectedCell == null, actualCell == null);
+                    if (expectedCell == null) {
+                        continue;
+                    }
+                    String position = expectedSheet.getSheetName() + "!" + expectedCell.getAddress();
+                    Assert.assertEquals(position, expectedCell.toString(), actualCell.toString());
+                    XSSFCellStyle expectedStyle = (XSSFCellStyle) expectedCell.getCellStyle();
+                    XSSFCellStyle actualStyle = (XSSFCellStyle) actualCell.getCellStyle();
+                    Assert.assertEquals(position, expectedStyle.getFont().getBold(), actualStyle.getFont().getBold());
+                    Assert.assertEquals(position, expectedStyle.getFont().getColor(), actualStyle.getFont().getColor());
+                    Assert.assertEquals(position, expectedStyle.getFillForegroundColor(), actualStyle.getFillForegroundColor());
+                    Assert.assertEquals(position, expectedStyle.getFillPattern(), actualStyle.getFillPattern());
+                    // 相同样式的单元格共用同一样式，两者的样式索引一一对应
+                    Short mappedIndex = styleIndexMap.putIfAbsent(expectedStyle.getIndex(), actualStyle.getIndex());
+                    Assert.assertEquals(position, mappedIndex == null ? actualStyle.getIndex() : mappedIndex, actualStyle.getIndex());
+                    Short reverseIndex = reverseStyleIndexMap.putIfAbsent(actualStyle.getIndex(), expectedStyle.getIndex());
+                    Assert.assertEquals(position, reverseIndex == null ? expectedStyle.getIndex() : reverseIndex, expectedStyle.getIndex());
+                }
+            }
+        }
+    }
+
+    private static List<String> mergedRegions(Sheet sheet) {
+        return sheet.getMergedRegions().stream().map(CellRangeAddress::formatAsString).sorted().collect(Collectors.toList());
+    }
 }
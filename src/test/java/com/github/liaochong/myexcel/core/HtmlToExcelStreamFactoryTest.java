@@ -0,0 +1,89 @@
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * HtmlToExcelStreamFactory Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class HtmlToExcelStreamFactoryTest {
+
+    @Test(timeout = 10000)
+    public void testCloseStopsReceiving() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            HtmlToExcelStreamFactory factory = new HtmlToExcelStreamFactory(2, null);
+            factory.start(null, null);
+            factory.append(rows(500));
+            factory.append(rows(500));
+            factory.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseAfterReceiveFailure() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            HtmlToExcelStreamFactory factory = new HtmlToExcelStreamFactory(2, null);
+            factory.start(null, null);
+            // 没有单元格列表的行使接收线程失败
+            factory.append(Collections.singletonList(new Tr(0)));
+            factory.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBuildWaitsForAllRows() throws Exception {
+        HtmlToExcelStreamFactory factory = new HtmlToExcelStreamFactory(1, null);
+        factory.start(null, null);
+        for (int i = 0; i < 10; i++) {
+            factory.append(rows(200));
+        }
+        Workbook workbook = factory.build();
+        try {
+            Assert.assertEquals(1999, workbook.getSheetAt(0).getLastRowNum());
+        } finally {
+            factory.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBuildAfterReceiveFailure() throws Exception {
+        HtmlToExcelStreamFactory factory = new HtmlToExcelStreamFactory(1, null);
+        factory.start(null, null);
+        factory.append(rows(200));
+        factory.append(Collections.singletonList(new Tr(0)));
+        try {
+            factory.build();
+            Assert.fail("Build should fail after the receive failure");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("An exception occurred while processing", e.getMessage());
+        } finally {
+            factory.close();
+        }
+    }
+
+    static List<Tr> rows(int count) {
+        List<Tr> trList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Tr tr = new Tr(i);
+            Td td = new Td();
+            td.setRow(i);
+            td.setRowBound(i);
+            td.setContent(String.valueOf(i));
+            tr.setTdList(Collections.singletonList(td));
+            tr.setColWidthMap(new HashMap<>());
+            trList.add(tr);
+        }
+        return trList;
+    }
+}
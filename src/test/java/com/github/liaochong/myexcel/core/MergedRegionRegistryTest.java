@@ -0,0 +1,92 @@
+package com.github.liaochong.myexcel.core;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * MergedRegionRegistry Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class MergedRegionRegistryTest {
+
+    @Test
+    public void testAdjacentRegions() throws Exception {
+        MergedRegionRegistry registry = new MergedRegionRegistry();
+        registry.add(new CellRangeAddress(0, 2, 0, 1));
+        registry.add(new CellRangeAddress(0, 0, 2, 3));
+        registry.add(new CellRangeAddress(1, 2, 3, 3));
+        registry.add(new CellRangeAddress(3, 3, 0, 3));
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            registry.addTo(sheet);
+            Assert.assertEquals(4, sheet.getNumMergedRegions());
+            Assert.assertEquals("A1:B3", sheet.getMergedRegion(0).formatAsString());
+            Assert.assertEquals("A4:D4", sheet.getMergedRegion(3).formatAsString());
+            // 写入后清空登记
+            registry.addTo(sheet);
+            Assert.assertEquals(4, sheet.getNumMergedRegions());
+        }
+    }
+
+    @Test
+    public void testOverlapInSameRow() {
+        MergedRegionRegistry registry = new MergedRegionRegistry();
+        registry.add(new CellRangeAddress(0, 0, 2, 4));
+        assertOverlap(registry, new CellRangeAddress(0, 0, 4, 5));
+        assertOverlap(registry, new CellRangeAddress(0, 0, 0, 2));
+        assertOverlap(registry, new CellRangeAddress(0, 0, 3, 3));
+        assertOverlap(registry, new CellRangeAddress(0, 0, 0, 9));
+    }
+
+    @Test
+    public void testOverlapWithEarlierRowSpan() {
+        MergedRegionRegistry registry = new MergedRegionRegistry();
+        registry.add(new CellRangeAddress(0, 3, 1, 1));
+        registry.add(new CellRangeAddress(1, 1, 2, 5));
+        // 首行晚于已登记区域首行，但落在其所跨的行中
+        assertOverlap(registry, new CellRangeAddress(3, 4, 0, 1));
+        registry.add(new CellRangeAddress(4, 4, 0, 1));
+    }
+
+    @Test
+    public void testRandomRegionsAgainstBruteForce() {
+        Random random = new Random(45);
+        for (int round = 0; round < 200; round++) {
+            MergedRegionRegistry registry = new MergedRegionRegistry();
+            List<CellRangeAddress> added = new ArrayList<>();
+            int firstRow = 0;
+            for (int i = 0; i < 30; i++) {
+                firstRow += random.nextInt(2);
+                int firstCol = random.nextInt(10);
+                CellRangeAddress region = new CellRangeAddress(firstRow, firstRow + random.nextInt(3),
+                        firstCol, firstCol + random.nextInt(3));
+                boolean expectedOverlap = added.stream().anyMatch(region::intersects);
+                try {
+                    registry.add(region);
+                    Assert.assertFalse("Overlap not detected: " + region.formatAsString(), expectedOverlap);
+                    added.add(region);
+                } catch (IllegalStateException e) {
+                    Assert.assertTrue("Unexpected overlap: " + region.formatAsString(), expectedOverlap);
+                }
+            }
+        }
+    }
+
+    private static void assertOverlap(MergedRegionRegistry registry, CellRangeAddress region) {
+        try {
+            registry.add(region);
+            Assert.fail("Overlap not detected: " + region.formatAsString());
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains(region.formatAsString()));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * RowAccessBudget Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class RowAccessBudgetTest {
+
+    @Test
+    public void testWindowFollowsRowWidth() {
+        RowAccessBudget budget = new RowAccessBudget(1 << 20);
+        int narrowWindow = budget.record(tr(2, 4));
+        // 2列短内容：80 + 2 * (96 + 8) = 288字节
+        Assert.assertEquals((1 << 20) / 288, narrowWindow);
+
+        RowAccessBudget wideBudget = new RowAccessBudget(1 << 20);
+        int wideWindow = wideBudget.record(tr(8, 400));
+        Assert.assertTrue(wideWindow < narrowWindow / 10);
+    }
+
+    @Test
+    public void testWindowAdaptsToRecentRows() {
+        RowAccessBudget budget = new RowAccessBudget(1 << 20);
+        int narrowWindow = budget.record(tr(2, 4));
+        // 行变宽后逐步缩小，而非立即跳变
+        int window = budget.record(tr(8, 400));
+        Assert.assertTrue(window < narrowWindow);
+        Assert.assertTrue(window > narrowWindow / 2);
+        for (int i = 0; i < 1000; i++) {
+            window = budget.record(tr(8, 400));
+        }
+        int settledWindow = new RowAccessBudget(1 << 20).record(tr(8, 400));
+        Assert.assertTrue(Math.abs(window - settledWindow) <= settledWindow / 100 + 1);
+
+        RowAccessBudget.Stats stats = budget.getStats();
+        Assert.assertEquals(1002, stats.getRowCount());
+        Assert.assertEquals(narrowWindow, stats.getMaxWindowSize());
+        Assert.assertEquals(window, stats.getMinWindowSize());
+        Assert.assertEquals(window, stats.getWindowSize());
+    }
+
+    @Test
+    public void testWindowBounds() {
+        Assert.assertEquals(10, new RowAccessBudget(1).record(tr(8, 400)));
+        Assert.assertEquals(100000, new RowAccessBudget(Long.MAX_VALUE).record(tr(1, 0)));
+        Assert.assertEquals(0, new RowAccessBudget(1).getStats().getMinWindowSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBudget() {
+        new RowAccessBudget(0);
+    }
+
+    private static Tr tr(int colCount, int contentLength) {
+        Tr tr = new Tr(0);
+        tr.setTdList(new ArrayList<>());
+        String content = String.join("", Collections.nCopies(contentLength, "x"));
+        for (int i = 0; i < colCount; i++) {
+            Td td = new Td();
+            td.setCol(i);
+            td.setContent(content);
+            tr.getTdList().add(td);
+        }
+        return tr;
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.liaochong.myexcel.core.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LruCache Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class LruCacheTest {
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        List<String> evicted = new ArrayList<>();
+        LruCache<String, Integer> cache = new LruCache<>(2, (key, value) -> evicted.add(key));
+        cache.cache("a", 1);
+        cache.cache("b", 2);
+        cache.get("a");
+        cache.cache("c", 3);
+
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        Assert.assertEquals(Integer.valueOf(3), cache.get("c"));
+        Assert.assertEquals(1, evicted.size());
+        Assert.assertEquals("b", evicted.get(0));
+    }
+
+    @Test
+    public void testMaxSizeChange() {
+        AtomicInteger maxSize = new AtomicInteger(4);
+        List<String> evicted = new ArrayList<>();
+        LruCache<String, Integer> cache = new LruCache<>(maxSize::get, (key, value) -> evicted.add(key));
+        for (int i = 0; i < 4; i++) {
+            cache.cache(String.valueOf(i), i);
+        }
+        Assert.assertEquals(4, cache.size());
+
+        maxSize.set(2);
+        cache.cache("4", 4);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals("0,1,2", String.join(",", evicted));
+
+        maxSize.set(3);
+        cache.cache("5", 5);
+        cache.cache("6", 6);
+        Assert.assertEquals(3, cache.size());
+        Assert.assertNotNull(cache.get("4"));
+        Assert.assertNull(cache.get("3"));
+    }
+}
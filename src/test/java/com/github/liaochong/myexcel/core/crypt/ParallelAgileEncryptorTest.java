@@ -0,0 +1,169 @@
+package com.github.liaochong.myexcel.core.crypt;
+
+import org.apache.poi.poifs.crypt.CryptoFunctions;
+import org.apache.poi.poifs.crypt.Decryptor;
+import org.apache.poi.poifs.crypt.EncryptionInfo;
+import org.apache.poi.poifs.crypt.EncryptionMode;
+import org.apache.poi.poifs.crypt.EncryptionHeader;
+import org.apache.poi.poifs.crypt.Encryptor;
+import org.apache.poi.poifs.filesystem.DocumentInputStream;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.LittleEndianConsts;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ParallelAgileEncryptor Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class ParallelAgileEncryptorTest {
+
+    private static final String PASSWORD = "myexcel";
+
+    private static final int PARALLELISM = 2;
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    /**
+     * 每批明文字节数，与ParallelAgileEncryptor一致：并行度 * 64段 * 4096
+     */
+    private static final int BATCH_SIZE = PARALLELISM * 64 * SEGMENT_SIZE;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void before() {
+        executorService = Executors.newFixedThreadPool(PARALLELISM);
+    }
+
+    @After
+    public void after() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testSameBytesAsAgileEncryptor() throws Exception {
+        int[] sizes = {0, 1, 4095, 4096, 4097, BATCH_SIZE - 1, BATCH_SIZE, BATCH_SIZE + 4097, BATCH_SIZE * 2 + 123};
+        for (int size : sizes) {
+            byte[] plain = new byte[size];
+            new Random(size).nextBytes(plain);
+
+            POIFSFileSystem expected = encrypt(new EncryptionInfo(EncryptionMode.agile).getEncryptor(), plain);
+            POIFSFileSystem actual = encrypt(ParallelAgileEncryptor.of(executorService), plain);
+
+            Assert.assertArrayEquals("EncryptedPackage of " + size + " bytes",
+                    read(expected, "EncryptedPackage"), read(actual, "EncryptedPackage"));
+            Assert.assertArrayEquals("EncryptionInfo of " + size + " bytes",
+                    read(expected, "EncryptionInfo"), read(actual, "EncryptionInfo"));
+            Assert.assertArrayEquals("Decrypted " + size + " bytes", plain, decryptSegments(actual));
+            // POI 4.0.1的解密流无法解密仅有一个不完整段的数据，其自身加密的结果同样如此
+            if (size == 0 || size >= SEGMENT_SIZE) {
+                Assert.assertArrayEquals("Decrypted " + size + " bytes by Decryptor", plain, decrypt(actual));
+            }
+        }
+    }
+
+    @Test
+    public void testCachedThreadPool() throws Exception {
+        ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            byte[] plain = new byte[BATCH_SIZE * 2 + 123];
+            new Random(7).nextBytes(plain);
+            // 线程数无上限的线程池，批次大小不溢出
+            POIFSFileSystem actual = encrypt(ParallelAgileEncryptor.of(cachedThreadPool), plain);
+            Assert.assertArrayEquals(plain, decrypt(actual));
+        } finally {
+            cachedThreadPool.shutdownNow();
+        }
+    }
+
+    /**
+     * 以固定的密钥、盐加密，使结果可比较
+     */
+    private static POIFSFileSystem encrypt(Encryptor encryptor, byte[] plain) throws Exception {
+        EncryptionHeader header = encryptor.getEncryptionInfo().getHeader();
+        int blockSize = header.getBlockSize();
+        Random random = new Random(42);
+        byte[] verifier = randomBytes(random, blockSize);
+        byte[] verifierSalt = randomBytes(random, blockSize);
+        byte[] keySalt = randomBytes(random, blockSize);
+        byte[] keySpec = randomBytes(random, header.getKeySize() / 8);
+        byte[] integritySalt = randomBytes(random, header.getHashAlgorithm().hashSize);
+        encryptor.confirmPassword(PASSWORD, keySpec, keySalt, verifier, verifierSalt, integritySalt);
+
+        POIFSFileSystem fs = new POIFSFileSystem();
+        try (OutputStream os = encryptor.getDataStream(fs)) {
+            // 分多次写入，覆盖跨段、跨批次的写入
+            int pos = 0;
+            int chunk = 1000;
+            while (pos < plain.length) {
+                int length = Math.min(chunk, plain.length - pos);
+                os.write(plain, pos, length);
+                pos += length;
+                chunk = chunk * 3 + 1;
+            }
+        }
+        return fs;
+    }
+
+    private static byte[] decrypt(POIFSFileSystem fs) throws Exception {
+        Decryptor decryptor = verifiedDecryptor(fs);
+        try (InputStream in = decryptor.getDataStream(fs)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    /**
+     * 以校验密码得到的密钥逐段解密，每段的向量由密钥盐与段序号生成
+     */
+    private static byte[] decryptSegments(POIFSFileSystem fs) throws Exception {
+        Decryptor decryptor = verifiedDecryptor(fs);
+        EncryptionHeader header = decryptor.getEncryptionInfo().getHeader();
+        byte[] encryptedPackage = read(fs, "EncryptedPackage");
+        int size = (int) LittleEndian.getLong(encryptedPackage, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int segment = 0, pos = LittleEndianConsts.LONG_SIZE; pos < encryptedPackage.length; segment++, pos += SEGMENT_SIZE) {
+            byte[] blockKey = new byte[LittleEndianConsts.INT_SIZE];
+            LittleEndian.putInt(blockKey, 0, segment);
+            byte[] iv = CryptoFunctions.generateIv(header.getHashAlgorithm(), header.getKeySalt(), blockKey, header.getBlockSize());
+            Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, decryptor.getSecretKey(), new IvParameterSpec(iv));
+            out.write(cipher.doFinal(encryptedPackage, pos, Math.min(SEGMENT_SIZE, encryptedPackage.length - pos)));
+        }
+        return Arrays.copyOf(out.toByteArray(), size);
+    }
+
+    private static Decryptor verifiedDecryptor(POIFSFileSystem fs) throws Exception {
+        Decryptor decryptor = Decryptor.getInstance(new EncryptionInfo(fs));
+        Assert.assertTrue(decryptor.verifyPassword(PASSWORD));
+        return decryptor;
+    }
+
+    private static byte[] read(POIFSFileSystem fs, String name) throws Exception {
+        try (DocumentInputStream in = fs.createDocumentInputStream(name)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
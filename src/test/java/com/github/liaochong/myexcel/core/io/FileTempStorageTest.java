@@ -0,0 +1,120 @@
+package com.github.liaochong.myexcel.core.io;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * FileTempStorage Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class FileTempStorageTest {
+
+    private Path directory;
+
+    @Before
+    public void before() throws Exception {
+        directory = Files.createTempDirectory("file_temp_storage");
+    }
+
+    @After
+    public void after() throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testSweepStaleFiles() throws Exception {
+        FileTempStorage storage = new FileTempStorage(directory);
+        // 其他进程遗留的文件，进程号0不会是当前进程
+        Path stale = Files.createFile(directory.resolve("myexcel_0_1_template.html"));
+        Path recent = Files.createFile(directory.resolve("myexcel_0_2_template.html"));
+        Path unrelated = Files.createFile(directory.resolve("other.html"));
+        // 以myexcel_开头的用户文件
+        Path userFile = Files.createFile(directory.resolve("myexcel_notes.xlsx"));
+        Path userNumbered = Files.createFile(directory.resolve("myexcel_2019_report.xlsx"));
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - Duration.ofDays(2).toMillis());
+        Files.setLastModifiedTime(stale, old);
+        Files.setLastModifiedTime(unrelated, old);
+        Files.setLastModifiedTime(userFile, old);
+        Files.setLastModifiedTime(userNumbered, old);
+        try (TempResource own = storage.create("template", ".html")) {
+            Files.setLastModifiedTime(own.getPath(), old);
+
+            Assert.assertEquals(1, storage.sweepStaleFiles(Duration.ofDays(1)));
+            Assert.assertFalse(Files.exists(stale));
+            Assert.assertTrue(Files.exists(recent));
+            Assert.assertTrue(Files.exists(unrelated));
+            Assert.assertTrue(Files.exists(userFile));
+            Assert.assertTrue(Files.exists(userNumbered));
+            Assert.assertTrue("Files of the current process should be kept", Files.exists(own.getPath()));
+        }
+    }
+
+    @Test
+    public void testQuota() throws Exception {
+        FileTempStorage storage = new FileTempStorage(directory, 100);
+        TempResource resource = storage.create("quota", ".tmp");
+        try (OutputStream out = resource.openOutputStream()) {
+            out.write(new byte[60]);
+            Assert.assertEquals(60, storage.getUsedBytes());
+            try {
+                out.write(new byte[41]);
+                Assert.fail("Write beyond the quota should fail");
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage().contains("quota"));
+            }
+            out.write(new byte[40]);
+        }
+        Assert.assertEquals(100, resource.size());
+        try (InputStream in = resource.openInputStream()) {
+            Assert.assertEquals(100, in.available());
+        }
+        try {
+            storage.create("quota", ".tmp");
+            Assert.fail("Create should fail when the quota is used up");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+        }
+
+        Path path = resource.getPath();
+        resource.close();
+        Assert.assertFalse(Files.exists(path));
+        Assert.assertEquals(0, storage.getUsedBytes());
+        storage.create("quota", ".tmp").close();
+    }
+
+    @Test
+    public void testPoiFilesCountAtCreation() throws Exception {
+        FileTempStorage storage = new FileTempStorage(directory, 100);
+        File poiFile = storage.toPoiStrategy().createTempFile("poi-sxssf-sheet", ".xml");
+        Assert.assertTrue(poiFile.toPath().startsWith(storage.getDirectory()));
+        // POI直接写入，不逐字节计量，可超出配额
+        Files.write(poiFile.toPath(), new byte[150]);
+        Assert.assertEquals(150, storage.getUsedBytes());
+        try {
+            storage.toPoiStrategy().createTempFile("poi-sxssf-sheet", ".xml");
+            Assert.fail("Create should fail when POI files use up the quota");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("quota"));
+        }
+
+        Assert.assertTrue(poiFile.delete());
+        Assert.assertEquals(0, storage.getUsedBytes());
+    }
+}
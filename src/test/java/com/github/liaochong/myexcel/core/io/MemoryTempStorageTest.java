@@ -0,0 +1,74 @@
+package com.github.liaochong.myexcel.core.io;
+
+import org.apache.poi.util.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MemoryTempStorage Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class MemoryTempStorageTest {
+
+    @Test
+    public void testReadWrite() throws Exception {
+        MemoryTempStorage storage = new MemoryTempStorage();
+        Assert.assertTrue(storage.isInMemory());
+        try (TempResource resource = storage.create("template", ".html")) {
+            Assert.assertNull(resource.getPath());
+            Assert.assertEquals(0, read(resource).length);
+
+            try (OutputStream out = resource.openOutputStream()) {
+                out.write("first".getBytes(StandardCharsets.UTF_8));
+            }
+            Assert.assertEquals("first", new String(read(resource), StandardCharsets.UTF_8));
+            // 可多次读取
+            Assert.assertEquals("first", new String(read(resource), StandardCharsets.UTF_8));
+
+            try (OutputStream out = resource.openOutputStream()) {
+                out.write("second!".getBytes(StandardCharsets.UTF_8));
+            }
+            Assert.assertEquals("second!", new String(read(resource), StandardCharsets.UTF_8));
+            Assert.assertEquals(7, resource.size());
+            Assert.assertEquals("Overwritten content should release its quota", 7, storage.getUsedBytes());
+        }
+        Assert.assertEquals(0, storage.getUsedBytes());
+    }
+
+    @Test
+    public void testQuota() throws Exception {
+        MemoryTempStorage storage = new MemoryTempStorage(10);
+        TempResource first = storage.create("a", ".tmp");
+        TempResource second = storage.create("b", ".tmp");
+        try (OutputStream out = first.openOutputStream()) {
+            out.write(new byte[8]);
+        }
+        try (OutputStream out = second.openOutputStream()) {
+            out.write(new byte[2]);
+            out.write(1);
+            Assert.fail("Write beyond the quota should fail");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage().contains("quota"));
+        }
+        Assert.assertEquals(10, storage.getUsedBytes());
+
+        first.close();
+        Assert.assertEquals(2, storage.getUsedBytes());
+        Assert.assertEquals(0, read(first).length);
+        second.close();
+        Assert.assertEquals(0, storage.getUsedBytes());
+    }
+
+    private static byte[] read(TempResource resource) throws IOException {
+        try (InputStream in = resource.openInputStream()) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.liaochong.myexcel.core.io;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+import com.github.liaochong.myexcel.core.style.CellStyleSpec;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * StreamingXlsxWriter Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class StreamingXlsxWriterTest {
+
+    private static final CellStyleSpec FILL = CellStyleSpec.parse("background-color:yellow");
+
+    @Test
+    public void testColumnStyle() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StreamingXlsxWriter writer = new StreamingXlsxWriter(output);
+        writer.start();
+        Map<Integer, CellStyleSpec> columnStyleMap = Collections.singletonMap(0, FILL);
+        writer.startSheet("sheet", 0, 0, null, columnStyleMap);
+        writer.writeRow(tr(0, td(0, 0, "a", FILL)));
+        writer.writeRow(tr(1, td(1, 0, null, FILL)));
+        writer.writeRow(tr(2, td(2, 0, null, CellStyleSpec.parse("background-color:red"))));
+        writer.endSheet();
+        writer.finish();
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(output.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            CellStyle columnStyle = sheet.getColumnStyle(0);
+            Assert.assertNotNull(columnStyle);
+            Assert.assertEquals(FillPatternType.SOLID_FOREGROUND, columnStyle.getFillPattern());
+            Assert.assertEquals(columnStyle.getIndex(), sheet.getRow(0).getCell(0).getCellStyle().getIndex());
+            // 与列默认样式相同的空单元格不写出
+            Assert.assertNull(sheet.getRow(1).getCell(0));
+            Assert.assertNotNull(sheet.getRow(2).getCell(0));
+            Assert.assertNotEquals(columnStyle.getIndex(), sheet.getRow(2).getCell(0).getCellStyle().getIndex());
+        }
+    }
+
+    private static Tr tr(int index, Td... tds) {
+        Tr tr = new Tr(index);
+        tr.setTdList(new ArrayList<>());
+        Collections.addAll(tr.getTdList(), tds);
+        return tr;
+    }
+
+    private static Td td(int row, int col, String content, CellStyleSpec style) {
+        Td td = new Td();
+        td.setRow(row);
+        td.setCol(col);
+        td.setRowBound(row);
+        td.setColBound(col);
+        td.setContent(content);
+        td.setStyle(style);
+        return td;
+    }
+}
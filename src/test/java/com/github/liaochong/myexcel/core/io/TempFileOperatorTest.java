@@ -0,0 +1,63 @@
+package com.github.liaochong.myexcel.core.io;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * TempFileOperator Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class TempFileOperatorTest {
+
+    private Path directory;
+
+    @Before
+    public void before() throws Exception {
+        directory = Files.createTempDirectory("temp_file_operator");
+    }
+
+    @After
+    public void after() throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testWorkingDirectoryIsNotSwept() throws Exception {
+        Path stale = this.createStaleFile("myexcel_0_1_template.html");
+        Path userFile = this.createStaleFile("myexcel_notes.xlsx");
+
+        FileTempStorage storage = TempFileOperator.createDefaultStorage(null, directory);
+        Assert.assertEquals(directory.toAbsolutePath(), storage.getDirectory());
+        Assert.assertTrue(Files.exists(stale));
+        Assert.assertTrue(Files.exists(userFile));
+    }
+
+    @Test
+    public void testDedicatedDirectoryIsSwept() throws Exception {
+        Path stale = this.createStaleFile("myexcel_0_1_template.html");
+        Path userFile = this.createStaleFile("myexcel_notes.xlsx");
+
+        TempFileOperator.createDefaultStorage(directory.toString(), directory.getParent());
+        Assert.assertFalse(Files.exists(stale));
+        Assert.assertTrue(Files.exists(userFile));
+    }
+
+    private Path createStaleFile(String name) throws Exception {
+        Path path = Files.createFile(directory.resolve(name));
+        Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofDays(3).toMillis()));
+        return path;
+    }
+}
@@ -0,0 +1,166 @@
+package com.github.liaochong.myexcel.core.io;
+
+import com.github.liaochong.myexcel.core.DeflatePolicy;
+import com.github.liaochong.myexcel.utils.ExecutorUtil;
+import com.github.liaochong.myexcel.utils.WorkbookUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * XlsxPackageWriter Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class XlsxPackageWriterTest {
+
+    private static final int ROW_COUNT = 3000;
+
+    private ExecutorService executorService;
+
+    private Path file;
+
+    @Before
+    public void before() throws Exception {
+        executorService = Executors.newFixedThreadPool(2);
+        file = Files.createTempFile("package_writer", ".xlsx");
+    }
+
+    @After
+    public void after() throws Exception {
+        executorService.shutdownNow();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testSxssfRoundTrip() throws Exception {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        fill(workbook);
+        try (OutputStream os = Files.newOutputStream(file)) {
+            new XlsxPackageWriter(1, null, 1).write(workbook, os);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        assertRoundTrip();
+    }
+
+    @Test
+    public void testParallelXssfRoundTrip() throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream os = Files.newOutputStream(file)) {
+            fill(workbook);
+            new XlsxPackageWriter(6, executorService, 2).write(workbook, os);
+        }
+        assertRoundTrip();
+    }
+
+    @Test
+    public void testInjectSheetData() throws Exception {
+        String rows = "<row r=\"1\"/>";
+        Assert.assertEquals("<worksheet><sheetPr/><sheetData>" + rows + "</sheetData><mergeCells/></worksheet>",
+                inject("<worksheet><sheetPr/><sheetData/><mergeCells/></worksheet>", rows));
+        Assert.assertEquals("<worksheet><sheetData>" + rows + "</sheetData></worksheet>",
+                inject("<worksheet><sheetData>\n<row r=\"9\"><c/></row></sheetData></worksheet>", rows));
+        // 部分匹配后需从当前字节重新匹配
+        Assert.assertEquals("<<sheetD<sheetData>" + rows + "</sheetData>",
+                inject("<<sheetD<sheetData />", rows));
+        try {
+            inject("<worksheet/>", rows);
+            Assert.fail("Template without sheetData should be rejected");
+        } catch (java.io.IOException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCachedThreadPool() throws Exception {
+        ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            // 线程数无上限的线程池，并行度不超过CPU核心数目
+            int parallelism = ExecutorUtil.getParallelism(cachedThreadPool);
+            Assert.assertTrue(parallelism >= 1 && parallelism <= Runtime.getRuntime().availableProcessors());
+            try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+                fill(workbook);
+                WorkbookUtil.write(workbook, file, DeflatePolicy.parallel(cachedThreadPool));
+            }
+            assertRoundTrip();
+
+            // 直接传入的并行度过大时不溢出
+            try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream os = Files.newOutputStream(file)) {
+                fill(workbook);
+                new XlsxPackageWriter(6, cachedThreadPool, Integer.MAX_VALUE).write(workbook, os);
+            }
+            assertRoundTrip();
+        } finally {
+            cachedThreadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testZip64EntryCount() throws Exception {
+        int entryCount = 70000;
+        try (OutputStream os = Files.newOutputStream(file)) {
+            DeflateZipWriter writer = new DeflateZipWriter(os, 1, null, 1);
+            for (int i = 0; i < entryCount; i++) {
+                writer.putNextEntry("e" + i).write(String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+                writer.closeEntry();
+            }
+            writer.finish();
+        }
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            Assert.assertEquals(entryCount, zipFile.size());
+            ZipEntry entry = zipFile.getEntry("e" + (entryCount - 1));
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                Assert.assertEquals(String.valueOf(entryCount - 1), new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static String inject(String template, String rows) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XlsxPackageWriter.injectSheetData(new ByteArrayInputStream(template.getBytes(StandardCharsets.UTF_8)), out,
+                new ByteArrayInputStream(rows.getBytes(StandardCharsets.UTF_8)));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void fill(Workbook workbook) {
+        Sheet sheet = workbook.createSheet("data");
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue(i);
+            row.createCell(1).setCellValue("name_" + i);
+        }
+    }
+
+    private void assertRoundTrip() throws Exception {
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            Assert.assertNotNull(zipFile.getEntry("xl/worksheets/sheet1.xml"));
+        }
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file.toFile())) {
+            Sheet sheet = workbook.getSheetAt(0);
+            Assert.assertEquals(ROW_COUNT - 1, sheet.getLastRowNum());
+            Assert.assertEquals(ROW_COUNT - 1, (int) sheet.getRow(ROW_COUNT - 1).getCell(0).getNumericCellValue());
+            Assert.assertEquals("name_" + (ROW_COUNT - 1), sheet.getRow(ROW_COUNT - 1).getCell(1).getStringCellValue());
+        }
+    }
+}
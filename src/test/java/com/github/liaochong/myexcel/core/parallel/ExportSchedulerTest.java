@@ -0,0 +1,140 @@
+package com.github.liaochong.myexcel.core.parallel;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExportScheduler Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class ExportSchedulerTest {
+
+    private ExportScheduler scheduler;
+
+    @Before
+    public void before() {
+        scheduler = ExportScheduler.of(1);
+    }
+
+    @After
+    public void after() {
+        scheduler.shutdown();
+    }
+
+    @Test(timeout = 10000)
+    public void testPriorityAndWeightedFairOrder() throws Exception {
+        scheduler.weight("A", 2);
+        ExecutorService gate = scheduler.executor("gate", ExportScheduler.Priority.NORMAL);
+        ExecutorService a = scheduler.executor("A", ExportScheduler.Priority.NORMAL);
+        ExecutorService b = scheduler.executor("B", ExportScheduler.Priority.NORMAL);
+        ExecutorService high = scheduler.executor("C", ExportScheduler.Priority.HIGH);
+
+        StringBuffer order = new StringBuffer();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(10);
+        // 唯一的工作线程被阻塞，其余任务全部排队
+        gate.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        started.await();
+        for (int i = 0; i < 6; i++) {
+            a.execute(record(order, "A", done));
+        }
+        for (int i = 0; i < 3; i++) {
+            b.execute(record(order, "B", done));
+        }
+        high.execute(record(order, "H", done));
+        Assert.assertEquals(10, scheduler.getStats().getQueuedTaskCount());
+
+        release.countDown();
+        done.await();
+        // 高优先级先执行，同一优先级内A、B按权重2:1交替
+        Assert.assertEquals("HAABAABAAB", order.toString());
+    }
+
+    @Test(timeout = 10000)
+    public void testWeightProportionality() throws Exception {
+        scheduler.weight("A", 3);
+        ExecutorService gate = scheduler.executor("gate", ExportScheduler.Priority.LOW);
+        ExecutorService a = scheduler.executor("A", ExportScheduler.Priority.LOW);
+        ExecutorService b = scheduler.executor("B", ExportScheduler.Priority.LOW);
+
+        StringBuffer order = new StringBuffer();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(400);
+        gate.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        started.await();
+        // B先提交大量任务，A仍按权重获得执行机会
+        for (int i = 0; i < 200; i++) {
+            b.execute(record(order, "B", done));
+        }
+        for (int i = 0; i < 200; i++) {
+            a.execute(record(order, "A", done));
+        }
+        release.countDown();
+        done.await();
+
+        // 两者均有任务排队期间，每执行4个任务中A占3个
+        String prefix = order.substring(0, 264);
+        for (int i = 0; i < prefix.length(); i += 4) {
+            String window = prefix.substring(i, i + 4);
+            Assert.assertEquals("Window " + i + ": " + window, 3, window.length() - window.replace("A", "").length());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testMaxRunningExports() throws Exception {
+        scheduler.maxRunningExports(1);
+        ExecutorService low = scheduler.exportExecutor("A", ExportScheduler.Priority.LOW);
+        ExecutorService high = scheduler.exportExecutor("B", ExportScheduler.Priority.HIGH);
+
+        StringBuffer order = new StringBuffer();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        low.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        started.await();
+        low.execute(record(order, "L", done));
+        high.execute(record(order, "H", done));
+        high.execute(record(order, "H", done));
+        ExportScheduler.Stats stats = scheduler.getStats();
+        Assert.assertEquals(1, stats.getRunningExportCount());
+        Assert.assertEquals(3, stats.getQueuedExportCount());
+
+        release.countDown();
+        done.await();
+        Assert.assertEquals("HHL", order.toString());
+    }
+
+    private static Runnable record(StringBuffer order, String name, CountDownLatch done) {
+        return () -> {
+            order.append(name);
+            done.countDown();
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
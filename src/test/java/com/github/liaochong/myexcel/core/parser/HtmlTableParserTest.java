@@ -0,0 +1,122 @@
+package com.github.liaochong.myexcel.core.parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * HtmlTableParser Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class HtmlTableParserTest {
+
+    private static final String[] STYLES = {"", "color:red;", "font-weight:bold;", "background-color:#ffff00;text-align:center;"};
+
+    @Test
+    public void testDomAndStreamAreEquivalent() throws Exception {
+        Random random = new Random(11);
+        for (int round = 0; round < 5; round++) {
+            String html = randomHtml(random, 2, 300);
+            List<Table> domTables = HtmlTableParser.of(html).getAllTable();
+            List<Table> streamTables = HtmlTableParser.of(new StringReader(html)).getAllTable();
+            assertTablesEqual(domTables, streamTables);
+        }
+    }
+
+    @Test
+    public void testParseReplaysDomRowsInOrder() throws Exception {
+        String html = randomHtml(new Random(5), 1, 2000);
+        List<Tr> replayed = new ArrayList<>();
+        HtmlTableParser.of(html).parse(new TableListener() {
+            @Override
+            public void startTable(Table table) {
+                Assert.assertNull("Rows should only be sent through tr events", table.getTrList());
+            }
+
+            @Override
+            public void tr(Tr tr) {
+                replayed.add(tr);
+            }
+
+            @Override
+            public void endTable(Table table) {
+                Assert.assertEquals(replayed.size(), table.getTrList().size());
+            }
+        });
+        Assert.assertEquals(2002, replayed.size());
+        for (int i = 0; i < replayed.size(); i++) {
+            Assert.assertEquals(i, replayed.get(i).getIndex());
+        }
+        List<Tr> streamed = HtmlTableParser.of(new StringReader(html)).getAllTable().get(0).getTrList();
+        for (int i = 0; i < replayed.size(); i++) {
+            assertTrEquals(streamed.get(i), replayed.get(i));
+        }
+    }
+
+    /**
+     * 生成包含表头、各级样式及随机跨行跨列的html
+     */
+    private static String randomHtml(Random random, int tableCount, int rowCount) {
+        StringBuilder html = new StringBuilder("<html><body>");
+        for (int t = 0; t < tableCount; t++) {
+            html.append("<table style=\"").append(STYLES[random.nextInt(STYLES.length)]).append("\">")
+                    .append("<caption>table").append(t).append("</caption>")
+                    .append("<thead style=\"").append(STYLES[random.nextInt(STYLES.length)]).append("\">")
+                    .append("<tr><th rowspan=\"2\">id</th><th colspan=\"3\">values</th></tr>")
+                    .append("<tr><th>a</th><th>b</th><th>c</th></tr></thead>")
+                    .append("<tbody style=\"").append(STYLES[random.nextInt(STYLES.length)]).append("\">");
+            for (int r = 0; r < rowCount; r++) {
+                html.append("<tr style=\"").append(STYLES[random.nextInt(STYLES.length)]).append("\">");
+                for (int c = 0, size = 1 + random.nextInt(5); c < size; c++) {
+                    String tag = random.nextBoolean() ? "td" : "th";
+                    html.append('<').append(tag);
+                    if (random.nextInt(5) == 0) {
+                        html.append(" rowspan=\"").append(2 + random.nextInt(6)).append('"');
+                    }
+                    if (random.nextInt(5) == 0) {
+                        html.append(" colspan=\"").append(2 + random.nextInt(3)).append('"');
+                    }
+                    html.append(" style=\"").append(STYLES[random.nextInt(STYLES.length)]).append("\">")
+                            .append("cell ").append(r).append('_').append(c).append(" &lt;").append(random.nextInt(1000)).append("&gt;")
+                            .append("</").append(tag).append('>');
+                }
+                html.append("</tr>");
+            }
+            html.append("</tbody></table>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    private static void assertTablesEqual(List<Table> expected, List<Table> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int t = 0; t < expected.size(); t++) {
+            Assert.assertEquals(expected.get(t).getCaption(), actual.get(t).getCaption());
+            List<Tr> expectedTrList = expected.get(t).getTrList();
+            List<Tr> actualTrList = actual.get(t).getTrList();
+            Assert.assertEquals(expectedTrList.size(), actualTrList.size());
+            for (int i = 0; i < expectedTrList.size(); i++) {
+                assertTrEquals(expectedTrList.get(i), actualTrList.get(i));
+            }
+        }
+    }
+
+    private static void assertTrEquals(Tr expected, Tr actual) {
+        String message = "Row " + expected.getIndex();
+        Assert.assertEquals(message, expected.getIndex(), actual.getIndex());
+        Assert.assertEquals(message, expected.isHeader(), actual.isHeader());
+        Assert.assertEquals(message, HtmlTableTokenizerTest.layout(expected), HtmlTableTokenizerTest.layout(actual));
+        Assert.assertEquals(message, expected.getColWidthMap(), actual.getColWidthMap());
+        for (int i = 0; i < expected.getTdList().size(); i++) {
+            Td expectedTd = expected.getTdList().get(i);
+            Td actualTd = actual.getTdList().get(i);
+            Assert.assertEquals(message, expectedTd.isTh(), actualTd.isTh());
+            Assert.assertEquals(message, expectedTd.getStyle(), actualTd.getStyle());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.liaochong.myexcel.core.parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * HtmlTableTokenizer Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class HtmlTableTokenizerTest {
+
+    @Test
+    public void testRowAndColSpanLayout() throws Exception {
+        String html = "<html><head><title>ignored</title><style>td{color:red}</style></head><body>"
+                + "<table><caption>Report</caption>"
+                + "<thead><tr><th rowspan=\"2\">Name</th><th colspan=\"2\">Score</th></tr>"
+                + "<tr><th>Math</th><th>Art</th></tr></thead>"
+                + "<tbody><tr><td>Tom &amp; Jerry</td><td>1</td><td>2</td></tr>"
+                + "<tr><td>A<br>B</td><td colspan=2>  x  </td></tr></tbody>"
+                + "</table></body></html>";
+        List<String> events = new ArrayList<>();
+        List<Tr> trList = new ArrayList<>();
+        HtmlTableTokenizer.of(new StringReader(html)).parse(new TableListener() {
+            @Override
+            public void startTable(Table table) {
+                events.add("startTable:" + table.getCaption());
+            }
+
+            @Override
+            public void tr(Tr tr) {
+                events.add("tr:" + tr.getIndex());
+                trList.add(tr);
+            }
+
+            @Override
+            public void endTable(Table table) {
+                events.add("endTable");
+            }
+        });
+
+        Assert.assertEquals("startTable:Report,tr:0,tr:1,tr:2,tr:3,endTable", String.join(",", events));
+        Assert.assertEquals("Name@0,0-1,0|Score@0,1-0,2", layout(trList.get(0)));
+        Assert.assertEquals("Math@1,1-1,1|Art@1,2-1,2", layout(trList.get(1)));
+        Assert.assertEquals("Tom & Jerry@2,0-2,0|1@2,1-2,1|2@2,2-2,2", layout(trList.get(2)));
+        Assert.assertEquals("A B@3,0-3,0|x@3,1-3,2", layout(trList.get(3)));
+        Assert.assertTrue(trList.get(0).isHeader());
+        Assert.assertTrue(trList.get(1).isHeader());
+        Assert.assertFalse(trList.get(2).isHeader());
+        Assert.assertTrue(trList.get(0).getTdList().get(0).isTh());
+        Assert.assertFalse(trList.get(2).getTdList().get(0).isTh());
+        // 宽度按单元格起始列记录
+        Assert.assertEquals(2, trList.get(1).getColWidthMap().size());
+        Assert.assertTrue(trList.get(1).getColWidthMap().containsKey(1));
+        Assert.assertTrue(trList.get(1).getColWidthMap().containsKey(2));
+    }
+
+    @Test
+    public void testNestedTableKeptAsText() throws Exception {
+        List<Table> tables = parse("<table><tr><td>outer<table><tr><td>inner</td></tr></table>end</td><td>b</td></tr>"
+                + "<tr><td>c</td></tr></table>");
+
+        Assert.assertEquals(1, tables.size());
+        List<Tr> trList = tables.get(0).getTrList();
+        Assert.assertEquals(2, trList.size());
+        Assert.assertEquals("outer inner end@0,0-0,0|b@0,1-0,1", layout(trList.get(0)));
+        Assert.assertEquals("c@1,0-1,0", layout(trList.get(1)));
+    }
+
+    @Test
+    public void testUnclosedTags() throws Exception {
+        List<Table> tables = parse("<table><tr><td>a<td rowspan=2>b<tr><td>c<td>d</table>");
+
+        List<Tr> trList = tables.get(0).getTrList();
+        Assert.assertEquals("a@0,0-0,0|b@0,1-1,1", layout(trList.get(0)));
+        Assert.assertEquals("c@1,0-1,0|d@1,2-1,2", layout(trList.get(1)));
+    }
+
+    @Test
+    public void testSpansDoNotLeakIntoNextTable() throws Exception {
+        List<Table> tables = parse("<table><tr><td rowspan=\"3\" colspan=\"2\">a</td></tr></table>"
+                + "<table><tr><td>b</td><td>c</td></tr></table>");
+
+        Assert.assertEquals(2, tables.size());
+        Assert.assertEquals("a@0,0-2,1", layout(tables.get(0).getTrList().get(0)));
+        Assert.assertEquals("b@0,0-0,0|c@0,1-0,1", layout(tables.get(1).getTrList().get(0)));
+    }
+
+    static List<Table> parse(String html) throws IOException {
+        List<Table> tables = new ArrayList<>();
+        HtmlTableTokenizer.of(new StringReader(html)).parse(new TableListener() {
+            private List<Tr> trList;
+
+            @Override
+            public void startTable(Table table) {
+                trList = new ArrayList<>();
+            }
+
+            @Override
+            public void tr(Tr tr) {
+                trList.add(tr);
+            }
+
+            @Override
+            public void endTable(Table table) {
+                table.setTrList(trList);
+                tables.add(table);
+            }
+        });
+        return tables;
+    }
+
+    /**
+     * 单元格内容及位置，格式为content@row,col-rowBound,colBound，以|分隔
+     */
+    static String layout(Tr tr) {
+        return tr.getTdList().stream()
+                .map(td -> td.getContent() + "@" + td.getRow() + "," + td.getCol() + "-" + td.getRowBound() + "," + td.getColBound())
+                .collect(Collectors.joining("|"));
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.liaochong.myexcel.core.parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * SpanOccupancy Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class SpanOccupancyTest {
+
+    @Test
+    public void testOverlappingSpans() throws Exception {
+        List<Table> tables = HtmlTableTokenizerTest.parse("<table>"
+                + "<tr><td rowspan=\"3\">a</td><td>b</td></tr>"
+                + "<tr><td colspan=\"2\" rowspan=\"2\">c</td><td>e</td></tr>"
+                + "<tr><td>d</td></tr>"
+                + "</table>");
+
+        List<Tr> trList = tables.get(0).getTrList();
+        Assert.assertEquals("a@0,0-2,0|b@0,1-0,1", HtmlTableTokenizerTest.layout(trList.get(0)));
+        Assert.assertEquals("c@1,1-2,2|e@1,3-1,3", HtmlTableTokenizerTest.layout(trList.get(1)));
+        Assert.assertEquals("d@2,3-2,3", HtmlTableTokenizerTest.layout(trList.get(2)));
+    }
+
+    @Test
+    public void testSkippedRowsAreReleased() {
+        SpanOccupancy occupancy = new SpanOccupancy();
+        occupancy.startRow(0);
+        occupancy.occupy(3, 0, 1);
+        occupancy.startRow(2);
+        Assert.assertEquals(2, occupancy.nextFreeColumn(0));
+        // 跨行在此之前结束
+        occupancy.startRow(3);
+        Assert.assertEquals(0, occupancy.nextFreeColumn(0));
+
+        occupancy.occupy(5, 4, 4);
+        occupancy.startRow(100);
+        Assert.assertEquals("Rows far behind should not leave stale occupancy", 4, occupancy.nextFreeColumn(4));
+    }
+
+    @Test
+    public void testRingGrowsForLongSpans() {
+        SpanOccupancy occupancy = new SpanOccupancy();
+        occupancy.startRow(5);
+        occupancy.occupy(3, 2, 2);
+        occupancy.occupy(20, 0, 0);
+        occupancy.startRow(6);
+        Assert.assertEquals(1, occupancy.nextFreeColumn(0));
+        Assert.assertEquals(3, occupancy.nextFreeColumn(2));
+        occupancy.startRow(24);
+        Assert.assertEquals(1, occupancy.nextFreeColumn(0));
+        Assert.assertEquals(2, occupancy.nextFreeColumn(2));
+        occupancy.startRow(25);
+        Assert.assertEquals(0, occupancy.nextFreeColumn(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRowMustIncrease() {
+        SpanOccupancy occupancy = new SpanOccupancy();
+        occupancy.startRow(1);
+        occupancy.startRow(1);
+    }
+
+    @Test
+    public void testMatchesGridModel() throws Exception {
+        Random random = new Random(37);
+        for (int round = 0; round < 20; round++) {
+            int rowCount = 30 + random.nextInt(50);
+            List<int[][]> rows = new ArrayList<>();
+            StringBuilder html = new StringBuilder("<table>");
+            for (int r = 0; r < rowCount; r++) {
+                int[][] cells = new int[1 + random.nextInt(6)][];
+                html.append("<tr>");
+                for (int c = 0; c < cells.length; c++) {
+                    int rowSpan = random.nextInt(4) == 0 ? 2 + random.nextInt(12) : 1;
+                    int colSpan = random.nextInt(4) == 0 ? 2 + random.nextInt(3) : 1;
+                    cells[c] = new int[]{rowSpan, colSpan};
+                    html.append("<td rowspan=\"").append(rowSpan).append("\" colspan=\"").append(colSpan).append("\">")
+                            .append(r).append('_').append(c).append("</td>");
+                }
+                html.append("</tr>");
+                rows.add(cells);
+            }
+            html.append("</table>");
+
+            List<Tr> trList = HtmlTableTokenizerTest.parse(html.toString()).get(0).getTrList();
+            Assert.assertEquals(rowCount, trList.size());
+            Set<Long> grid = new HashSet<>();
+            for (int r = 0; r < rowCount; r++) {
+                int cursor = 0;
+                int[][] cells = rows.get(r);
+                for (int c = 0; c < cells.length; c++) {
+                    while (grid.contains(key(r, cursor))) {
+                        cursor++;
+                    }
+                    Td td = trList.get(r).getTdList().get(c);
+                    Assert.assertEquals(r + "_" + c, td.getContent());
+                    Assert.assertEquals("Column of " + td.getContent(), cursor, td.getCol());
+                    Assert.assertEquals(cursor + cells[c][1] - 1, td.getColBound());
+                    Assert.assertEquals(r + cells[c][0] - 1, td.getRowBound());
+                    for (int i = r; i < r + cells[c][0]; i++) {
+                        for (int j = cursor; j < cursor + cells[c][1]; j++) {
+                            grid.add(key(i, j));
+                        }
+                    }
+                    cursor += cells[c][1];
+                }
+            }
+        }
+    }
+
+    private static long key(int row, int col) {
+        return (long) row << 32 | col;
+    }
+}
@@ -0,0 +1,71 @@
+package com.github.liaochong.myexcel.core.style;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CellStylePool Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class CellStylePoolTest {
+
+    @Test
+    public void testDedupByResolvedAttributes() throws Exception {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            CellStylePool pool = new CellStylePool(workbook, new CustomColor());
+            // 原始样式不同，解析后的属性相同
+            CellStyle first = pool.getCellStyle(CellStyleSpec.parse("color:#ff0000;text-align:center;width:100px"));
+            CellStyle second = pool.getCellStyle(CellStyleSpec.parse("color:rgb(255,0,0);text-align:center"));
+            Assert.assertSame(first, second);
+            Assert.assertEquals(HorizontalAlignment.CENTER, first.getAlignment());
+
+            // 字体相同、对齐不同时，单元格样式不同但共享字体
+            CellStyle left = pool.getCellStyle(CellStyleSpec.parse("color:#ff0000;text-align:left"));
+            Assert.assertNotSame(first, left);
+            Assert.assertEquals(first.getFontIndexAsInt(), left.getFontIndexAsInt());
+
+            CellStylePool.Stats stats = pool.getStats();
+            Assert.assertEquals(3, stats.getRequestCount());
+            Assert.assertEquals(2, stats.getStyleCount());
+            Assert.assertEquals(1, stats.getReusedStyleCount());
+            Assert.assertEquals(0, stats.getDegradedStyleCount());
+            Assert.assertEquals(1, stats.getFontCount());
+            Assert.assertEquals(1, stats.getReusedFontCount());
+        }
+    }
+
+    @Test
+    public void testDegradeToMostSimilarStyle() throws Exception {
+        try (HSSFWorkbook workbook = new HSSFWorkbook()) {
+            CellStylePool pool = new CellStylePool(workbook, new CustomColor(true, workbook.getCustomPalette()));
+            CellStyle redCenter = pool.getCellStyle(CellStyleSpec.parse("color:red;text-align:center"));
+            CellStyle yellowFill = pool.getCellStyle(CellStyleSpec.parse("background-color:yellow;text-align:left"));
+            // 将工作簿样式数填满至接近上限
+            int maxCellStyles = workbook.getSpreadsheetVersion().getMaxCellStyles();
+            while (workbook.getNumCellStyles() < maxCellStyles - 16) {
+                workbook.createCellStyle();
+            }
+            int styleCount = workbook.getNumCellStyles();
+
+            // 字体相同者优先于对齐相同者
+            CellStyle degraded = pool.getCellStyle(CellStyleSpec.parse("color:red;text-align:left"));
+            Assert.assertSame(redCenter, degraded);
+            Assert.assertSame(yellowFill, pool.getCellStyle(CellStyleSpec.parse("background-color:yellow;text-align:right")));
+            // 已降级的样式再次请求时直接复用
+            Assert.assertSame(redCenter, pool.getCellStyle(CellStyleSpec.parse("color:red;text-align:left")));
+            Assert.assertEquals(styleCount, workbook.getNumCellStyles());
+
+            CellStylePool.Stats stats = pool.getStats();
+            Assert.assertEquals(2, stats.getStyleCount());
+            Assert.assertEquals(2, stats.getDegradedStyleCount());
+            Assert.assertEquals(1, stats.getReusedStyleCount());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.liaochong.myexcel.core.style;
+
+import com.github.liaochong.myexcel.core.HtmlToExcelFactory;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CellStyleSpec Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class CellStyleSpecTest {
+
+    @Test
+    public void testInternAndMix() {
+        CellStyleSpec red = CellStyleSpec.parse("color:red;font-size:12pt");
+        Assert.assertSame(red, CellStyleSpec.of(style("color", "red", "font-size", "12pt")));
+        Assert.assertEquals(12, red.getFontSize());
+        Assert.assertSame(red, red.getFontSpec());
+
+        CellStyleSpec lower = CellStyleSpec.parse("color:blue;background-color:yellow");
+        CellStyleSpec mixed = red.mix(lower);
+        Assert.assertEquals("blue", mixed.get("color"));
+        Assert.assertEquals("12pt", mixed.get("font-size"));
+        Assert.assertEquals("yellow", mixed.get("background-color"));
+        Assert.assertSame(mixed, red.mix(lower));
+        Assert.assertSame(red, red.mix(CellStyleSpec.EMPTY));
+        Assert.assertSame(lower, CellStyleSpec.EMPTY.mix(lower));
+    }
+
+    @Test
+    public void testMixDoesNotRetainLowerSpec() throws Exception {
+        CellStyleSpec upper = CellStyleSpec.of(style("color", "red"));
+        String unique = "#" + Integer.toHexString(System.identityHashCode(this));
+        CellStyleSpec lower = CellStyleSpec.of(style("color", unique));
+        // 融合结果即为下级样式
+        Assert.assertSame(lower, upper.mix(lower));
+        WeakReference<CellStyleSpec> reference = new WeakReference<>(lower);
+        lower = null;
+
+        Assert.assertTrue("Mix cache should not keep lower specs alive", isCollected(reference));
+        Assert.assertEquals("red", upper.get("color"));
+    }
+
+    @Test
+    public void testSharedSpecDoesNotRetainWorkbook() throws Exception {
+        // 通过共享的样式实例构建两个工作簿，最后构建的工作簿关闭后应可回收
+        String html = "<table><tr><td style=\"color:red;background-color:yellow\">a</td></tr></table>";
+        Workbook other = HtmlToExcelFactory.readHtml(html).build();
+        Workbook last = HtmlToExcelFactory.readHtml(html).build();
+        Assert.assertNotSame(other.getSheetAt(0).getRow(0).getCell(0).getCellStyle(),
+                last.getSheetAt(0).getRow(0).getCell(0).getCellStyle());
+        other.close();
+        WeakReference<Workbook> reference = new WeakReference<>(last);
+        last.close();
+        last = null;
+
+        Assert.assertTrue("Shared style specs should not keep workbooks alive", isCollected(reference));
+        Assert.assertNotNull(CellStyleSpec.parse("color:red;background-color:yellow"));
+    }
+
+    private static Map<String, String> style(String... nameValues) {
+        Map<String, String> style = new HashMap<>();
+        for (int i = 0; i < nameValues.length; i += 2) {
+            style.put(nameValues[i], nameValues[i + 1]);
+        }
+        return style;
+    }
+
+    private static boolean isCollected(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        return reference.get() == null;
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.liaochong.myexcel.core.style;
+
+import org.apache.poi.hssf.usermodel.HSSFPalette;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.hssf.util.HSSFColor;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * CustomColor Tester.
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class CustomColorTest {
+
+    @Test
+    public void testReusePaletteSlots() throws Exception {
+        try (HSSFWorkbook workbook = new HSSFWorkbook()) {
+            HSSFPalette palette = workbook.getCustomPalette();
+            CustomColor customColor = new CustomColor(true, palette);
+
+            short index = customColor.getPaletteIndex(new int[]{1, 2, 3});
+            Assert.assertEquals(56, index);
+            Assert.assertEquals(index, customColor.getPaletteIndex(customColor.getRGB("rgb(1,2,3)")));
+            Assert.assertArrayEquals(new short[]{1, 2, 3}, palette.getColor(index).getTriplet());
+
+            // 与预定义颜色相同时直接使用预定义序号，不占用自定义序号
+            HSSFColor black = palette.getColor(HSSFColor.HSSFColorPredefined.BLACK.getIndex());
+            short[] triplet = black.getTriplet();
+            Assert.assertTrue(customColor.getPaletteIndex(new int[]{triplet[0], triplet[1], triplet[2]}) < 56);
+            Assert.assertEquals(57, customColor.getPaletteIndex(new int[]{4, 5, 6}));
+        }
+    }
+
+    @Test
+    public void testNearestColorWhenPaletteIsFull() throws Exception {
+        try (HSSFWorkbook workbook = new HSSFWorkbook()) {
+            HSSFPalette palette = workbook.getCustomPalette();
+            CustomColor customColor = new CustomColor(true, palette);
+            // 占满自定义序号56-63
+            for (int i = 0; i < 8; i++) {
+                Assert.assertEquals(56 + i, customColor.getPaletteIndex(new int[]{i * 30, 7, 11}));
+            }
+
+            short index = customColor.getPaletteIndex(new int[]{62, 8, 12});
+            Assert.assertEquals(palette.findSimilarColor(62, 8, 12).getIndex(), index);
+            Assert.assertArrayEquals(new short[]{60, 7, 11}, palette.getColor(index).getTriplet());
+            // 已登记的自定义颜色未被覆盖
+            for (int i = 0; i < 8; i++) {
+                Assert.assertArrayEquals(new short[]{(short) (i * 30), 7, 11}, palette.getColor(56 + i).getTriplet());
+            }
+        }
+    }
+
+    @Test
+    public void testShareXSSFColor() {
+        CustomColor customColor = new CustomColor();
+        Assert.assertSame(customColor.getXSSFColor(new int[]{1, 2, 3}), customColor.getXSSFColor(customColor.getRGB("#010203")));
+        Assert.assertNull(customColor.getRGB("not-a-color"));
+    }
+}
@@ -0,0 +1,23 @@
+<!DOCTYPE html>
+<html>
+<head>
+    <meta charset="UTF-8">
+</head>
+<body>
+<table>
+    <caption>${sheetName}</caption>
+    <thead>
+    <tr>
+        <th>name</th>
+    </tr>
+    </thead>
+    <tbody>
+    <#list names as name>
+        <tr>
+            <td>${name}</td>
+        </tr>
+    </#list>
+    </tbody>
+</table>
+</body>
+</html>